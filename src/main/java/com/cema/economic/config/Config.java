@@ -3,6 +3,7 @@ package com.cema.economic.config;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
 import org.springframework.security.config.core.GrantedAuthorityDefaults;
@@ -20,6 +21,7 @@ import java.util.ArrayList;
 
 @Configuration
 @EnableSwagger2
+@EnableScheduling
 public class Config {
     public static final Contact CONTACT = new Contact("Proyecto Cema", "https://cema.atlassian.net/jira/your-work", "merlinsn@gmail.com");
 
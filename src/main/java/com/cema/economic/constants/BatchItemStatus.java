@@ -0,0 +1,6 @@
+package com.cema.economic.constants;
+
+public class BatchItemStatus {
+    public static final String CREATED = "created";
+    public static final String FAILED = "failed";
+}
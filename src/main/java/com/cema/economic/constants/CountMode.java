@@ -0,0 +1,12 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CountMode {
+    public static final String EXACT = "exact";
+    public static final String NONE = "none";
+    public static final String APPROXIMATE = "approximate";
+
+    public static final List<String> VALUES = Arrays.asList(EXACT, NONE, APPROXIMATE);
+}
@@ -0,0 +1,14 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ExportFormat {
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    public static final List<String> VALUES = Arrays.asList(CSV, NDJSON);
+}
@@ -0,0 +1,12 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class HistoryBucket {
+    public static final String DAY = "day";
+    public static final String WEEK = "week";
+    public static final String MONTH = "month";
+
+    public static final List<String> VALUES = Arrays.asList(DAY, WEEK, MONTH);
+}
@@ -0,0 +1,8 @@
+package com.cema.economic.constants;
+
+public class ImportJobStatus {
+    public static final String PENDING = "pending";
+    public static final String RUNNING = "running";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+}
@@ -0,0 +1,11 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ImportType {
+    public static final String SUPPLY_OPERATIONS = "supply-operations";
+    public static final String BOVINE_OPERATIONS = "bovine-operations";
+
+    public static final List<String> VALUES = Arrays.asList(SUPPLY_OPERATIONS, BOVINE_OPERATIONS);
+}
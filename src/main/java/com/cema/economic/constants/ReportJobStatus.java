@@ -0,0 +1,16 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ReportJobStatus {
+    public static final String PENDING = "pending";
+    public static final String RUNNING = "running";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+
+    /**
+     * The jobs that count against the limit of their establishment.
+     */
+    public static final List<String> IN_PROGRESS = Arrays.asList(PENDING, RUNNING);
+}
@@ -0,0 +1,30 @@
+package com.cema.economic.constants;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReportType {
+    public static final String SUPPLY_OPERATIONS = "supply-operations";
+    public static final String BOVINE_OPERATIONS = "bovine-operations";
+    public static final String CATEGORIES = "categories";
+
+    public static final String JSON_FORMAT = "json";
+
+    /**
+     * The formats every report type can be produced in, the first one is the default.
+     */
+    public static final Map<String, List<String>> FORMATS;
+
+    static {
+        Map<String, List<String>> formats = new HashMap<>();
+        formats.put(SUPPLY_OPERATIONS, ExportFormat.VALUES);
+        formats.put(BOVINE_OPERATIONS, ExportFormat.VALUES);
+        formats.put(CATEGORIES, Collections.singletonList(JSON_FORMAT));
+        FORMATS = Collections.unmodifiableMap(formats);
+    }
+
+    public static final List<String> VALUES = Arrays.asList(SUPPLY_OPERATIONS, BOVINE_OPERATIONS, CATEGORIES);
+}
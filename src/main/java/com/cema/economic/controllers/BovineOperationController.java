@@ -1,18 +1,33 @@
 package com.cema.economic.controllers;
 
+import com.cema.economic.constants.CountMode;
+import com.cema.economic.constants.ExportFormat;
 import com.cema.economic.constants.Messages;
-import com.cema.economic.constants.OperationType;
+import com.cema.economic.constants.ReportType;
+import com.cema.economic.domain.BovineBatchOperation;
+import com.cema.economic.domain.BovineHistory;
 import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.BovineOperationFilter;
 import com.cema.economic.domain.IncomeResponse;
+import com.cema.economic.domain.MonthlyIncome;
+import com.cema.economic.domain.OperationCursor;
+import com.cema.economic.domain.ReportJob;
 import com.cema.economic.entities.CemaBovineOperation;
 import com.cema.economic.exceptions.NotFoundException;
 import com.cema.economic.exceptions.UnauthorizedException;
+import com.cema.economic.exceptions.ValidationException;
 import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.specifications.OperationSpecifications;
 import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.batch.OperationBatchService;
+import com.cema.economic.services.bovine.BovineOperationService;
 import com.cema.economic.services.client.administration.AdministrationClientService;
 import com.cema.economic.services.client.bovine.BovineClientService;
 import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.count.CountService;
+import com.cema.economic.services.export.ExportService;
+import com.cema.economic.services.job.ReportJobService;
 import com.cema.economic.services.validation.OperationValidationService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -21,10 +36,13 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.ResponseHeader;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -38,8 +56,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -60,12 +83,22 @@ public class BovineOperationController {
     private final OperationValidationService<BovineOperation> bovineOperationValidationService;
     private final AdministrationClientService administrationClientService;
     private final UsersClientService usersClientService;
+    private final BovineOperationService bovineOperationService;
+    private final ExportService exportService;
+    private final ReportJobService reportJobService;
+    private final CountService countService;
+    private final OperationBatchService operationBatchService;
 
     public BovineOperationController(BovineOperationRepository bovineOperationRepository, Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping,
                                      AuthorizationService authorizationService, BovineClientService bovineClientService,
                                      OperationValidationService<BovineOperation> bovineOperationValidationService,
                                      AdministrationClientService administrationClientService,
-                                     UsersClientService usersClientService) {
+                                     UsersClientService usersClientService,
+                                     BovineOperationService bovineOperationService,
+                                     ExportService exportService,
+                                     ReportJobService reportJobService,
+                                     CountService countService,
+                                     OperationBatchService operationBatchService) {
         this.bovineOperationRepository = bovineOperationRepository;
         this.bovineOperationMapping = bovineOperationMapping;
         this.authorizationService = authorizationService;
@@ -73,6 +106,11 @@ public class BovineOperationController {
         this.bovineOperationValidationService = bovineOperationValidationService;
         this.administrationClientService = administrationClientService;
         this.usersClientService = usersClientService;
+        this.bovineOperationService = bovineOperationService;
+        this.exportService = exportService;
+        this.reportJobService = reportJobService;
+        this.countService = countService;
+        this.operationBatchService = operationBatchService;
     }
 
     @ApiOperation(value = "Register a new operation to the database")
@@ -103,13 +141,30 @@ public class BovineOperationController {
 
         CemaBovineOperation newOperation = bovineOperationMapping.mapDomainToEntity(bovineOperation);
 
-        newOperation = bovineOperationRepository.save(newOperation);
+        newOperation = bovineOperationService.saveBovineOperation(newOperation);
 
         BovineOperation updatedBovineOperation = bovineOperationMapping.mapEntityToDomain(newOperation);
 
         return new ResponseEntity<>(updatedBovineOperation, HttpStatus.CREATED);
     }
 
+    @ApiOperation(value = "Register the same operation for every bovine of a batch")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "One operation was created for each bovine"),
+            @ApiResponse(code = 422, message = "The batch, operator or establishment are not valid"),
+            @ApiResponse(code = 401, message = "You are not allowed to register this operation")
+    })
+    @PostMapping(value = BASE_URL + "batch", produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<BovineOperation>> registerBovineBatchOperation(
+            @ApiParam(
+                    value = "Batch operation data to be inserted, the amount is split between the bovines.")
+            @RequestBody @Valid BovineBatchOperation bovineBatchOperation) {
+
+        log.info("Request to register an operation for the batch {}", bovineBatchOperation.getBatchName());
+
+        return new ResponseEntity<>(operationBatchService.registerBovineBatchOperation(bovineBatchOperation), HttpStatus.CREATED);
+    }
+
     @ApiOperation(value = "Retrieve operation from cuig sent data", response = BovineOperation.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully found operation"),
@@ -139,6 +194,31 @@ public class BovineOperationController {
         return new ResponseEntity<>(bovineOperation, HttpStatus.OK);
     }
 
+    @ApiOperation(value = "Retrieve the operations and margin of a bovine", response = BovineHistory.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully found the bovine operations"),
+            @ApiResponse(code = 404, message = "The bovine has no operations")
+    })
+    @GetMapping(value = BASE_URL + "bovine/{tag}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BovineHistory> getBovineHistory(
+            @ApiParam(
+                    value = "The tag of the bovine.",
+                    example = "1234")
+            @PathVariable("tag") String tag,
+            @ApiParam(
+                    value = "The cuig of the establishment of the bovine. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig) {
+
+        log.info("Request for operations of bovine {}", tag);
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        return ResponseEntity.ok(bovineOperationService.getBovineHistory(cuig, tag));
+    }
+
     @ApiOperation(value = "Modifies an existent Operation")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Operation modified successfully"),
@@ -174,9 +254,7 @@ public class BovineOperationController {
 
         bovineOperation.setEstablishmentCuig(cuig);
 
-        cemaBovineOperation = bovineOperationMapping.updateDomainWithEntity(bovineOperation, cemaBovineOperation);
-
-        cemaBovineOperation = bovineOperationRepository.save(cemaBovineOperation);
+        cemaBovineOperation = bovineOperationService.updateBovineOperation(cemaBovineOperation, bovineOperation);
 
         BovineOperation updatedBovineOperation = bovineOperationMapping.mapEntityToDomain(cemaBovineOperation);
 
@@ -188,7 +266,9 @@ public class BovineOperationController {
             @ApiResponse(code = 200, message = "Listed all operations", responseHeaders = {
                     @ResponseHeader(name = "total-elements", response = String.class, description = "Total number of search results"),
                     @ResponseHeader(name = "total-pages", response = String.class, description = "Total number of pages to navigate"),
-                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed")
+                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed"),
+                    @ResponseHeader(name = "has-next", response = String.class, description = "Whether there is a page after this one"),
+                    @ResponseHeader(name = "next-cursor", response = String.class, description = "In cursor mode, the cursor of the next page. Missing on the last page")
             })
     })
     @GetMapping(value = BASE_URL + "list", produces = {MediaType.APPLICATION_JSON_VALUE})
@@ -200,57 +280,280 @@ public class BovineOperationController {
             @ApiParam(
                     value = "The maximum number of operation entries to return per page.",
                     example = "10")
-            @RequestParam(value = "size", required = false, defaultValue = "10") int size) {
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "How total-elements is filled. exact counts every row, none skips the count and approximate " +
+                            "uses maintained counters or the database statistics.",
+                    example = "exact")
+            @RequestParam(value = "count", required = false, defaultValue = "exact") String count,
+            @ApiParam(
+                    value = "Switches to cursor mode, page is ignored and no totals are counted. Empty for the first page, " +
+                            "then the next-cursor header of the previous page.",
+                    example = "MjAyMS0wMS0wMVQwMDowMDowMFpfYjAwMGJiYTQtMjI5ZS00YjU5LTg1NDgtMWMyNjUwOGU0NTlj")
+            @RequestParam(value = "cursor", required = false) String cursor) {
 
         String cuig = authorizationService.getCurrentUserCuig();
+        if (cursor != null) {
+            return listOperationsAfter(cuig, OperationCursor.decode(cursor), size);
+        }
+        String countMode = PageHeaders.countMode(count);
         Pageable paging = PageRequest.of(page, size, Sort.by("transactionDate").descending());
 
-        Page<CemaBovineOperation> cemaOperationPage;
+        Slice<BovineOperation> bovineOperationSlice;
         if (authorizationService.isAdmin()) {
-            cemaOperationPage = bovineOperationRepository.findAll(paging);
+            bovineOperationSlice = CountMode.EXACT.equals(countMode) ? bovineOperationRepository.findOperations(paging) : bovineOperationRepository.findOperationSlice(paging);
         } else {
-            cemaOperationPage = bovineOperationRepository.findAllByEstablishmentCuig(cuig, paging);
+            bovineOperationSlice = CountMode.EXACT.equals(countMode)
+                    ? bovineOperationRepository.findOperationsByEstablishmentCuig(cuig, paging)
+                    : bovineOperationRepository.findOperationSliceByEstablishmentCuig(cuig, paging);
+        }
+
+        String estimateCuig = authorizationService.isAdmin() ? null : cuig;
+        HttpHeaders responseHeaders = PageHeaders.of(bovineOperationSlice, countMode, () -> countService.estimateBovineOperations(estimateCuig));
+
+        List<BovineOperation> bovineOperations = bovineOperationSlice.getContent();
+
+        return ResponseEntity.ok().headers(responseHeaders).body(bovineOperations);
+    }
+
+    @ApiOperation(value = "Search operations by date range, type, bovine tag, operator and amount", response = BovineOperation.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The matching operations, newest first", responseHeaders = {
+                    @ResponseHeader(name = "next-cursor", response = String.class, description = "The cursor of the next page. Missing on the last page")
+            }),
+            @ApiResponse(code = 422, message = "Invalid filter, range or cursor")
+    })
+    @PostMapping(value = BASE_URL + "search", produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<BovineOperation>> searchBovineOperations(
+            @ApiParam(
+                    value = "The maximum number of operations to return.",
+                    example = "10")
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "Empty for the first page, then the next-cursor header of the previous page.",
+                    example = "MjAyMS0wMS0wMVQwMDowMDowMFpfYjAwMGJiYTQtMjI5ZS00YjU5LTg1NDgtMWMyNjUwOGU0NTlj")
+            @RequestParam(value = "cursor", required = false, defaultValue = "") String cursor,
+            @ApiParam(
+                    value = "The filters to apply, the ones left empty are ignored")
+            @Valid @RequestBody BovineOperationFilter filter) {
+
+        if (!authorizationService.isAdmin()) {
+            filter.setEstablishmentCuig(authorizationService.getCurrentUserCuig());
+        }
+        if (size < 1) {
+            throw new ValidationException("The size must be at least 1");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().before(filter.getTo())) {
+            throw new ValidationException("The from date must be before the to date");
         }
+        if (filter.getMinAmount() != null && filter.getMaxAmount() != null && filter.getMinAmount() > filter.getMaxAmount()) {
+            throw new ValidationException("The min amount can't be greater than the max amount");
+        }
+        log.info("Searching operations matching {}", filter);
+
+        Specification<CemaBovineOperation> specification = OperationSpecifications.matching(filter)
+                .and(OperationSpecifications.before(OperationCursor.decode(cursor)));
+        List<CemaBovineOperation> cemaBovineOperations = bovineOperationRepository.search(specification, size + 1);
 
-        List<CemaBovineOperation> cemaBovineOperations = cemaOperationPage.getContent();
         HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set("total-elements", String.valueOf(cemaOperationPage.getTotalElements()));
-        responseHeaders.set("total-pages", String.valueOf(cemaOperationPage.getTotalPages()));
-        responseHeaders.set("current-page", String.valueOf(cemaOperationPage.getNumber()));
+        if (cemaBovineOperations.size() > size) {
+            cemaBovineOperations = cemaBovineOperations.subList(0, size);
+            CemaBovineOperation last = cemaBovineOperations.get(size - 1);
+            responseHeaders.set("next-cursor", OperationCursor.after(last.getTransactionDate(), last.getId()).encode());
+        }
 
         List<BovineOperation> bovineOperations = cemaBovineOperations.stream().map(bovineOperationMapping::mapEntityToDomain).collect(Collectors.toList());
 
         return ResponseEntity.ok().headers(responseHeaders).body(bovineOperations);
     }
 
+    @ApiOperation(value = "Export every bovine operation of an establishment as CSV or NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The operations are streamed oldest first"),
+            @ApiResponse(code = 422, message = "Invalid range or format")
+    })
+    @GetMapping(value = BASE_URL + "export", produces = {ExportFormat.CSV_CONTENT_TYPE, ExportFormat.NDJSON_CONTENT_TYPE})
+    public ResponseEntity<StreamingResponseBody> exportBovineOperations(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every operation before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every operation after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(
+                    value = "The format of the export, one of csv or ndjson.",
+                    example = "csv")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format) {
+
+        log.info("Request to export bovine operations");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+        format = format.toLowerCase();
+
+        StreamingResponseBody body = exportService.exportBovineOperations(cuig, from, to, format);
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setContentType(MediaType.parseMediaType(exportService.getContentType(format)));
+        responseHeaders.setContentDisposition(ContentDisposition.attachment()
+                .filename(String.format("bovine-operations-%s.%s", cuig, format))
+                .build());
+        return ResponseEntity.ok().headers(responseHeaders).body(body);
+    }
+
+    @ApiOperation(value = "Export every operation of an establishment in the background, for ranges too large to stream")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "The export was queued, poll it at /reports/jobs/{id}"),
+            @ApiResponse(code = 422, message = "Invalid range or format"),
+            @ApiResponse(code = 429, message = "The establishment has too many reports in progress")
+    })
+    @PostMapping(value = BASE_URL + "export/jobs", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ReportJob> submitBovineOperationsExportJob(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every operation before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every operation after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(
+                    value = "The format of the export, one of csv or ndjson.",
+                    example = "csv")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format) {
+
+        log.info("Request to export bovine operations in the background");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        ReportJob reportJob = ReportJob.builder()
+                .reportType(ReportType.BOVINE_OPERATIONS)
+                .format(format)
+                .from(from != null ? toDate(from) : null)
+                .to(to != null ? toDate(to) : null)
+                .establishmentCuig(cuig)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submit(reportJob));
+    }
+
     @ApiOperation(value = "Retrieve the total for spending vs income", response = IncomeResponse.class)
-    @ApiResponse(code = 200, message = "Returned totals")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned totals"),
+            @ApiResponse(code = 422, message = "Invalid range")
+    })
     @GetMapping(value = BASE_URL + "total", produces = {MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<IncomeResponse> getTotal(
             @ApiParam(
                     value = "The cuig of the establishment of the operation. If the user is not admin will be ignored.",
                     example = "321")
-            @RequestParam(value = "cuig") String cuig) {
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first month to include. If empty every month before the last one is included.",
+                    example = "2021-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @ApiParam(
+                    value = "The last month to include. If empty every month after the first one is included.",
+                    example = "2021-12")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        IncomeResponse incomeResponse = bovineOperationService.getTotal(cuig, from, to);
+        return ResponseEntity.ok().body(incomeResponse);
+    }
+
+    @ApiOperation(value = "Retrieve the totals for spending vs income of every month", response = MonthlyIncome.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned monthly totals, months without operations are omitted"),
+            @ApiResponse(code = 422, message = "Invalid range")
+    })
+    @GetMapping(value = BASE_URL + "total/monthly", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<MonthlyIncome>> getMonthlyTotals(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operation. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first month to include. If empty every month before the last one is included.",
+                    example = "2021-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @ApiParam(
+                    value = "The last month to include. If empty every month after the first one is included.",
+                    example = "2021-12")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
 
         if (!authorizationService.isAdmin()) {
             cuig = authorizationService.getCurrentUserCuig();
         }
 
-        Long income = bovineOperationRepository.getSumForOperationType(cuig, OperationType.SELL);
-        Long spending = bovineOperationRepository.getSumForOperationType(cuig, OperationType.BUY);
+        return ResponseEntity.ok().body(bovineOperationService.getMonthlyTotals(cuig, from, to));
+    }
+
+    @ApiOperation(value = "Recalculate the monthly totals from the registered operations")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Monthly totals recalculated"),
+            @ApiResponse(code = 401, message = "You are not allowed to recalculate totals")
+    })
+    @PostMapping(value = BASE_URL + "total/rebuild", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Integer> rebuildTotals(
+            @ApiParam(
+                    value = "The cuig of the establishment to recalculate. If empty every establishment is recalculated.",
+                    example = "321")
+            @RequestParam(value = "cuig", required = false) String cuig) {
+
+        log.info("Request to rebuild bovine operation totals");
 
-        if (income == null) {
-            income = 0L;
+        if (!authorizationService.isAdmin()) {
+            throw new UnauthorizedException(String.format(Messages.ACTION_NOT_ALLOWED, authorizationService.getCurrentUserCuig()));
         }
-        if (spending == null) {
-            spending = 0L;
+
+        return ResponseEntity.ok(bovineOperationService.rebuildRollups(cuig));
+    }
+
+    /**
+     * Asks for one extra row to know whether there is a next page without counting.
+     */
+    private ResponseEntity<List<BovineOperation>> listOperationsAfter(String cuig, OperationCursor cursor, int size) {
+        if (size < 1) {
+            throw new ValidationException("The size must be at least 1");
         }
-        IncomeResponse incomeResponse = IncomeResponse.builder()
-                .income(income)
-                .spending(spending)
-                .total(income - spending)
-                .build();
-        return ResponseEntity.ok().body(incomeResponse);
+        String id = cursor.getId().toString();
+        List<CemaBovineOperation> cemaBovineOperations;
+        if (authorizationService.isAdmin()) {
+            cemaBovineOperations = bovineOperationRepository.findAllBefore(cursor.getTransactionDate(), id, size + 1);
+        } else {
+            cemaBovineOperations = bovineOperationRepository.findAllByEstablishmentCuigBefore(cuig, cursor.getTransactionDate(), id, size + 1);
+        }
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        if (cemaBovineOperations.size() > size) {
+            cemaBovineOperations = cemaBovineOperations.subList(0, size);
+            CemaBovineOperation last = cemaBovineOperations.get(size - 1);
+            responseHeaders.set("next-cursor", OperationCursor.after(last.getTransactionDate(), last.getId()).encode());
+        }
+
+        List<BovineOperation> bovineOperations = cemaBovineOperations.stream().map(bovineOperationMapping::mapEntityToDomain).collect(Collectors.toList());
+
+        return ResponseEntity.ok().headers(responseHeaders).body(bovineOperations);
     }
 
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
 }
@@ -1,10 +1,12 @@
 package com.cema.economic.controllers;
 
+import com.cema.economic.constants.CountMode;
 import com.cema.economic.domain.Category;
 import com.cema.economic.entities.CemaCategory;
 import com.cema.economic.exceptions.NotFoundException;
 import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.services.count.CountService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -12,9 +14,9 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.ResponseHeader;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -40,10 +42,13 @@ public class CategoryController {
 
     private final CategoryRepository categoryRepository;
     private final Mapping<CemaCategory, Category> categoryMapping;
+    private final CountService countService;
 
-    public CategoryController(CategoryRepository categoryRepository, Mapping<CemaCategory, Category> categoryMapping) {
+    public CategoryController(CategoryRepository categoryRepository, Mapping<CemaCategory, Category> categoryMapping,
+                              CountService countService) {
         this.categoryRepository = categoryRepository;
         this.categoryMapping = categoryMapping;
+        this.countService = countService;
     }
 
     @ApiOperation(value = "Retrieve category", response = Category.class)
@@ -76,7 +81,8 @@ public class CategoryController {
             @ApiResponse(code = 200, message = "Listed all categories", responseHeaders = {
                     @ResponseHeader(name = "total-elements", response = String.class, description = "Total number of search results"),
                     @ResponseHeader(name = "total-pages", response = String.class, description = "Total number of pages to navigate"),
-                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed")
+                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed"),
+                    @ResponseHeader(name = "has-next", response = String.class, description = "Whether there is a page after this one")
             })
     })
     @GetMapping(value = BASE_URL + "list", produces = {MediaType.APPLICATION_JSON_VALUE})
@@ -88,17 +94,22 @@ public class CategoryController {
             @ApiParam(
                     value = "The maximum number of categories to return per page.",
                     example = "10")
-            @RequestParam(value = "size", required = false, defaultValue = "10") int size) {
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "How total-elements is filled. exact counts every row, none skips the count and approximate " +
+                            "uses maintained counters or the database statistics.",
+                    example = "exact")
+            @RequestParam(value = "count", required = false, defaultValue = "exact") String count) {
 
+        String countMode = PageHeaders.countMode(count);
         Pageable paging = PageRequest.of(page, size);
 
-        Page<CemaCategory> cemaCategoryPage = categoryRepository.findAll(paging);
+        Slice<CemaCategory> cemaCategorySlice = CountMode.EXACT.equals(countMode)
+                ? categoryRepository.findAll(paging)
+                : categoryRepository.findSliceBy(paging);
 
-        List<CemaCategory> cemaCategories = cemaCategoryPage.getContent();
-        HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set("total-elements", String.valueOf(cemaCategoryPage.getTotalElements()));
-        responseHeaders.set("total-pages", String.valueOf(cemaCategoryPage.getTotalPages()));
-        responseHeaders.set("current-page", String.valueOf(cemaCategoryPage.getNumber()));
+        List<CemaCategory> cemaCategories = cemaCategorySlice.getContent();
+        HttpHeaders responseHeaders = PageHeaders.of(cemaCategorySlice, countMode, countService::estimateCategories);
 
         List<Category> categories = cemaCategories.stream().map(categoryMapping::mapEntityToDomain).collect(Collectors.toList());
 
@@ -0,0 +1,122 @@
+package com.cema.economic.controllers;
+
+import com.cema.economic.constants.ExportFormat;
+import com.cema.economic.constants.Messages;
+import com.cema.economic.domain.ImportJob;
+import com.cema.economic.exceptions.UnauthorizedException;
+import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.imports.ImportJobService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1")
+@Api(produces = "application/json", value = "Allows importing historical operations from csv files. V1")
+@Validated
+@Slf4j
+public class ImportController {
+
+    private static final String BASE_URL = "/imports/";
+
+    private final AuthorizationService authorizationService;
+    private final ImportJobService importJobService;
+
+    public ImportController(AuthorizationService authorizationService, ImportJobService importJobService) {
+        this.authorizationService = authorizationService;
+        this.importJobService = importJobService;
+    }
+
+    @ApiOperation(value = "Create an import, the file is sent to it afterwards")
+    @ApiResponses(value = {
+            @ApiResponse(code = 201, message = "The import was created, send the file to it"),
+            @ApiResponse(code = 401, message = "You are not allowed to import operations for this establishment"),
+            @ApiResponse(code = 422, message = "Invalid import type")
+    })
+    @PostMapping(value = BASE_URL, produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportJob> createImport(
+            @ApiParam(
+                    value = "The operations to import and the establishment they belong to.")
+            @RequestBody @Valid ImportJob importJob) {
+
+        log.info("Request to create an import");
+
+        String cuig = importJob.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            throw new UnauthorizedException(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+
+        return new ResponseEntity<>(importJobService.create(importJob), HttpStatus.CREATED);
+    }
+
+    @ApiOperation(value = "Send the csv of an import, the rows are stored while the file is uploaded")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The file was read, the result says how many rows were imported"),
+            @ApiResponse(code = 401, message = "You are not allowed to import operations for this establishment"),
+            @ApiResponse(code = 404, message = "The import does not exist"),
+            @ApiResponse(code = 422, message = "The import already received a file")
+    })
+    @PutMapping(value = BASE_URL + "{id}/content", produces = {MediaType.APPLICATION_JSON_VALUE},
+            consumes = {ExportFormat.CSV_CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ImportJob> uploadImportContent(
+            @ApiParam(
+                    value = "The id of the import.",
+                    example = "b000bba4-229e-4b59-8548-1c26508e459c")
+            @PathVariable("id") UUID id,
+            @ApiParam(
+                    value = "The csv, with the columns of the export. It is sent as the body and not as a multipart " +
+                            "form so it can be read as it arrives.")
+                    InputStream inputStream) {
+
+        log.info("Request to upload the content of import {}", id);
+
+        findJob(id);
+
+        return ResponseEntity.ok(importJobService.importOperations(id, inputStream));
+    }
+
+    @ApiOperation(value = "Retrieve the progress of an import")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned the import"),
+            @ApiResponse(code = 401, message = "You are not allowed to see this import"),
+            @ApiResponse(code = 404, message = "The import does not exist")
+    })
+    @GetMapping(value = BASE_URL + "{id}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportJob> getImport(
+            @ApiParam(
+                    value = "The id of the import.",
+                    example = "b000bba4-229e-4b59-8548-1c26508e459c")
+            @PathVariable("id") UUID id) {
+
+        log.info("Request for import {}", id);
+
+        return ResponseEntity.ok(findJob(id));
+    }
+
+    private ImportJob findJob(UUID id) {
+        ImportJob importJob = importJobService.getJob(id);
+        String cuig = importJob.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            throw new UnauthorizedException(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+        return importJob;
+    }
+}
@@ -0,0 +1,45 @@
+package com.cema.economic.controllers;
+
+import com.cema.economic.constants.CountMode;
+import com.cema.economic.exceptions.ValidationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Fills the paging headers of the list endpoints. Only an exact count needs a Page, the other modes read a Slice,
+ * which fetches one extra row to know whether there is a next page and never counts.
+ */
+final class PageHeaders {
+
+    private PageHeaders() {
+    }
+
+    static String countMode(String count) {
+        String countMode = count.toLowerCase();
+        if (!CountMode.VALUES.contains(countMode)) {
+            throw new ValidationException(String.format("The count %s is not one of %s", count, CountMode.VALUES));
+        }
+        return countMode;
+    }
+
+    static HttpHeaders of(Slice<?> slice, String countMode, LongSupplier estimate) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("current-page", String.valueOf(slice.getNumber()));
+        responseHeaders.set("has-next", String.valueOf(slice.hasNext()));
+        if (slice instanceof Page) {
+            Page<?> page = (Page<?>) slice;
+            responseHeaders.set("total-elements", String.valueOf(page.getTotalElements()));
+            responseHeaders.set("total-pages", String.valueOf(page.getTotalPages()));
+        } else if (CountMode.APPROXIMATE.equals(countMode)) {
+            // The estimate can lag behind, never report fewer elements than the pages already seen
+            long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+            long totalElements = Math.max(estimate.getAsLong(), seen);
+            responseHeaders.set("total-elements", String.valueOf(totalElements));
+            responseHeaders.set("total-pages", String.valueOf((totalElements + slice.getSize() - 1) / slice.getSize()));
+        }
+        return responseHeaders;
+    }
+}
@@ -0,0 +1,188 @@
+package com.cema.economic.controllers;
+
+import com.cema.economic.constants.Messages;
+import com.cema.economic.domain.BovineMarginReport;
+import com.cema.economic.domain.CategoryReport;
+import com.cema.economic.domain.ReportJob;
+import com.cema.economic.exceptions.UnauthorizedException;
+import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.job.ReportJobService;
+import com.cema.economic.services.report.ReportService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1")
+@Api(produces = "application/json", value = "Allows retrieving aggregated economic reports. V1")
+@Validated
+@Slf4j
+public class ReportController {
+
+    private static final String BASE_URL = "/reports/";
+
+    private final AuthorizationService authorizationService;
+    private final ReportService reportService;
+    private final ReportJobService reportJobService;
+
+    public ReportController(AuthorizationService authorizationService, ReportService reportService,
+                            ReportJobService reportJobService) {
+        this.authorizationService = authorizationService;
+        this.reportService = reportService;
+        this.reportJobService = reportJobService;
+    }
+
+    @ApiOperation(value = "Retrieve the spending, consumption and losses of supplies per category")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned the totals of every category with operations in the range"),
+            @ApiResponse(code = 422, message = "Invalid range")
+    })
+    @GetMapping(value = BASE_URL + "categories", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<CategoryReport>> getCategoryReport(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every operation before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every operation after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        log.info("Request for category report");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        return ResponseEntity.ok(reportService.getCategoryReport(cuig, from, to));
+    }
+
+    @ApiOperation(value = "Retrieve the bovines with the highest and lowest margin")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned the bovines with the highest and lowest margin"),
+            @ApiResponse(code = 422, message = "Invalid limit")
+    })
+    @GetMapping(value = BASE_URL + "bovine-margins", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BovineMarginReport> getBovineMarginReport(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The number of bovines to return in each list.",
+                    example = "10")
+            @RequestParam(value = "limit", required = false, defaultValue = "10") int limit) {
+
+        log.info("Request for bovine margin report");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        return ResponseEntity.ok(reportService.getBovineMarginReport(cuig, limit));
+    }
+
+    @ApiOperation(value = "Request a report to be produced in the background")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "The report was queued, poll the job until it is done"),
+            @ApiResponse(code = 401, message = "You are not allowed to request reports for this establishment"),
+            @ApiResponse(code = 422, message = "Invalid report, format or range"),
+            @ApiResponse(code = 429, message = "The establishment has too many reports in progress")
+    })
+    @PostMapping(value = BASE_URL + "jobs", produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ReportJob> submitReportJob(
+            @ApiParam(
+                    value = "The report to produce.")
+            @RequestBody @Valid ReportJob reportJob) {
+
+        log.info("Request for report job");
+
+        String cuig = reportJob.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            throw new UnauthorizedException(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submit(reportJob));
+    }
+
+    @ApiOperation(value = "Retrieve the state of a report job")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned the job"),
+            @ApiResponse(code = 401, message = "You are not allowed to see this job"),
+            @ApiResponse(code = 404, message = "The job does not exist or already expired")
+    })
+    @GetMapping(value = BASE_URL + "jobs/{id}", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ReportJob> getReportJob(
+            @ApiParam(
+                    value = "The id of the job.",
+                    example = "b000bba4-229e-4b59-8548-1c26508e459c")
+            @PathVariable("id") UUID id) {
+
+        log.info("Request for report job {}", id);
+
+        return ResponseEntity.ok(findJob(id));
+    }
+
+    @ApiOperation(value = "Download the result of a finished report job")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The result is streamed"),
+            @ApiResponse(code = 401, message = "You are not allowed to see this job"),
+            @ApiResponse(code = 404, message = "The job or its result does not exist or already expired"),
+            @ApiResponse(code = 422, message = "The job is not done")
+    })
+    @GetMapping(value = BASE_URL + "jobs/{id}/result")
+    public ResponseEntity<StreamingResponseBody> getReportJobResult(
+            @ApiParam(
+                    value = "The id of the job.",
+                    example = "b000bba4-229e-4b59-8548-1c26508e459c")
+            @PathVariable("id") UUID id) {
+
+        log.info("Request for result of report job {}", id);
+
+        ReportJob reportJob = findJob(id);
+        StreamingResponseBody body = reportJobService.getResult(id);
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setContentType(MediaType.parseMediaType(reportJobService.getContentType(reportJob.getFormat())));
+        responseHeaders.setContentDisposition(ContentDisposition.attachment()
+                .filename(String.format("%s-%s.%s", reportJob.getReportType(), reportJob.getEstablishmentCuig(), reportJob.getFormat()))
+                .build());
+        return ResponseEntity.ok().headers(responseHeaders).body(body);
+    }
+
+    private ReportJob findJob(UUID id) {
+        ReportJob reportJob = reportJobService.getJob(id);
+        String cuig = reportJob.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            throw new UnauthorizedException(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+        return reportJob;
+    }
+}
@@ -1,5 +1,6 @@
 package com.cema.economic.controllers;
 
+import com.cema.economic.constants.CountMode;
 import com.cema.economic.constants.Messages;
 import com.cema.economic.domain.Supply;
 import com.cema.economic.entities.CemaSupply;
@@ -11,7 +12,9 @@ import com.cema.economic.exceptions.ValidationException;
 import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.SupplyRepository;
 import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.cache.SupplyNameIndex;
 import com.cema.economic.services.client.administration.AdministrationClientService;
+import com.cema.economic.services.count.CountService;
 import com.cema.economic.services.database.DatabaseService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -23,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -58,16 +62,56 @@ public class SupplyController {
     private final AuthorizationService authorizationService;
     private final AdministrationClientService administrationClientService;
     private final DatabaseService databaseService;
+    private final CountService countService;
+    private final SupplyNameIndex supplyNameIndex;
 
     public SupplyController(SupplyRepository supplyRepository, Mapping<CemaSupply, Supply> supplyMapping,
                             AuthorizationService authorizationService,
                             AdministrationClientService administrationClientService,
-                            DatabaseService databaseService) {
+                            DatabaseService databaseService,
+                            CountService countService,
+                            SupplyNameIndex supplyNameIndex) {
         this.supplyRepository = supplyRepository;
         this.supplyMapping = supplyMapping;
         this.authorizationService = authorizationService;
         this.administrationClientService = administrationClientService;
         this.databaseService = databaseService;
+        this.countService = countService;
+        this.supplyNameIndex = supplyNameIndex;
+    }
+
+    @ApiOperation(value = "Suggest the names of your supplies starting with a prefix, ignoring case")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The matching names in alphabetical order"),
+            @ApiResponse(code = 422, message = "Invalid limit")
+    })
+    @GetMapping(value = BASE_URL + "suggest", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<String>> suggestSupplyNames(
+            @ApiParam(
+                    value = "What the user typed so far, empty lists every name.",
+                    example = "he")
+            @RequestParam(value = "prefix", required = false, defaultValue = "") String prefix,
+            @ApiParam(
+                    value = "The maximum number of names to return, up to 50.",
+                    example = "10")
+            @RequestParam(value = "limit", required = false, defaultValue = "10") int limit,
+            @ApiParam(
+                    value = "The cuig of the establishment of the supplies. If the user is not admin will be ignored.",
+                    example = "312")
+            @RequestParam(value = "cuig", required = false) String cuig) {
+
+        if (!authorizationService.isAdmin() || !StringUtils.hasLength(cuig)) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+        if (limit < 1 || limit > 50) {
+            throw new ValidationException("The limit must be between 1 and 50");
+        }
+        String establishmentCuig = cuig;
+
+        List<String> names = supplyNameIndex.suggest(establishmentCuig, prefix.trim(), limit,
+                () -> supplyRepository.findAllAvailableSupplies(establishmentCuig));
+
+        return ResponseEntity.ok(names);
     }
 
     @ApiOperation(value = "Validate supply from name sent data", response = Supply.class)
@@ -130,6 +174,7 @@ public class SupplyController {
         CemaSupply newSupply = supplyMapping.mapDomainToEntity(supply);
 
         newSupply = databaseService.saveCemaSupply(newSupply, supply.getCategoryName());
+        supplyNameIndex.add(cuig, newSupply.getName());
 
         Supply updatedSupply = supplyMapping.mapEntityToDomain(newSupply);
 
@@ -201,10 +246,13 @@ public class SupplyController {
         }
 
         supply.setEstablishmentCuig(cuig);
+        String previousName = cemaSupply.getName();
 
-        cemaSupply = supplyMapping.updateDomainWithEntity(supply, cemaSupply);
-
-        cemaSupply = supplyRepository.save(cemaSupply);
+        cemaSupply = databaseService.updateCemaSupply(cemaSupply, supply);
+        if (!previousName.equals(cemaSupply.getName())) {
+            supplyNameIndex.remove(cuig, previousName);
+            supplyNameIndex.add(cuig, cemaSupply.getName());
+        }
 
         Supply updatedSupply = supplyMapping.mapEntityToDomain(cemaSupply);
 
@@ -238,7 +286,8 @@ public class SupplyController {
                 throw new ValidationException(String.format("Supply %s cannot be deleted because it has operations associated", name));
             }
             log.info("Supply exists, deleting");
-            supplyRepository.delete(cemaSupply);
+            databaseService.deleteCemaSupply(cemaSupply);
+            supplyNameIndex.remove(cuig, cemaSupply.getName());
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
         log.info("Not found");
@@ -250,7 +299,8 @@ public class SupplyController {
             @ApiResponse(code = 200, message = "Listed all supplys", responseHeaders = {
                     @ResponseHeader(name = "total-elements", response = String.class, description = "Total number of search results"),
                     @ResponseHeader(name = "total-pages", response = String.class, description = "Total number of pages to navigate"),
-                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed")
+                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed"),
+                    @ResponseHeader(name = "has-next", response = String.class, description = "Whether there is a page after this one")
             })
     })
     @GetMapping(value = BASE_URL + "list", produces = {MediaType.APPLICATION_JSON_VALUE})
@@ -262,30 +312,35 @@ public class SupplyController {
             @ApiParam(
                     value = "The maximum number of supply entries to return per page.",
                     example = "10")
-            @RequestParam(value = "size", required = false, defaultValue = "10") int size) {
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "How total-elements is filled. exact counts every row, none skips the count and approximate " +
+                            "uses maintained counters or the database statistics.",
+                    example = "exact")
+            @RequestParam(value = "count", required = false, defaultValue = "exact") String count) {
 
         String cuig = authorizationService.getCurrentUserCuig();
+        String countMode = PageHeaders.countMode(count);
         Pageable paging = PageRequest.of(page, size);
 
-        Page<CemaSupply> cemaSupplyPage;
+        Slice<Supply> supplySlice;
         if (authorizationService.isAdmin()) {
-            cemaSupplyPage = supplyRepository.findAll(paging);
+            supplySlice = CountMode.EXACT.equals(countMode) ? supplyRepository.findSupplies(paging) : supplyRepository.findSupplySlice(paging);
         } else {
-            cemaSupplyPage = supplyRepository.findAllByEstablishmentCuig(cuig, paging);
+            supplySlice = CountMode.EXACT.equals(countMode)
+                    ? supplyRepository.findSuppliesByEstablishmentCuig(cuig, paging)
+                    : supplyRepository.findSupplySliceByEstablishmentCuig(cuig, paging);
         }
 
-        List<CemaSupply> cemaSupplies = cemaSupplyPage.getContent();
-        HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set("total-elements", String.valueOf(cemaSupplyPage.getTotalElements()));
-        responseHeaders.set("total-pages", String.valueOf(cemaSupplyPage.getTotalPages()));
-        responseHeaders.set("current-page", String.valueOf(cemaSupplyPage.getNumber()));
+        String estimateCuig = authorizationService.isAdmin() ? null : cuig;
+        HttpHeaders responseHeaders = PageHeaders.of(supplySlice, countMode, () -> countService.estimateSupplies(estimateCuig));
 
-        List<Supply> supplies = cemaSupplies.stream().map(supplyMapping::mapEntityToDomain).collect(Collectors.toList());
+        List<Supply> supplies = supplySlice.getContent();
 
         return ResponseEntity.ok().headers(responseHeaders).body(supplies);
     }
 
-    @ApiOperation(value = "Retrieve a list of supplies matching the sent data", response = Supply.class)
+    @ApiOperation(value = "Retrieve a list of supplies matching the sent data, the ones whose name is closest to the searched name first", response = Supply.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully found supplies", responseHeaders = {
                     @ResponseHeader(name = "total-elements", response = String.class, description = "Total number of search results"),
@@ -1,21 +1,36 @@
 package com.cema.economic.controllers;
 
+import com.cema.economic.constants.CountMode;
+import com.cema.economic.constants.ExportFormat;
 import com.cema.economic.constants.Messages;
-import com.cema.economic.constants.OperationType;
+import com.cema.economic.constants.ReportType;
 import com.cema.economic.domain.AvailableSupply;
-import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.BatchItemResult;
+import com.cema.economic.domain.OperationCursor;
+import com.cema.economic.domain.ReportJob;
+import com.cema.economic.domain.SupplyOperationFilter;
+import com.cema.economic.domain.SupplyStockPoint;
 import com.cema.economic.domain.SupplyOperation;
 import com.cema.economic.entities.CemaSupply;
 import com.cema.economic.entities.CemaSupplyOperation;
 import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.exceptions.ValidationException;
 import com.cema.economic.exceptions.UnauthorizedException;
 import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.SupplyOperationRepository;
 import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.repositories.specifications.OperationSpecifications;
 import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import com.cema.economic.services.balance.SupplyHistoryService;
+import com.cema.economic.services.batch.OperationBatchService;
 import com.cema.economic.services.client.administration.AdministrationClientService;
 import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.count.CountService;
 import com.cema.economic.services.database.DatabaseService;
+import com.cema.economic.services.export.ExportService;
+import com.cema.economic.services.job.ReportJobService;
 import com.cema.economic.services.validation.OperationValidationService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -24,10 +39,13 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import io.swagger.annotations.ResponseHeader;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -42,9 +60,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -66,6 +88,13 @@ public class SupplyOperationController {
     private final UsersClientService usersClientService;
     private final DatabaseService databaseService;
     private final SupplyRepository supplyRepository;
+    private final SupplyBalanceService supplyBalanceService;
+    private final SupplyCheckpointService supplyCheckpointService;
+    private final SupplyHistoryService supplyHistoryService;
+    private final ExportService exportService;
+    private final ReportJobService reportJobService;
+    private final CountService countService;
+    private final OperationBatchService operationBatchService;
 
     public SupplyOperationController(SupplyOperationRepository supplyOperationRepository,
                                      Mapping<CemaSupplyOperation, SupplyOperation> supplyOperationMapping,
@@ -74,7 +103,14 @@ public class SupplyOperationController {
                                      AdministrationClientService administrationClientService,
                                      UsersClientService usersClientService,
                                      DatabaseService databaseService,
-                                     SupplyRepository supplyRepository) {
+                                     SupplyRepository supplyRepository,
+                                     SupplyBalanceService supplyBalanceService,
+                                     SupplyCheckpointService supplyCheckpointService,
+                                     SupplyHistoryService supplyHistoryService,
+                                     ExportService exportService,
+                                     ReportJobService reportJobService,
+                                     CountService countService,
+                                     OperationBatchService operationBatchService) {
         this.supplyOperationRepository = supplyOperationRepository;
         this.supplyOperationMapping = supplyOperationMapping;
         this.authorizationService = authorizationService;
@@ -83,6 +119,13 @@ public class SupplyOperationController {
         this.usersClientService = usersClientService;
         this.databaseService = databaseService;
         this.supplyRepository = supplyRepository;
+        this.supplyBalanceService = supplyBalanceService;
+        this.supplyCheckpointService = supplyCheckpointService;
+        this.supplyHistoryService = supplyHistoryService;
+        this.exportService = exportService;
+        this.reportJobService = reportJobService;
+        this.countService = countService;
+        this.operationBatchService = operationBatchService;
     }
 
     @ApiOperation(value = "Retrieve availability for a supply")
@@ -99,7 +142,11 @@ public class SupplyOperationController {
             @ApiParam(
                     value = "The cuig of the establishment of the operation. If the user is not admin will be ignored.",
                     example = "321")
-            @RequestParam(value = "cuig") String cuig) {
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The day to calculate the availability for, at the end of it. If empty the current availability is returned.",
+                    example = "2021-02-12")
+            @RequestParam(value = "asOf", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
 
         log.info("Request for availability of supply  {}", name);
 
@@ -112,17 +159,93 @@ public class SupplyOperationController {
             throw new NotFoundException(String.format("Supply %s not found", name));
         }
 
-        long available = databaseService.getAvailableSupplyByName(name, cuig);
+        long available;
+        if (asOf == null) {
+            available = databaseService.getAvailableSupplyByName(name, cuig);
+        } else {
+            available = supplyCheckpointService.getAvailableAsOf(cemaSupply, asOf);
+        }
 
         AvailableSupply availableSupply = AvailableSupply.builder()
                 .available(available)
                 .supplyName(name)
                 .units(cemaSupply.getUnits())
+                .minimumStock(cemaSupply.getMinimumStock())
                 .build();
 
         return ResponseEntity.ok(availableSupply);
     }
 
+    @ApiOperation(value = "Retrieve the availability history for a supply")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully calculated the history for supply"),
+            @ApiResponse(code = 404, message = "Supply not found"),
+            @ApiResponse(code = 422, message = "Invalid range or bucket")
+    })
+    @GetMapping(value = BASE_URL + "available/{name}/history", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<SupplyStockPoint>> getAvailableSupplyHistory(
+            @ApiParam(
+                    value = "The name of the supply.",
+                    example = "Maiz")
+            @PathVariable("name") String name,
+            @ApiParam(
+                    value = "The cuig of the establishment of the operation. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day of the history. If empty a year before the last day is used.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day of the history. If empty today is used.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(
+                    value = "The size of each period, one of day, week or month.",
+                    example = "month")
+            @RequestParam(value = "bucket", required = false, defaultValue = "month") String bucket) {
+
+        log.info("Request for availability history of supply {}", name);
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        CemaSupply cemaSupply = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase(name, cuig);
+        if (cemaSupply == null) {
+            throw new NotFoundException(String.format("Supply %s not found", name));
+        }
+
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusYears(1);
+        }
+
+        return ResponseEntity.ok(supplyHistoryService.getStockHistory(cemaSupply, from, to, bucket.toLowerCase()));
+    }
+
+    @ApiOperation(value = "Retrieve the supplies below their minimum stock")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Found supplies below their minimum stock")
+    })
+    @GetMapping(value = BASE_URL + "low-stock", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<AvailableSupply>> getSuppliesBelowMinimum(
+            @ApiParam(
+                    value = "The cuig of the establishment of the supplies. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig) {
+
+        log.info("Request for supplies below minimum stock");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        return ResponseEntity.ok(supplyBalanceService.getBelowMinimum(cuig));
+    }
+
     @ApiOperation(value = "Retrieve availability for all supplies")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Found supplies to report"),
@@ -141,27 +264,35 @@ public class SupplyOperationController {
             cuig = authorizationService.getCurrentUserCuig();
         }
 
-        List<String> allSupplies = supplyRepository.findAllAvailableSupplies(cuig);
+        List<AvailableSupply> availableSupplies = supplyRepository.findAllAvailableSupplyTotals(cuig);
 
-        if (CollectionUtils.isEmpty(allSupplies)) {
+        if (CollectionUtils.isEmpty(availableSupplies)) {
             throw new NotFoundException(String.format("This establishment %s has no supplies loaded", cuig));
         }
+        return ResponseEntity.ok(availableSupplies);
+    }
 
-        List<AvailableSupply> availableSupplies = new ArrayList<>();
-
-        for (String supplyName : allSupplies) {
-            CemaSupply cemaSupply = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase(supplyName, cuig);
-            long available = databaseService.getAvailableSupplyByName(supplyName, cuig);
-            if (cemaSupply != null) {
-                AvailableSupply availableSupply = AvailableSupply.builder()
-                        .units(cemaSupply.getUnits())
-                        .available(available)
-                        .supplyName(supplyName)
-                        .build();
-                availableSupplies.add(availableSupply);
-            }
+    @ApiOperation(value = "Recalculate the supply availability from the registered operations")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returns the number of supplies recalculated"),
+            @ApiResponse(code = 401, message = "You are not allowed to recalculate availability")
+    })
+    @PostMapping(value = BASE_URL + "available/rebuild", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Integer> rebuildAvailableSupplies(
+            @ApiParam(
+                    value = "The cuig of the establishment to recalculate. If empty all establishments are recalculated.",
+                    example = "321")
+            @RequestParam(value = "cuig", required = false) String cuig) {
+
+        log.info("Request to rebuild availability of supplies for {}", cuig);
+
+        if (!authorizationService.isAdmin()) {
+            throw new UnauthorizedException(String.format(Messages.ACTION_NOT_ALLOWED, authorizationService.getCurrentUserCuig()));
         }
-        return ResponseEntity.ok(availableSupplies);
+
+        int rebuilt = supplyBalanceService.rebuildBalances(cuig);
+
+        return ResponseEntity.ok(rebuilt);
     }
 
     @ApiOperation(value = "Register a new supply operation to the database")
@@ -195,6 +326,20 @@ public class SupplyOperationController {
         return new ResponseEntity<>(updatedSupplyOperation, HttpStatus.CREATED);
     }
 
+    @ApiOperation(value = "Register many operations at once, each one is checked and stored on its own")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The result of every operation, in the order they were sent"),
+            @ApiResponse(code = 422, message = "The batch is empty or too large")
+    })
+    @PostMapping(value = BASE_URL + "batch", produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<BatchItemResult<SupplyOperation>>> registerSupplyOperations(
+            @ApiParam(
+                    value = "The operations to be inserted, the ones that fail don't prevent the others from being stored.")
+            @RequestBody List<SupplyOperation> supplyOperations) {
+
+        return ResponseEntity.ok(operationBatchService.registerSupplyOperations(supplyOperations));
+    }
+
     @ApiOperation(value = "Retrieve supply operation from cuig sent data", response = SupplyOperation.class)
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully found operation"),
@@ -260,9 +405,7 @@ public class SupplyOperationController {
 
         supplyOperation.setEstablishmentCuig(cuig);
 
-        cemaSupplyOperation = supplyOperationMapping.updateDomainWithEntity(supplyOperation, cemaSupplyOperation);
-
-        cemaSupplyOperation = supplyOperationRepository.save(cemaSupplyOperation);
+        cemaSupplyOperation = databaseService.updateSupplyOperation(cemaSupplyOperation, supplyOperation);
 
         SupplyOperation updatedSupplyOperation = supplyOperationMapping.mapEntityToDomain(cemaSupplyOperation);
 
@@ -274,7 +417,9 @@ public class SupplyOperationController {
             @ApiResponse(code = 200, message = "Listed all operations", responseHeaders = {
                     @ResponseHeader(name = "total-elements", response = String.class, description = "Total number of search results"),
                     @ResponseHeader(name = "total-pages", response = String.class, description = "Total number of pages to navigate"),
-                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed")
+                    @ResponseHeader(name = "current-page", response = String.class, description = "The page being returned, zero indexed"),
+                    @ResponseHeader(name = "has-next", response = String.class, description = "Whether there is a page after this one"),
+                    @ResponseHeader(name = "next-cursor", response = String.class, description = "In cursor mode, the cursor of the next page. Missing on the last page")
             })
     })
     @GetMapping(value = BASE_URL + "list", produces = {MediaType.APPLICATION_JSON_VALUE})
@@ -286,45 +431,242 @@ public class SupplyOperationController {
             @ApiParam(
                     value = "The maximum number of supply operation entries to return per page.",
                     example = "10")
-            @RequestParam(value = "size", required = false, defaultValue = "10") int size) {
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "How total-elements is filled. exact counts every row, none skips the count and approximate " +
+                            "uses maintained counters or the database statistics.",
+                    example = "exact")
+            @RequestParam(value = "count", required = false, defaultValue = "exact") String count,
+            @ApiParam(
+                    value = "Switches to cursor mode, page is ignored and no totals are counted. Empty for the first page, " +
+                            "then the next-cursor header of the previous page.",
+                    example = "MjAyMS0wMS0wMVQwMDowMDowMFpfYjAwMGJiYTQtMjI5ZS00YjU5LTg1NDgtMWMyNjUwOGU0NTlj")
+            @RequestParam(value = "cursor", required = false) String cursor) {
 
         String cuig = authorizationService.getCurrentUserCuig();
+        if (cursor != null) {
+            return listOperationsAfter(cuig, OperationCursor.decode(cursor), size);
+        }
+        String countMode = PageHeaders.countMode(count);
         Pageable paging = PageRequest.of(page, size, Sort.by("transactionDate").descending());
 
-        Page<CemaSupplyOperation> cemaOperationPage;
+        Slice<SupplyOperation> supplyOperationSlice;
         if (authorizationService.isAdmin()) {
-            cemaOperationPage = supplyOperationRepository.findAll(paging);
+            supplyOperationSlice = CountMode.EXACT.equals(countMode) ? supplyOperationRepository.findOperations(paging) : supplyOperationRepository.findOperationSlice(paging);
         } else {
-            cemaOperationPage = supplyOperationRepository.findAllByEstablishmentCuig(cuig, paging);
+            supplyOperationSlice = CountMode.EXACT.equals(countMode)
+                    ? supplyOperationRepository.findOperationsByEstablishmentCuig(cuig, paging)
+                    : supplyOperationRepository.findOperationSliceByEstablishmentCuig(cuig, paging);
+        }
+
+        String estimateCuig = authorizationService.isAdmin() ? null : cuig;
+        HttpHeaders responseHeaders = PageHeaders.of(supplyOperationSlice, countMode, () -> countService.estimateSupplyOperations(estimateCuig));
+
+        List<SupplyOperation> supplyOperations = supplyOperationSlice.getContent();
+
+        return ResponseEntity.ok().headers(responseHeaders).body(supplyOperations);
+    }
+
+    @ApiOperation(value = "Search operations by date range, type, supply, operator and amount", response = SupplyOperation.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The matching operations, newest first", responseHeaders = {
+                    @ResponseHeader(name = "next-cursor", response = String.class, description = "The cursor of the next page. Missing on the last page")
+            }),
+            @ApiResponse(code = 422, message = "Invalid filter, range or cursor")
+    })
+    @PostMapping(value = BASE_URL + "search", produces = {MediaType.APPLICATION_JSON_VALUE}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<SupplyOperation>> searchSupplyOperations(
+            @ApiParam(
+                    value = "The maximum number of operations to return.",
+                    example = "10")
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size,
+            @ApiParam(
+                    value = "Empty for the first page, then the next-cursor header of the previous page.",
+                    example = "MjAyMS0wMS0wMVQwMDowMDowMFpfYjAwMGJiYTQtMjI5ZS00YjU5LTg1NDgtMWMyNjUwOGU0NTlj")
+            @RequestParam(value = "cursor", required = false, defaultValue = "") String cursor,
+            @ApiParam(
+                    value = "The filters to apply, the ones left empty are ignored")
+            @Valid @RequestBody SupplyOperationFilter filter) {
+
+        if (!authorizationService.isAdmin()) {
+            filter.setEstablishmentCuig(authorizationService.getCurrentUserCuig());
+        }
+        if (size < 1) {
+            throw new ValidationException("The size must be at least 1");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().before(filter.getTo())) {
+            throw new ValidationException("The from date must be before the to date");
+        }
+        if (filter.getMinAmount() != null && filter.getMaxAmount() != null && filter.getMinAmount() > filter.getMaxAmount()) {
+            throw new ValidationException("The min amount can't be greater than the max amount");
         }
+        log.info("Searching operations matching {}", filter);
+
+        Specification<CemaSupplyOperation> specification = OperationSpecifications.matching(filter)
+                .and(OperationSpecifications.before(OperationCursor.decode(cursor)));
+        List<CemaSupplyOperation> cemaSupplyOperations = supplyOperationRepository.search(specification, size + 1);
 
-        List<CemaSupplyOperation> cemaSupplyOperations = cemaOperationPage.getContent();
         HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set("total-elements", String.valueOf(cemaOperationPage.getTotalElements()));
-        responseHeaders.set("total-pages", String.valueOf(cemaOperationPage.getTotalPages()));
-        responseHeaders.set("current-page", String.valueOf(cemaOperationPage.getNumber()));
+        if (cemaSupplyOperations.size() > size) {
+            cemaSupplyOperations = cemaSupplyOperations.subList(0, size);
+            CemaSupplyOperation last = cemaSupplyOperations.get(size - 1);
+            responseHeaders.set("next-cursor", OperationCursor.after(last.getTransactionDate(), last.getId()).encode());
+        }
 
         List<SupplyOperation> supplyOperations = cemaSupplyOperations.stream().map(supplyOperationMapping::mapEntityToDomain).collect(Collectors.toList());
 
         return ResponseEntity.ok().headers(responseHeaders).body(supplyOperations);
     }
 
-    @ApiOperation(value = "Retrieve the total for spending in supplies", response = BovineOperation.class)
-    @ApiResponse(code = 200, message = "Returned total spending")
+    @ApiOperation(value = "Export every supply operation of an establishment as CSV or NDJSON")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "The operations are streamed oldest first"),
+            @ApiResponse(code = 422, message = "Invalid range or format")
+    })
+    @GetMapping(value = BASE_URL + "export", produces = {ExportFormat.CSV_CONTENT_TYPE, ExportFormat.NDJSON_CONTENT_TYPE})
+    public ResponseEntity<StreamingResponseBody> exportSupplyOperations(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every operation before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every operation after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(
+                    value = "The format of the export, one of csv or ndjson.",
+                    example = "csv")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format) {
+
+        log.info("Request to export supply operations");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+        format = format.toLowerCase();
+
+        StreamingResponseBody body = exportService.exportSupplyOperations(cuig, from, to, format);
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setContentType(MediaType.parseMediaType(exportService.getContentType(format)));
+        responseHeaders.setContentDisposition(ContentDisposition.attachment()
+                .filename(String.format("supply-operations-%s.%s", cuig, format))
+                .build());
+        return ResponseEntity.ok().headers(responseHeaders).body(body);
+    }
+
+    @ApiOperation(value = "Export every supply operation of an establishment in the background, for ranges too large to stream")
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "The export was queued, poll it at /reports/jobs/{id}"),
+            @ApiResponse(code = 422, message = "Invalid range or format"),
+            @ApiResponse(code = 429, message = "The establishment has too many reports in progress")
+    })
+    @PostMapping(value = BASE_URL + "export/jobs", produces = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ReportJob> submitSupplyOperationsExportJob(
+            @ApiParam(
+                    value = "The cuig of the establishment of the operations. If the user is not admin will be ignored.",
+                    example = "321")
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every operation before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every operation after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(
+                    value = "The format of the export, one of csv or ndjson.",
+                    example = "csv")
+            @RequestParam(value = "format", required = false, defaultValue = "csv") String format) {
+
+        log.info("Request to export supply operations in the background");
+
+        if (!authorizationService.isAdmin()) {
+            cuig = authorizationService.getCurrentUserCuig();
+        }
+
+        ReportJob reportJob = ReportJob.builder()
+                .reportType(ReportType.SUPPLY_OPERATIONS)
+                .format(format)
+                .from(from != null ? toDate(from) : null)
+                .to(to != null ? toDate(to) : null)
+                .establishmentCuig(cuig)
+                .build();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submit(reportJob));
+    }
+
+    @ApiOperation(value = "Retrieve the money spent buying supplies, valued at the price of each supply when it was bought")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Returned total spending"),
+            @ApiResponse(code = 422, message = "Invalid range")
+    })
     @GetMapping(value = BASE_URL + "total", produces = {MediaType.APPLICATION_JSON_VALUE})
     public ResponseEntity<Long> getTotal(
             @ApiParam(
                     value = "The cuig of the establishment of the operation. If the user is not admin will be ignored.",
                     example = "321")
-            @RequestParam(value = "cuig") String cuig) {
+            @RequestParam(value = "cuig") String cuig,
+            @ApiParam(
+                    value = "The first day to include. If empty every purchase before the last day is included.",
+                    example = "2021-01-01")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @ApiParam(
+                    value = "The last day to include. If empty every purchase after the first day is included.",
+                    example = "2021-12-31")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
 
         if (!authorizationService.isAdmin()) {
             cuig = authorizationService.getCurrentUserCuig();
         }
+        from = from != null ? from : LocalDate.of(1900, 1, 1);
+        to = to != null ? to : LocalDate.of(9999, 12, 30);
+        if (from.isAfter(to)) {
+            throw new ValidationException(String.format("The date from %s is after the date to %s", from, to));
+        }
 
-        Long spending = supplyOperationRepository.getSumForOperationType(cuig, OperationType.BUY);
+        long spending = supplyOperationRepository.getValuedSpending(cuig, toDate(from), toDate(to.plusDays(1)));
 
         return ResponseEntity.ok().body(spending);
     }
 
+    /**
+     * Asks for one extra row to know whether there is a next page without counting.
+     */
+    private ResponseEntity<List<SupplyOperation>> listOperationsAfter(String cuig, OperationCursor cursor, int size) {
+        if (size < 1) {
+            throw new ValidationException("The size must be at least 1");
+        }
+        String id = cursor.getId().toString();
+        List<String> ids;
+        if (authorizationService.isAdmin()) {
+            ids = supplyOperationRepository.findIdsBefore(cursor.getTransactionDate(), id, size + 1);
+        } else {
+            ids = supplyOperationRepository.findIdsByEstablishmentCuigBefore(cuig, cursor.getTransactionDate(), id, size + 1);
+        }
+        boolean hasNext = ids.size() > size;
+        List<UUID> pageIds = ids.stream().limit(size).map(UUID::fromString).collect(Collectors.toList());
+        List<CemaSupplyOperation> cemaSupplyOperations = pageIds.isEmpty() ? Collections.emptyList()
+                : supplyOperationRepository.findAllByIdIn(pageIds, Sort.by(Sort.Direction.DESC, "transactionDate", "id"));
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        if (hasNext && !cemaSupplyOperations.isEmpty()) {
+            CemaSupplyOperation last = cemaSupplyOperations.get(cemaSupplyOperations.size() - 1);
+            responseHeaders.set("next-cursor", OperationCursor.after(last.getTransactionDate(), last.getId()).encode());
+        }
+
+        List<SupplyOperation> supplyOperations = cemaSupplyOperations.stream().map(supplyOperationMapping::mapEntityToDomain).collect(Collectors.toList());
+
+        return ResponseEntity.ok().headers(responseHeaders).body(supplyOperations);
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
 }
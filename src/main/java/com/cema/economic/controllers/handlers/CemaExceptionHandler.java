@@ -3,6 +3,7 @@ package com.cema.economic.controllers.handlers;
 import com.cema.economic.domain.ErrorResponse;
 import com.cema.economic.exceptions.AlreadyExistsException;
 import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.exceptions.TooManyRequestsException;
 import com.cema.economic.exceptions.UnauthorizedException;
 import com.cema.economic.exceptions.ValidationException;
 import org.springframework.http.HttpStatus;
@@ -63,4 +64,10 @@ public class CemaExceptionHandler {
         ErrorResponse error = new ErrorResponse(ex.getMessage(), request.toString());
         return new ResponseEntity(error, HttpStatus.UNPROCESSABLE_ENTITY);
     }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public final ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex, WebRequest request) {
+        ErrorResponse error = new ErrorResponse(ex.getMessage(), request.toString());
+        return new ResponseEntity(error, HttpStatus.TOO_MANY_REQUESTS);
+    }
 }
@@ -18,4 +18,6 @@ public class AvailableSupply {
     private long available;
     @ApiModelProperty(notes = "The units used to measure this supply.", example = "Kg")
     private String units;
+    @ApiModelProperty(notes = "The stock under which this supply is reported as low.", example = "20")
+    private Long minimumStock;
 }
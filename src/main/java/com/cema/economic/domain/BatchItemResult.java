@@ -0,0 +1,22 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult<T> {
+    @ApiModelProperty(notes = "The position of the item in the request, zero indexed", example = "0")
+    private int index;
+    @ApiModelProperty(notes = "Whether the item was stored", example = "created|failed")
+    private String status;
+    @ApiModelProperty(notes = "The stored item, only when it was created")
+    private T item;
+    @ApiModelProperty(notes = "Why the item was not stored, only when it failed", example = "The supply heno does not exists")
+    private String error;
+}
@@ -0,0 +1,52 @@
+package com.cema.economic.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BovineBatchOperation {
+    @ApiModelProperty(notes = "The batch the bovines belong to", example = "Lote 3")
+    @NotEmpty(message = "batch name is required")
+    private String batchName;
+    @ApiModelProperty(notes = "The bovines of the batch this operation is for", example = "[\"1234\", \"1235\"]")
+    @NotEmpty(message = "At least one tag is required")
+    private List<@NotEmpty(message = "Tag is required") String> bovineTags;
+    @ApiModelProperty(notes = "Any additional data for this operation", example = "Remate de marzo")
+    private String description;
+    @ApiModelProperty(notes = "The cuig this operation is related to", example = "123")
+    @NotEmpty(message = "establishmentCuig is required")
+    private String establishmentCuig;
+    @ApiModelProperty(notes = "The amount of money of the whole batch, split evenly between its bovines", example = "543200")
+    @NotNull
+    @Min(value = 0L, message = "Amount cannot be negative")
+    private Long amount;
+    @ApiModelProperty(notes = "If this is a buy operation, the name of the person who sold us the animals", example = "Roberto")
+    private String sellerName;
+    @ApiModelProperty(notes = "If this is a sell operation, the name of the person who bought us the animals", example = "Roberto")
+    private String buyerName;
+    @ApiModelProperty(notes = "The type of operation", example = "buy|sell")
+    @NotEmpty(message = "type is required")
+    @Pattern(regexp = "(?i)buy|sell")
+    private String operationType;
+    @ApiModelProperty(notes = "The the username of the operator who created this operation", example = "merlinds")
+    @NotEmpty(message = "operator username is required")
+    private String operatorUserName;
+    @ApiModelProperty(notes = "The date when this operation took place", example = "2021-02-12")
+    @NotNull
+    @JsonFormat(timezone = "America/Buenos_Aires")
+    private Date transactionDate;
+}
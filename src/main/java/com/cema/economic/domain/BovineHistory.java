@@ -0,0 +1,21 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BovineHistory {
+
+    @ApiModelProperty(notes = "The margin of the bovine over all its operations.")
+    private BovineMargin margin;
+    @ApiModelProperty(notes = "The operations of the bovine, oldest first.")
+    private List<BovineOperation> operations;
+}
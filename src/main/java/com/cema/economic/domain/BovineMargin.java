@@ -0,0 +1,23 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BovineMargin {
+
+    @ApiModelProperty(notes = "The tag of the bovine.", example = "1234")
+    private String bovineTag;
+    @ApiModelProperty(notes = "The money received selling the bovine.", example = "5432")
+    private long income;
+    @ApiModelProperty(notes = "The money spent buying the bovine.", example = "2000")
+    private long spending;
+    @ApiModelProperty(notes = "The income minus the spending.", example = "3432")
+    private long margin;
+}
@@ -0,0 +1,21 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BovineMarginReport {
+
+    @ApiModelProperty(notes = "The bovines with the highest margin, highest first.")
+    private List<BovineMargin> top;
+    @ApiModelProperty(notes = "The bovines with the lowest margin, lowest first.")
+    private List<BovineMargin> bottom;
+}
@@ -0,0 +1,25 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryReport {
+
+    @ApiModelProperty(notes = "The name of the category.", example = "Alimento")
+    private String categoryName;
+    @ApiModelProperty(notes = "The money spent buying supplies of the category.", example = "5000")
+    private long spending;
+    @ApiModelProperty(notes = "The value of the supplies of the category that were used.", example = "3200")
+    private long consumption;
+    @ApiModelProperty(notes = "The value of the supplies of the category that were lost.", example = "150")
+    private long losses;
+    @ApiModelProperty(notes = "The number of operations of the category.", example = "42")
+    private long operations;
+}
@@ -0,0 +1,45 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportJob {
+    @ApiModelProperty(notes = "The id of the import, autogenerated.", example = "b000bba4-229e-4b59-8548-1c26508e459c")
+    private UUID id;
+    @ApiModelProperty(notes = "The operations the file has", example = "supply-operations|bovine-operations")
+    @NotEmpty(message = "importType is required")
+    private String importType;
+    @ApiModelProperty(notes = "The cuig the operations are imported to", example = "321")
+    @NotEmpty(message = "establishmentCuig is required")
+    private String establishmentCuig;
+    @ApiModelProperty(notes = "The state of the import", example = "pending|running|done|failed")
+    private String status;
+    @ApiModelProperty(notes = "Why the whole import failed", example = "The column amount is missing")
+    private String error;
+    @ApiModelProperty(notes = "The rows read from the file so far", example = "1500")
+    private long rowsRead;
+    @ApiModelProperty(notes = "The rows stored so far", example = "1498")
+    private long rowsImported;
+    @ApiModelProperty(notes = "The rows that could not be stored so far", example = "2")
+    private long rowsFailed;
+    @ApiModelProperty(notes = "The first rows that could not be stored and why")
+    private List<ImportRowError> errors;
+    @ApiModelProperty(notes = "When the import was created")
+    private Date createdAt;
+    @ApiModelProperty(notes = "When the file started to be read")
+    private Date startedAt;
+    @ApiModelProperty(notes = "When the import finished")
+    private Date finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRowError {
+    @ApiModelProperty(notes = "The position of the row in the file, the first one after the header is 1", example = "12")
+    private long row;
+    @ApiModelProperty(notes = "Why the row was not imported", example = "The supply heno does not exists")
+    private String message;
+}
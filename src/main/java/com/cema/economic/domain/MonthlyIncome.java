@@ -0,0 +1,23 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyIncome {
+
+    @ApiModelProperty(notes = "The month of the totals.", example = "2021-02")
+    private String month;
+    @ApiModelProperty(notes = "The money received selling bovines in the month.", example = "5432")
+    private long income;
+    @ApiModelProperty(notes = "The money spent buying bovines in the month.", example = "2000")
+    private long spending;
+    @ApiModelProperty(notes = "The income minus the spending.", example = "3432")
+    private long total;
+}
@@ -0,0 +1,61 @@
+package com.cema.economic.domain;
+
+import com.cema.economic.exceptions.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * The position of the last operation of a page, newest first. The next page starts right after it, so reading deep
+ * pages costs the same as reading the first one. Clients get it as an opaque string and send it back unchanged.
+ */
+@Data
+@AllArgsConstructor
+public class OperationCursor {
+
+    /**
+     * Sorts after every real operation, it is where the first page starts.
+     */
+    public static final OperationCursor FIRST = new OperationCursor(
+            Timestamp.from(LocalDate.of(9999, 12, 30).atStartOfDay().toInstant(ZoneOffset.UTC)),
+            new UUID(-1L, -1L));
+
+    private static final String SEPARATOR = "_";
+
+    private Timestamp transactionDate;
+    private UUID id;
+
+    public static OperationCursor after(Date transactionDate, UUID id) {
+        Timestamp timestamp = transactionDate instanceof Timestamp ? (Timestamp) transactionDate : new Timestamp(transactionDate.getTime());
+        return new OperationCursor(timestamp, id);
+    }
+
+    /**
+     * An empty cursor asks for the first page.
+     */
+    public static OperationCursor decode(String cursor) {
+        if (cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 2);
+            return new OperationCursor(Timestamp.from(Instant.parse(parts[0])), UUID.fromString(parts[1]));
+        } catch (RuntimeException e) {
+            throw new ValidationException(String.format("The cursor %s is not valid", cursor));
+        }
+    }
+
+    public String encode() {
+        String value = transactionDate.toInstant() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
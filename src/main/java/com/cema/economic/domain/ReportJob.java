@@ -0,0 +1,49 @@
+package com.cema.economic.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.Date;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportJob {
+    @ApiModelProperty(notes = "The id of the job, autogenerated.", example = "b000bba4-229e-4b59-8548-1c26508e459c")
+    private UUID id;
+    @ApiModelProperty(notes = "The report to produce", example = "supply-operations|bovine-operations|categories")
+    @NotEmpty(message = "reportType is required")
+    private String reportType;
+    @ApiModelProperty(notes = "The format of the result, if empty the default one of the report is used", example = "csv|ndjson|json")
+    private String format;
+    @ApiModelProperty(notes = "The first day to include, if empty there is no lower limit", example = "2021-01-01")
+    @JsonFormat(timezone = "America/Buenos_Aires")
+    private Date from;
+    @ApiModelProperty(notes = "The last day to include, if empty there is no upper limit", example = "2021-12-31")
+    @JsonFormat(timezone = "America/Buenos_Aires")
+    private Date to;
+    @ApiModelProperty(notes = "The cuig the report is for", example = "321")
+    @NotEmpty(message = "establishmentCuig is required")
+    private String establishmentCuig;
+    @ApiModelProperty(notes = "The state of the job", example = "pending|running|done|failed")
+    private String status;
+    @ApiModelProperty(notes = "Why the job failed", example = "The report could not be written")
+    private String error;
+    @ApiModelProperty(notes = "The size in bytes of the result", example = "1024")
+    private Long resultSize;
+    @ApiModelProperty(notes = "When the job was requested")
+    private Date createdAt;
+    @ApiModelProperty(notes = "When the job started running")
+    private Date startedAt;
+    @ApiModelProperty(notes = "When the job finished")
+    private Date finishedAt;
+    @ApiModelProperty(notes = "When the job and its result will be deleted")
+    private Date expiresAt;
+}
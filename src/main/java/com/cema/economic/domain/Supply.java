@@ -26,6 +26,9 @@ public class Supply {
     @Min(value = 0L, message = "The price must be positive")
     @NotNull(message = "Price is required")
     private Long price;
+    @ApiModelProperty(notes = "The stock under which this supply is reported as low, if empty it is never reported", example = "20")
+    @Min(value = 0L, message = "The minimum stock must be positive")
+    private Long minimumStock;
     @ApiModelProperty(notes = "The category of this supply", example = "Alimento")
     @NotEmpty(message = "Category name is required")
     private String categoryName;
@@ -0,0 +1,37 @@
+package com.cema.economic.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Pattern;
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SupplyOperationFilter {
+    @ApiModelProperty(notes = "The cuig the operations belong to, only admins can pick it", example = "123")
+    private String establishmentCuig;
+    @ApiModelProperty(notes = "The first transaction date to include", example = "2021-01-01")
+    @JsonFormat(timezone = "America/Buenos_Aires")
+    private Date from;
+    @ApiModelProperty(notes = "The transaction date to stop at, excluded", example = "2021-02-01")
+    @JsonFormat(timezone = "America/Buenos_Aires")
+    private Date to;
+    @ApiModelProperty(notes = "The types of operation to include, any when empty", example = "[\"buy\", \"loss\"]")
+    private List<@Pattern(regexp = "(?i)buy|use|loss") String> operationTypes;
+    @ApiModelProperty(notes = "The name of the supply involved in the operations", example = "heno")
+    private String supplyName;
+    @ApiModelProperty(notes = "The username of the operator who created the operations", example = "merlinds")
+    private String operatorUserName;
+    @ApiModelProperty(notes = "The smallest amount to include", example = "100")
+    private Long minAmount;
+    @ApiModelProperty(notes = "The largest amount to include", example = "5000")
+    private Long maxAmount;
+}
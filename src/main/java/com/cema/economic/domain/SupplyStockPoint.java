@@ -0,0 +1,23 @@
+package com.cema.economic.domain;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SupplyStockPoint {
+
+    @ApiModelProperty(notes = "The start of the period, the first one may start before the requested date.", example = "2021-02-01")
+    private Date period;
+    @ApiModelProperty(notes = "The sum of the signed amounts of the operations in the period.", example = "-5")
+    private long movement;
+    @ApiModelProperty(notes = "The amount available at the end of the period.", example = "85")
+    private long available;
+}
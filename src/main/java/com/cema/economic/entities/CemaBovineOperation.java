@@ -1,5 +1,6 @@
 package com.cema.economic.entities;
 
+import com.cema.economic.entities.ids.TimeOrderedUuidGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,12 +11,17 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.util.Date;
 import java.util.UUID;
 
 @Entity
-@Table(name = "bovine_operation")
+@Table(name = "bovine_operation", indexes = {
+        @Index(name = "bovine_operation_cuig_tag_idx", columnList = "establishment_cuig, bovine_tag, transaction_date"),
+        @Index(name = "bovine_operation_cuig_date_search_idx", columnList = "establishment_cuig, transaction_date, id, operation_type, bovine_tag, amount"),
+        @Index(name = "bovine_operation_date_id_idx", columnList = "transaction_date, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -25,7 +31,7 @@ public class CemaBovineOperation {
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(
             name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
+            strategy = TimeOrderedUuidGenerator.STRATEGY
     )
     @Column(name = "id")
     private UUID id;
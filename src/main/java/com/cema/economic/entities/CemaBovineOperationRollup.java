@@ -0,0 +1,50 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.util.Date;
+
+@Entity
+@Table(name = "bovine_operation_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"establishment_cuig", "period_start", "operation_type"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaBovineOperationRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "establishment_cuig")
+    private String establishmentCuig;
+
+    /**
+     * The first day of the month the operations took place in.
+     */
+    @Column(name = "period_start")
+    private Date periodStart;
+
+    @Column(name = "operation_type")
+    private String operationType;
+
+    @Column(name = "amount")
+    private Long amount;
+
+    @Column(name = "operations")
+    private Long operations;
+}
@@ -0,0 +1,62 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+import java.util.UUID;
+
+@Entity
+@Table(name = "import_job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaImportJob {
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(
+            name = "UUID",
+            strategy = "org.hibernate.id.UUIDGenerator"
+    )
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "import_type")
+    private String importType;
+
+    @Column(name = "establishment_cuig")
+    private String establishmentCuig;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "rows_read")
+    private long rowsRead;
+
+    @Column(name = "rows_imported")
+    private long rowsImported;
+
+    @Column(name = "rows_failed")
+    private long rowsFailed;
+
+    @Column(name = "created_at")
+    private Date createdAt;
+
+    @Column(name = "started_at")
+    private Date startedAt;
+
+    @Column(name = "finished_at")
+    private Date finishedAt;
+}
@@ -0,0 +1,45 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.UUID;
+
+@Entity
+@Table(name = "import_job_error", indexes = {
+        @Index(name = "import_job_error_job_row_idx", columnList = "import_job_id, row_number")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaImportJobError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "import_job_id")
+    private UUID importJobId;
+
+    /**
+     * The position of the row in the file, the first one after the header is 1.
+     */
+    @Column(name = "row_number")
+    private Long rowNumber;
+
+    @Column(name = "message")
+    private String message;
+}
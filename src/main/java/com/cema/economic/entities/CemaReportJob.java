@@ -0,0 +1,76 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.util.Date;
+import java.util.UUID;
+
+@Entity
+@Table(name = "report_job", indexes = {
+        @Index(name = "report_job_expires_at_idx", columnList = "expires_at"),
+        @Index(name = "report_job_cuig_status_idx", columnList = "establishment_cuig, status"),
+        @Index(name = "report_job_status_started_at_idx", columnList = "status, started_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaReportJob {
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(
+            name = "UUID",
+            strategy = "org.hibernate.id.UUIDGenerator"
+    )
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "report_type")
+    private String reportType;
+
+    @Column(name = "format")
+    private String format;
+
+    @Column(name = "from_date")
+    private Date fromDate;
+
+    @Column(name = "to_date")
+    private Date toDate;
+
+    @Column(name = "establishment_cuig")
+    private String establishmentCuig;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "error")
+    private String error;
+
+    @Column(name = "result_size")
+    private Long resultSize;
+
+    @Column(name = "created_at")
+    private Date createdAt;
+
+    @Column(name = "started_at")
+    private Date startedAt;
+
+    @Column(name = "finished_at")
+    private Date finishedAt;
+
+    /**
+     * The job and its result are deleted after this moment.
+     */
+    @Column(name = "expires_at")
+    private Date expiresAt;
+}
@@ -42,6 +42,9 @@ public class CemaSupply {
     @Column(name = "price")
     private Long price;
 
+    @Column(name = "minimum_stock")
+    private Long minimumStock;
+
     @Column(name = "establishment_cuig")
     private String establishmentCuig;
 
@@ -59,6 +62,7 @@ public class CemaSupply {
                 ", name='" + name + '\'' +
                 ", units='" + units + '\'' +
                 ", price=" + price +
+                ", minimumStock=" + minimumStock +
                 ", establishmentCuig='" + establishmentCuig + '\'' +
                 ", category=" + category +
                 '}';
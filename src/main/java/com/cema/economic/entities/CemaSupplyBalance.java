@@ -0,0 +1,39 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "supply_balance", indexes = {
+        @Index(name = "supply_balance_cuig_below_minimum_idx", columnList = "establishment_cuig, below_minimum")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaSupplyBalance {
+
+    @Id
+    @Column(name = "supply_id")
+    private Integer supplyId;
+
+    @Column(name = "establishment_cuig")
+    private String establishmentCuig;
+
+    @Column(name = "available")
+    private Long available;
+
+    @Column(name = "minimum_stock")
+    private Long minimumStock;
+
+    @Column(name = "below_minimum", nullable = false)
+    private boolean belowMinimum;
+}
@@ -0,0 +1,43 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.util.Date;
+
+@Entity
+@Table(name = "supply_balance_checkpoint", uniqueConstraints = @UniqueConstraint(columnNames = {"supply_id", "period_start"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaSupplyBalanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "supply_id")
+    private Integer supplyId;
+
+    /**
+     * The availability at this moment, every operation before it is included.
+     */
+    @Column(name = "period_start")
+    private Date periodStart;
+
+    @Column(name = "available")
+    private Long available;
+}
@@ -1,5 +1,6 @@
 package com.cema.economic.entities;
 
+import com.cema.economic.entities.ids.TimeOrderedUuidGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,25 +14,41 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
 import java.util.Date;
 import java.util.UUID;
 
 @Entity
-@Table(name = "supply_operation")
+@NamedEntityGraph(name = CemaSupplyOperation.WITH_SUPPLY,
+        attributeNodes = @NamedAttributeNode(value = "cemaSupply", subgraph = "supply"),
+        subgraphs = @NamedSubgraph(name = "supply", attributeNodes = @NamedAttributeNode("category")))
+@Table(name = "supply_operation", indexes = {
+        @Index(name = "supply_operation_cuig_date_search_idx", columnList = "establishment_cuig, transaction_date, id, operation_type, supply_id, amount"),
+        @Index(name = "supply_operation_date_id_idx", columnList = "transaction_date, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class CemaSupplyOperation {
+
+    /**
+     * Fetches the supply and its category in the same statement as the operations, instead of one select per row.
+     */
+    public static final String WITH_SUPPLY = "CemaSupplyOperation.withSupply";
+
     @Id
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(
             name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
+            strategy = TimeOrderedUuidGenerator.STRATEGY
     )
     @Column(name = "id")
     private UUID id;
@@ -0,0 +1,43 @@
+package com.cema.economic.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.util.Date;
+
+@Entity
+@Table(name = "supply_price", uniqueConstraints = @UniqueConstraint(columnNames = {"supply_id", "valid_from"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CemaSupplyPrice {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "supply_id")
+    private Integer supplyId;
+
+    @Column(name = "price")
+    private Long price;
+
+    /**
+     * The price applies to operations from this moment until the next price of the supply.
+     */
+    @Column(name = "valid_from")
+    private Date validFrom;
+}
@@ -0,0 +1,87 @@
+package com.cema.economic.entities.ids;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates UUIDv7 ids: the first 48 bits are the unix time in milliseconds and the next 12 a counter within that
+ * millisecond, so every id is greater than the ones generated before it in this process. New rows are appended to
+ * the right of the primary key index instead of landing on a random page of it, and the ids are still made in memory
+ * so the inserts can be batched. Setting {@code economic.ids.time-ordered} to false in the jpa properties goes back
+ * to random ids.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String STRATEGY = "com.cema.economic.entities.ids.TimeOrderedUuidGenerator";
+    public static final String TIME_ORDERED_SETTING = "economic.ids.time-ordered";
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    /**
+     * The milliseconds shifted left by the counter bits plus the counter of the last id, shared by every entity so the
+     * ids of the process never repeat. When the counter of a millisecond runs out the next one is borrowed.
+     */
+    private static final AtomicLong LAST = new AtomicLong();
+    private static final TimeOrderedUuidGenerator SHARED = new TimeOrderedUuidGenerator();
+
+    private final LongSupplier clock;
+    private final AtomicLong last;
+    private boolean timeOrdered = true;
+
+    public TimeOrderedUuidGenerator() {
+        this(System::currentTimeMillis, LAST);
+    }
+
+    /**
+     * Lets the tests use their own clock and state instead of the ones the whole process shares.
+     */
+    TimeOrderedUuidGenerator(LongSupplier clock, AtomicLong last) {
+        this.clock = clock;
+        this.last = last;
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        timeOrdered = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(TIME_ORDERED_SETTING, StandardConverters.BOOLEAN, true);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return timeOrdered ? next() : UUID.randomUUID();
+    }
+
+    public static UUID nextUuid() {
+        return SHARED.next();
+    }
+
+    UUID next() {
+        long now = clock.getAsLong() << COUNTER_BITS;
+        long previous;
+        long current;
+        do {
+            previous = last.get();
+            current = Math.max(now, previous + 1);
+        } while (!last.compareAndSet(previous, current));
+
+        long millis = current >>> COUNTER_BITS;
+        long counter = current & ((1L << COUNTER_BITS) - 1);
+        long mostSignificantBits = (millis << 16) | VERSION | counter;
+        long leastSignificantBits = VARIANT | (ThreadLocalRandom.current().nextLong() >>> 2);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -0,0 +1,42 @@
+package com.cema.economic.mapping.impl;
+
+import com.cema.economic.domain.ImportJob;
+import com.cema.economic.entities.CemaImportJob;
+import com.cema.economic.mapping.Mapping;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ImportJobMappingImpl implements Mapping<CemaImportJob, ImportJob> {
+
+    @Override
+    public ImportJob mapEntityToDomain(CemaImportJob entity) {
+        return ImportJob.builder()
+                .id(entity.getId())
+                .importType(entity.getImportType())
+                .establishmentCuig(entity.getEstablishmentCuig())
+                .status(entity.getStatus())
+                .error(entity.getError())
+                .rowsRead(entity.getRowsRead())
+                .rowsImported(entity.getRowsImported())
+                .rowsFailed(entity.getRowsFailed())
+                .createdAt(entity.getCreatedAt())
+                .startedAt(entity.getStartedAt())
+                .finishedAt(entity.getFinishedAt())
+                .build();
+    }
+
+    @Override
+    public CemaImportJob mapDomainToEntity(ImportJob domain) {
+        return CemaImportJob.builder()
+                .importType(domain.getImportType())
+                .establishmentCuig(domain.getEstablishmentCuig())
+                .build();
+    }
+
+    @Override
+    public CemaImportJob updateDomainWithEntity(ImportJob domain, CemaImportJob entity) {
+        entity.setImportType(domain.getImportType());
+        entity.setEstablishmentCuig(domain.getEstablishmentCuig());
+        return entity;
+    }
+}
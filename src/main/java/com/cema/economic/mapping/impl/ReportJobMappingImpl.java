@@ -0,0 +1,50 @@
+package com.cema.economic.mapping.impl;
+
+import com.cema.economic.domain.ReportJob;
+import com.cema.economic.entities.CemaReportJob;
+import com.cema.economic.mapping.Mapping;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ReportJobMappingImpl implements Mapping<CemaReportJob, ReportJob> {
+
+    @Override
+    public ReportJob mapEntityToDomain(CemaReportJob entity) {
+        return ReportJob.builder()
+                .id(entity.getId())
+                .reportType(entity.getReportType())
+                .format(entity.getFormat())
+                .from(entity.getFromDate())
+                .to(entity.getToDate())
+                .establishmentCuig(entity.getEstablishmentCuig())
+                .status(entity.getStatus())
+                .error(entity.getError())
+                .resultSize(entity.getResultSize())
+                .createdAt(entity.getCreatedAt())
+                .startedAt(entity.getStartedAt())
+                .finishedAt(entity.getFinishedAt())
+                .expiresAt(entity.getExpiresAt())
+                .build();
+    }
+
+    @Override
+    public CemaReportJob mapDomainToEntity(ReportJob domain) {
+        return CemaReportJob.builder()
+                .reportType(domain.getReportType())
+                .format(domain.getFormat())
+                .fromDate(domain.getFrom())
+                .toDate(domain.getTo())
+                .establishmentCuig(domain.getEstablishmentCuig())
+                .build();
+    }
+
+    @Override
+    public CemaReportJob updateDomainWithEntity(ReportJob domain, CemaReportJob entity) {
+        entity.setReportType(domain.getReportType());
+        entity.setFormat(domain.getFormat());
+        entity.setFromDate(domain.getFrom());
+        entity.setToDate(domain.getTo());
+        entity.setEstablishmentCuig(domain.getEstablishmentCuig());
+        return entity;
+    }
+}
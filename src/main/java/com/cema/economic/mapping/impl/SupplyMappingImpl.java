@@ -14,6 +14,7 @@ public class SupplyMappingImpl implements Mapping<CemaSupply, Supply> {
         return Supply.builder()
                 .name(entity.getName())
                 .price(entity.getPrice())
+                .minimumStock(entity.getMinimumStock())
                 .units(entity.getUnits())
                 .categoryName(entity.getCategory().getName())
                 .establishmentCuig(entity.getEstablishmentCuig())
@@ -25,6 +26,7 @@ public class SupplyMappingImpl implements Mapping<CemaSupply, Supply> {
         return CemaSupply.builder()
                 .name(domain.getName())
                 .price(domain.getPrice())
+                .minimumStock(domain.getMinimumStock())
                 .units(domain.getUnits())
                 .establishmentCuig(domain.getEstablishmentCuig())
                 .build();
@@ -34,8 +36,10 @@ public class SupplyMappingImpl implements Mapping<CemaSupply, Supply> {
     public CemaSupply updateDomainWithEntity(Supply domain, CemaSupply entity) {
         Long price = domain.getPrice() != null ? domain.getPrice() : entity.getPrice();
         String units = StringUtils.hasText(domain.getUnits()) ? domain.getUnits() : entity.getUnits();
+        Long minimumStock = domain.getMinimumStock() != null ? domain.getMinimumStock() : entity.getMinimumStock();
 
         entity.setPrice(price);
+        entity.setMinimumStock(minimumStock);
         entity.setUnits(units);
         return entity;
     }
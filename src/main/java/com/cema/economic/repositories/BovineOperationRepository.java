@@ -1,16 +1,23 @@
 package com.cema.economic.repositories;
 
+import com.cema.economic.domain.BovineOperation;
 import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.repositories.projections.BovineMarginRankView;
+import com.cema.economic.repositories.projections.BovineMarginView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface BovineOperationRepository extends JpaRepository<CemaBovineOperation, UUID> {
+public interface BovineOperationRepository extends JpaRepository<CemaBovineOperation, UUID>, BovineOperationSearchRepository {
 
     CemaBovineOperation findCemaBovineOperationById(UUID id);
 
@@ -18,6 +25,67 @@ public interface BovineOperationRepository extends JpaRepository<CemaBovineOpera
 
     Page<CemaBovineOperation> findAllByEstablishmentCuig(String cuig, Pageable paging);
 
+    String BOVINE_OPERATION_VIEW = "select new com.cema.economic.domain.BovineOperation(bo.id, bo.bovineTag, " +
+            "bo.description, bo.establishmentCuig, bo.amount, bo.sellerName, bo.buyerName, bo.operationType, bo.operatorName, " +
+            "bo.transactionDate) from CemaBovineOperation bo";
+
+    /**
+     * Builds the domain objects from the selected columns, nothing is loaded into the persistence context.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = BOVINE_OPERATION_VIEW + " where bo.establishmentCuig = ?1",
+            countQuery = "select count(bo) from CemaBovineOperation bo where bo.establishmentCuig = ?1")
+    Page<BovineOperation> findOperationsByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(BOVINE_OPERATION_VIEW + " where bo.establishmentCuig = ?1")
+    Slice<BovineOperation> findOperationSliceByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(value = BOVINE_OPERATION_VIEW, countQuery = "select count(bo) from CemaBovineOperation bo")
+    Page<BovineOperation> findOperations(Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(BOVINE_OPERATION_VIEW)
+    Slice<BovineOperation> findOperationSlice(Pageable paging);
+
+    /**
+     * Keyset paging, newest first. The row comparison seeks straight to the cursor in the (cuig, date, id) index
+     * instead of reading and discarding every earlier row like an offset does.
+     */
+    @Query(value = "select bo.* from bovine_operation bo where bo.establishment_cuig = ?1 " +
+            "and (bo.transaction_date, bo.id) < (?2, cast(?3 as uuid)) " +
+            "order by bo.transaction_date desc, bo.id desc limit ?4", nativeQuery = true)
+    List<CemaBovineOperation> findAllByEstablishmentCuigBefore(String cuig, Timestamp transactionDate, String id, int limit);
+
+    @Query(value = "select bo.* from bovine_operation bo where (bo.transaction_date, bo.id) < (?1, cast(?2 as uuid)) " +
+            "order by bo.transaction_date desc, bo.id desc limit ?3", nativeQuery = true)
+    List<CemaBovineOperation> findAllBefore(Timestamp transactionDate, String id, int limit);
+
     @Query(value = "select sum(bo.amount) from bovine_operation bo where establishment_cuig=?1 AND operation_type=?2", nativeQuery = true)
     Long getSumForOperationType(String cuig, String type);
+
+    List<CemaBovineOperation> findAllByEstablishmentCuigAndBovineTagOrderByTransactionDate(String cuig, String bovineTag);
+
+    @Query(value = "select bo.bovine_tag as bovineTag, " +
+            "coalesce(sum(case when lower(bo.operation_type) = 'sell' then bo.amount end), 0) as income, " +
+            "coalesce(sum(case when lower(bo.operation_type) = 'buy' then bo.amount end), 0) as spending, " +
+            "coalesce(sum(case lower(bo.operation_type) when 'sell' then bo.amount when 'buy' then -bo.amount else 0 end), 0) as margin " +
+            "from bovine_operation bo where bo.establishment_cuig = ?1 and bo.bovine_tag = ?2 group by bo.bovine_tag", nativeQuery = true)
+    BovineMarginView getMargin(String cuig, String bovineTag);
+
+    /**
+     * Ranks every animal of the establishment by margin and keeps the first and last ones, ties are broken by tag.
+     */
+    @Query(value = "select r.bovineTag, r.income, r.spending, r.margin, r.topRank, r.bottomRank from (" +
+            "select m.bovineTag, m.income, m.spending, m.margin, " +
+            "row_number() over (order by m.margin desc, m.bovineTag) as topRank, " +
+            "row_number() over (order by m.margin, m.bovineTag) as bottomRank from (" +
+            "select bo.bovine_tag as bovineTag, " +
+            "coalesce(sum(case when lower(bo.operation_type) = 'sell' then bo.amount end), 0) as income, " +
+            "coalesce(sum(case when lower(bo.operation_type) = 'buy' then bo.amount end), 0) as spending, " +
+            "coalesce(sum(case lower(bo.operation_type) when 'sell' then bo.amount when 'buy' then -bo.amount else 0 end), 0) as margin " +
+            "from bovine_operation bo where bo.establishment_cuig = ?1 group by bo.bovine_tag) m) r " +
+            "where r.topRank <= ?2 or r.bottomRank <= ?2 order by r.margin desc, r.bovineTag", nativeQuery = true)
+    List<BovineMarginRankView> findTopAndBottomMargins(String cuig, int limit);
 }
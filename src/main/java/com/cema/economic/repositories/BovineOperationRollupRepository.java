@@ -0,0 +1,45 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaBovineOperationRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface BovineOperationRollupRepository extends JpaRepository<CemaBovineOperationRollup, Long> {
+
+    List<CemaBovineOperationRollup> findAllByEstablishmentCuigAndPeriodStartBetweenOrderByPeriodStart(String cuig, Date from, Date to);
+
+    @Modifying
+    @Query(value = "insert into bovine_operation_rollup (establishment_cuig, period_start, operation_type, amount, operations) " +
+            "values (?1, ?2, ?3, ?4, ?5) " +
+            "on conflict (establishment_cuig, period_start, operation_type) do update set " +
+            "amount = bovine_operation_rollup.amount + excluded.amount, operations = bovine_operation_rollup.operations + excluded.operations",
+            nativeQuery = true)
+    int addToRollup(String cuig, Date periodStart, String operationType, long amount, long operations);
+
+    @Modifying
+    @Query("delete from CemaBovineOperationRollup r where r.establishmentCuig = ?1")
+    int deleteByEstablishmentCuig(String cuig);
+
+    @Modifying
+    @Query(value = "insert into bovine_operation_rollup (establishment_cuig, period_start, operation_type, amount, operations) " +
+            "select bo.establishment_cuig, date_trunc('month', bo.transaction_date), lower(bo.operation_type), coalesce(sum(bo.amount), 0), count(*) " +
+            "from bovine_operation bo where bo.establishment_cuig = ?1 and bo.transaction_date is not null group by 1, 2, 3",
+            nativeQuery = true)
+    int rebuildFromOperations(String cuig);
+
+    @Modifying
+    @Query(value = "insert into bovine_operation_rollup (establishment_cuig, period_start, operation_type, amount, operations) " +
+            "select bo.establishment_cuig, date_trunc('month', bo.transaction_date), lower(bo.operation_type), coalesce(sum(bo.amount), 0), count(*) " +
+            "from bovine_operation bo where bo.transaction_date is not null group by 1, 2, 3",
+            nativeQuery = true)
+    int rebuildAllFromOperations();
+
+    @Query("select coalesce(sum(r.operations), 0) from CemaBovineOperationRollup r where r.establishmentCuig = ?1")
+    long sumOperations(String cuig);
+}
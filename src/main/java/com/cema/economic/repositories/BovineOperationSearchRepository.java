@@ -0,0 +1,14 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaBovineOperation;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface BovineOperationSearchRepository {
+
+    /**
+     * Returns at most limit operations matching the specification, newest first.
+     */
+    List<CemaBovineOperation> search(Specification<CemaBovineOperation> specification, int limit);
+}
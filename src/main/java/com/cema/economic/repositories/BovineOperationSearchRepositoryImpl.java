@@ -0,0 +1,35 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaBovineOperation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class BovineOperationSearchRepositoryImpl implements BovineOperationSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CemaBovineOperation> search(Specification<CemaBovineOperation> specification, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CemaBovineOperation> query = builder.createQuery(CemaBovineOperation.class);
+        Root<CemaBovineOperation> root = query.from(CemaBovineOperation.class);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(builder.desc(root.get("transactionDate")), builder.desc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -1,6 +1,8 @@
 package com.cema.economic.repositories;
 
 import com.cema.economic.entities.CemaCategory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,4 +10,6 @@ import org.springframework.stereotype.Repository;
 public interface CategoryRepository extends JpaRepository<CemaCategory, String> {
 
     CemaCategory findCemaCategoryByNameIgnoreCase(String name);
+
+    Slice<CemaCategory> findSliceBy(Pageable paging);
 }
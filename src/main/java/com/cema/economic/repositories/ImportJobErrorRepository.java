@@ -0,0 +1,14 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaImportJobError;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobErrorRepository extends JpaRepository<CemaImportJobError, Long> {
+
+    List<CemaImportJobError> findAllByImportJobIdOrderByRowNumber(UUID importJobId);
+}
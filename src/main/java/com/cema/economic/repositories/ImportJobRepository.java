@@ -0,0 +1,27 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.constants.ImportJobStatus;
+import com.cema.economic.entities.CemaImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<CemaImportJob, UUID> {
+
+    CemaImportJob findCemaImportJobById(UUID id);
+
+    /**
+     * Moves a pending job to running, only one of two concurrent uploads for the same job gets 1.
+     */
+    @Transactional
+    @Modifying
+    @Query("update CemaImportJob j set j.status = '" + ImportJobStatus.RUNNING + "', j.startedAt = ?2 " +
+            "where j.id = ?1 and j.status = '" + ImportJobStatus.PENDING + "'")
+    int start(UUID id, Date startedAt);
+}
@@ -0,0 +1,65 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.constants.ReportJobStatus;
+import com.cema.economic.entities.CemaReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.UUID;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<CemaReportJob, UUID> {
+
+    CemaReportJob findCemaReportJobById(UUID id);
+
+    /**
+     * Running jobs are left alone, they expire once they finish or time out. The database deletes the chunks of the
+     * results with their jobs.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from CemaReportJob j where j.expiresAt < ?1 and j.status <> '" + ReportJobStatus.RUNNING + "'")
+    int deleteExpiredJobs(Date moment);
+
+    long countByEstablishmentCuigAndStatusIn(String establishmentCuig, Collection<String> statuses);
+
+    /**
+     * Holds a lock on the establishment until the transaction ends, so its jobs are counted and saved one submit at a
+     * time whichever instance receives them.
+     */
+    @Query(value = "select count(*) from pg_advisory_xact_lock(hashtext(?1))", nativeQuery = true)
+    long lockEstablishment(String establishmentCuig);
+
+    /**
+     * Moves a pending job to running, 0 when the job is no longer pending and must not run.
+     */
+    @Transactional
+    @Modifying
+    @Query("update CemaReportJob j set j.status = '" + ReportJobStatus.RUNNING + "', j.startedAt = ?2 " +
+            "where j.id = ?1 and j.status = '" + ReportJobStatus.PENDING + "'")
+    int start(UUID id, Date startedAt);
+
+    /**
+     * Records how a running job ended, 0 when the job was failed by the cleanup while it ran and keeps that outcome.
+     */
+    @Transactional
+    @Modifying
+    @Query("update CemaReportJob j set j.status = ?2, j.error = ?3, j.resultSize = ?4, j.finishedAt = ?5, " +
+            "j.expiresAt = ?6 where j.id = ?1 and j.status = '" + ReportJobStatus.RUNNING + "'")
+    int finish(UUID id, String status, String error, Long resultSize, Date finishedAt, Date expiresAt);
+
+    /**
+     * Fails the jobs that started running before the moment and have not finished, the instance running them stopped
+     * or they took too long.
+     */
+    @Transactional
+    @Modifying
+    @Query("update CemaReportJob j set j.status = '" + ReportJobStatus.FAILED + "', j.error = ?2, j.finishedAt = ?3, " +
+            "j.expiresAt = ?4 where j.status = '" + ReportJobStatus.RUNNING + "' and j.startedAt < ?1")
+    int failJobsStartedBefore(Date moment, String error, Date finishedAt, Date expiresAt);
+}
@@ -0,0 +1,40 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaSupplyBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface SupplyBalanceCheckpointRepository extends JpaRepository<CemaSupplyBalanceCheckpoint, Long> {
+
+    Optional<CemaSupplyBalanceCheckpoint> findFirstBySupplyIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(Integer supplyId, Date moment);
+
+    Optional<CemaSupplyBalanceCheckpoint> findFirstBySupplyIdOrderByPeriodStartDesc(Integer supplyId);
+
+    @Modifying
+    @Query("update CemaSupplyBalanceCheckpoint cp set cp.available = cp.available + ?3 where cp.supplyId = ?1 and cp.periodStart > ?2")
+    int addToCheckpointsAfter(Integer supplyId, Date transactionDate, long delta);
+
+    @Modifying
+    @Query("delete from CemaSupplyBalanceCheckpoint cp where cp.supplyId = ?1")
+    int deleteBySupplyId(Integer supplyId);
+
+    /**
+     * Creates one checkpoint per month from firstPeriod to lastPeriod, adding to base the operations since operationsFrom.
+     */
+    @Modifying
+    @Query(value = "insert into supply_balance_checkpoint (supply_id, period_start, available) " +
+            "select ?1, m.period_start, ?2 + sum(coalesce(d.delta, 0)) over (order by m.period_start) " +
+            "from generate_series(cast(?4 as timestamp), cast(?5 as timestamp), interval '1 month') m(period_start) " +
+            "left join (select date_trunc('month', so.transaction_date) + interval '1 month' as period_start, " +
+            "sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end) as delta " +
+            "from supply_operation so where so.supply_id = ?1 and so.transaction_date >= ?3 and so.transaction_date < ?5 group by 1) d " +
+            "on d.period_start = m.period_start " +
+            "on conflict (supply_id, period_start) do nothing", nativeQuery = true)
+    int createMonthlyCheckpoints(Integer supplyId, long base, Date operationsFrom, Date firstPeriod, Date lastPeriod);
+}
@@ -0,0 +1,74 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.entities.CemaSupplyBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SupplyBalanceRepository extends JpaRepository<CemaSupplyBalance, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select sb from CemaSupplyBalance sb where sb.supplyId = ?1")
+    Optional<CemaSupplyBalance> findBySupplyIdForUpdate(Integer supplyId);
+
+    @Modifying
+    @Query(value = "update supply_balance set available = available + ?2, " +
+            "below_minimum = coalesce(available + ?2 < minimum_stock, false) where supply_id = ?1", nativeQuery = true)
+    int addToAvailable(Integer supplyId, long delta);
+
+    @Modifying
+    @Query(value = "update supply_balance set available = available - ?2, " +
+            "below_minimum = coalesce(available - ?2 < minimum_stock, false) where supply_id = ?1 and available >= ?2", nativeQuery = true)
+    int consumeAvailable(Integer supplyId, long amount);
+
+    @Modifying
+    @Query(value = "update supply_balance set minimum_stock = ?2, below_minimum = available < ?2 where supply_id = ?1", nativeQuery = true)
+    int updateMinimumStock(Integer supplyId, long minimumStock);
+
+    @Modifying
+    @Query("update CemaSupplyBalance sb set sb.minimumStock = null, sb.belowMinimum = false where sb.supplyId = ?1")
+    int clearMinimumStock(Integer supplyId);
+
+    @Query("select new com.cema.economic.domain.AvailableSupply(sup.name, sb.available, sup.units, sup.minimumStock) " +
+            "from CemaSupplyBalance sb, CemaSupply sup where sup.id = sb.supplyId " +
+            "and sb.establishmentCuig = ?1 and sb.belowMinimum = true order by sup.name")
+    List<AvailableSupply> findAllBelowMinimum(String cuig);
+
+    @Modifying
+    @Query("delete from CemaSupplyBalance sb where sb.supplyId = ?1")
+    int deleteBySupplyId(Integer supplyId);
+
+    @Modifying
+    @Query(value = "insert into supply_balance (supply_id, establishment_cuig, available, minimum_stock, below_minimum) " +
+            "select l.id, l.establishment_cuig, l.available, l.minimum_stock, coalesce(l.available < l.minimum_stock, false) from (" +
+            "select s.id, s.establishment_cuig, s.minimum_stock, coalesce(sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end), 0) as available " +
+            "from supply s left join supply_operation so on so.supply_id = s.id where s.id = ?1 group by s.id, s.establishment_cuig, s.minimum_stock) l " +
+            "on conflict (supply_id) do nothing", nativeQuery = true)
+    int initializeFromLedger(Integer supplyId);
+
+    @Modifying
+    @Query(value = "insert into supply_balance (supply_id, establishment_cuig, available, minimum_stock, below_minimum) " +
+            "select l.id, l.establishment_cuig, l.available, l.minimum_stock, coalesce(l.available < l.minimum_stock, false) from (" +
+            "select s.id, s.establishment_cuig, s.minimum_stock, coalesce(sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end), 0) as available " +
+            "from supply s left join supply_operation so on so.supply_id = s.id where s.establishment_cuig = ?1 group by s.id, s.establishment_cuig, s.minimum_stock) l " +
+            "on conflict (supply_id) do update set available = excluded.available, minimum_stock = excluded.minimum_stock, " +
+            "below_minimum = excluded.below_minimum", nativeQuery = true)
+    int rebuildFromLedger(String cuig);
+
+    @Modifying
+    @Query(value = "insert into supply_balance (supply_id, establishment_cuig, available, minimum_stock, below_minimum) " +
+            "select l.id, l.establishment_cuig, l.available, l.minimum_stock, coalesce(l.available < l.minimum_stock, false) from (" +
+            "select s.id, s.establishment_cuig, s.minimum_stock, coalesce(sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end), 0) as available " +
+            "from supply s left join supply_operation so on so.supply_id = s.id group by s.id, s.establishment_cuig, s.minimum_stock) l " +
+            "on conflict (supply_id) do update set available = excluded.available, minimum_stock = excluded.minimum_stock, " +
+            "below_minimum = excluded.below_minimum", nativeQuery = true)
+    int rebuildAllFromLedger();
+}
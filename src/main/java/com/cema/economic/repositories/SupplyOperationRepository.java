@@ -1,27 +1,135 @@
 package com.cema.economic.repositories;
 
-import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.domain.SupplyOperation;
 import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.repositories.projections.CategoryReportView;
+import com.cema.economic.repositories.projections.SupplyStockPointView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface SupplyOperationRepository extends JpaRepository<CemaSupplyOperation, UUID> {
+public interface SupplyOperationRepository extends JpaRepository<CemaSupplyOperation, UUID>, SupplyOperationSearchRepository {
 
+    @EntityGraph(CemaSupplyOperation.WITH_SUPPLY)
     CemaSupplyOperation findCemaSupplyOperationById(UUID id);
 
+    @EntityGraph(CemaSupplyOperation.WITH_SUPPLY)
     CemaSupplyOperation findCemaSupplyOperationByIdAndEstablishmentCuigIgnoreCase(UUID id, String cuig);
 
+    @EntityGraph(CemaSupplyOperation.WITH_SUPPLY)
     Page<CemaSupplyOperation> findAllByEstablishmentCuig(String cuig, Pageable paging);
 
+    String SUPPLY_OPERATION_VIEW = "select new com.cema.economic.domain.SupplyOperation(so.id, so.description, " +
+            "so.establishmentCuig, so.amount, so.operationType, so.operatorName, so.transactionDate, s.name) " +
+            "from CemaSupplyOperation so left join so.cemaSupply s";
+
+    /**
+     * Builds the domain objects from the selected columns, with the supply name joined in the same statement. Nothing
+     * is loaded into the persistence context, so there is nothing to dirty check or flush.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = SUPPLY_OPERATION_VIEW + " where so.establishmentCuig = ?1",
+            countQuery = "select count(so) from CemaSupplyOperation so where so.establishmentCuig = ?1")
+    Page<SupplyOperation> findOperationsByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(SUPPLY_OPERATION_VIEW + " where so.establishmentCuig = ?1")
+    Slice<SupplyOperation> findOperationSliceByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(value = SUPPLY_OPERATION_VIEW, countQuery = "select count(so) from CemaSupplyOperation so")
+    Page<SupplyOperation> findOperations(Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(SUPPLY_OPERATION_VIEW)
+    Slice<SupplyOperation> findOperationSlice(Pageable paging);
+
+    /**
+     * Keyset paging, newest first. The row comparison seeks straight to the cursor in the (cuig, date, id) index
+     * instead of reading and discarding every earlier row like an offset does. Only the ids are read here, the
+     * operations are then loaded with their supply through {@link #findAllByIdIn(Collection, Sort)}.
+     */
+    @Query(value = "select cast(so.id as varchar) from supply_operation so where so.establishment_cuig = ?1 " +
+            "and (so.transaction_date, so.id) < (?2, cast(?3 as uuid)) " +
+            "order by so.transaction_date desc, so.id desc limit ?4", nativeQuery = true)
+    List<String> findIdsByEstablishmentCuigBefore(String cuig, Timestamp transactionDate, String id, int limit);
+
+    @Query(value = "select cast(so.id as varchar) from supply_operation so where (so.transaction_date, so.id) < (?1, cast(?2 as uuid)) " +
+            "order by so.transaction_date desc, so.id desc limit ?3", nativeQuery = true)
+    List<String> findIdsBefore(Timestamp transactionDate, String id, int limit);
+
+    @EntityGraph(CemaSupplyOperation.WITH_SUPPLY)
+    List<CemaSupplyOperation> findAllByIdIn(Collection<UUID> ids, Sort sort);
+
+    boolean existsByEstablishmentCuigAndCemaSupplyName(String cuig, String supplyName);
+
+    @EntityGraph(CemaSupplyOperation.WITH_SUPPLY)
     List<CemaSupplyOperation> findAllByEstablishmentCuigAndCemaSupplyName(String cuig, String supplyName);
 
     @Query(value = "select sum(so.amount) from supply_operation so where establishment_cuig=?1 AND operation_type=?2", nativeQuery = true)
     Long getSumForOperationType(String cuig, String type);
+
+    @Query(value = "select coalesce(sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end), 0) " +
+            "from supply_operation so where so.supply_id = ?1 and so.transaction_date >= ?2 and so.transaction_date < ?3", nativeQuery = true)
+    long getSignedSumBetween(Integer supplyId, Date from, Date until);
+
+    @Query(value = "select coalesce(sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end), 0) " +
+            "from supply_operation so where so.supply_id = ?1 and so.transaction_date < ?2", nativeQuery = true)
+    long getSignedSumBefore(Integer supplyId, Date until);
+
+    @Query(value = "with movements as (" +
+            "select date_trunc(?5, so.transaction_date) as period, " +
+            "sum(case so.operation_type when 'buy' then so.amount when 'use' then -so.amount when 'loss' then -so.amount else 0 end) as movement " +
+            "from supply_operation so where so.supply_id = ?1 and so.transaction_date >= ?3 and so.transaction_date < ?4 group by 1) " +
+            "select p.period as period, cast(coalesce(m.movement, 0) as bigint) as movement, " +
+            "cast(?2 + sum(coalesce(m.movement, 0)) over (order by p.period) as bigint) as available " +
+            "from generate_series(date_trunc(?5, cast(?3 as timestamp)), date_trunc(?5, cast(?4 as timestamp) - interval '1 day'), " +
+            "cast('1 ' || ?5 as interval)) as p(period) " +
+            "left join movements m on m.period = p.period order by p.period", nativeQuery = true)
+    List<SupplyStockPointView> findStockHistory(Integer supplyId, long opening, Date from, Date until, String bucket);
+
+    /**
+     * Values every purchase at the price its supply had at the transaction date, supplies without price history use
+     * their current price.
+     */
+    @Query(value = "select cast(coalesce(sum(so.amount * coalesce(p.price, s.price, 0)), 0) as bigint) " +
+            "from supply_operation so join supply s on s.id = so.supply_id " +
+            "left join lateral (select sp.price from supply_price sp where sp.supply_id = so.supply_id and sp.valid_from <= so.transaction_date " +
+            "order by sp.valid_from desc limit 1) p on true " +
+            "where so.establishment_cuig = ?1 and so.operation_type = 'buy' and so.transaction_date >= ?2 and so.transaction_date < ?3",
+            nativeQuery = true)
+    long getValuedSpending(String cuig, Date from, Date until);
+
+    /**
+     * Reads the operations of the range through the cuig and transaction date index, every operation is valued at the
+     * price of its supply at the transaction date.
+     */
+    @Query(value = "select c.name as categoryName, " +
+            "cast(coalesce(sum(case when so.operation_type = 'buy' then so.amount * coalesce(p.price, s.price, 0) end), 0) as bigint) as spending, " +
+            "cast(coalesce(sum(case when so.operation_type = 'use' then so.amount * coalesce(p.price, s.price, 0) end), 0) as bigint) as consumption, " +
+            "cast(coalesce(sum(case when so.operation_type = 'loss' then so.amount * coalesce(p.price, s.price, 0) end), 0) as bigint) as losses, " +
+            "count(*) as operations " +
+            "from supply_operation so join supply s on s.id = so.supply_id join category c on c.name = s.category_name " +
+            "left join lateral (select sp.price from supply_price sp where sp.supply_id = so.supply_id and sp.valid_from <= so.transaction_date " +
+            "order by sp.valid_from desc limit 1) p on true " +
+            "where so.establishment_cuig = ?1 and so.transaction_date >= ?2 and so.transaction_date < ?3 " +
+            "and so.operation_type in ('buy', 'use', 'loss') " +
+            "group by c.name order by c.name", nativeQuery = true)
+    List<CategoryReportView> getCategoryReport(String cuig, Date from, Date until);
+
+    @Query("select min(so.transactionDate) from CemaSupplyOperation so where so.cemaSupply.id = ?1")
+    Date findFirstTransactionDate(Integer supplyId);
 }
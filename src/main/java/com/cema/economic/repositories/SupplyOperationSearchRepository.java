@@ -0,0 +1,14 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaSupplyOperation;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface SupplyOperationSearchRepository {
+
+    /**
+     * Returns at most limit operations matching the specification, newest first, with their supply fetched.
+     */
+    List<CemaSupplyOperation> search(Specification<CemaSupplyOperation> specification, int limit);
+}
@@ -0,0 +1,40 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaSupplyOperation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * Runs the search with a criteria query instead of JpaSpecificationExecutor, which would count every match to fill a
+ * Page the cursor paging never reads.
+ */
+public class SupplyOperationSearchRepositoryImpl implements SupplyOperationSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CemaSupplyOperation> search(Specification<CemaSupplyOperation> specification, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CemaSupplyOperation> query = builder.createQuery(CemaSupplyOperation.class);
+        Root<CemaSupplyOperation> root = query.from(CemaSupplyOperation.class);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(builder.desc(root.get("transactionDate")), builder.desc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setHint("javax.persistence.loadgraph", entityManager.getEntityGraph(CemaSupplyOperation.WITH_SUPPLY))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
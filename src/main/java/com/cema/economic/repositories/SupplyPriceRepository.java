@@ -0,0 +1,17 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.entities.CemaSupplyPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SupplyPriceRepository extends JpaRepository<CemaSupplyPrice, Long> {
+
+    boolean existsBySupplyId(Integer supplyId);
+
+    @Modifying
+    @Query("delete from CemaSupplyPrice sp where sp.supplyId = ?1")
+    int deleteBySupplyId(Integer supplyId);
+}
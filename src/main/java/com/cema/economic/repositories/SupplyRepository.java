@@ -1,21 +1,70 @@
 package com.cema.economic.repositories;
 
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.domain.Supply;
 import com.cema.economic.entities.CemaSupply;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface SupplyRepository extends JpaRepository<CemaSupply, String> {
+public interface SupplyRepository extends JpaRepository<CemaSupply, String>, JpaSpecificationExecutor<CemaSupply> {
 
     CemaSupply findCemaSupplyByNameAndEstablishmentCuigIgnoreCase(String name, String cuig);
 
+    /**
+     * The names must already be upper case, the supplies come oldest first.
+     */
+    @Query("select sup from CemaSupply sup where sup.establishmentCuig = ?1 and upper(sup.name) in ?2 order by sup.id")
+    List<CemaSupply> findAllByEstablishmentCuigAndUpperNameIn(String cuig, Collection<String> upperNames);
+
     Page<CemaSupply> findAllByEstablishmentCuig(String cuig, Pageable paging);
 
+    /**
+     * The next supplies after the id, so the jobs that go over every supply only hold a page of them at a time.
+     */
+    List<CemaSupply> findAllByIdGreaterThanOrderById(Integer id, Pageable paging);
+
+    String SUPPLY_VIEW = "select new com.cema.economic.domain.Supply(sup.units, sup.name, sup.price, sup.minimumStock, " +
+            "c.name, sup.establishmentCuig) from CemaSupply sup left join sup.category c";
+
+    /**
+     * Builds the domain objects from the selected columns, with the category name joined in the same statement.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = SUPPLY_VIEW + " where sup.establishmentCuig = ?1",
+            countQuery = "select count(sup) from CemaSupply sup where sup.establishmentCuig = ?1")
+    Page<Supply> findSuppliesByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(SUPPLY_VIEW + " where sup.establishmentCuig = ?1")
+    Slice<Supply> findSupplySliceByEstablishmentCuig(String cuig, Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(value = SUPPLY_VIEW, countQuery = "select count(sup) from CemaSupply sup")
+    Page<Supply> findSupplies(Pageable paging);
+
+    @Transactional(readOnly = true)
+    @Query(SUPPLY_VIEW)
+    Slice<Supply> findSupplySlice(Pageable paging);
+
     @Query("select sup.name from CemaSupply sup where sup.establishmentCuig =?1")
     List<String> findAllAvailableSupplies(String cuig);
+
+    @Query("select new com.cema.economic.domain.AvailableSupply(sup.name, coalesce(sum(case " +
+            "when so.operationType = 'buy' then so.amount " +
+            "when so.operationType = 'use' then -so.amount " +
+            "when so.operationType = 'loss' then -so.amount " +
+            "else 0 end), 0), sup.units, sup.minimumStock) " +
+            "from CemaSupply sup left join sup.cemaSupplyOperationList so where sup.establishmentCuig = ?1 " +
+            "group by sup.id, sup.name, sup.units, sup.minimumStock order by sup.name")
+    List<AvailableSupply> findAllAvailableSupplyTotals(String cuig);
 }
@@ -0,0 +1,8 @@
+package com.cema.economic.repositories.projections;
+
+public interface BovineMarginRankView extends BovineMarginView {
+
+    long getTopRank();
+
+    long getBottomRank();
+}
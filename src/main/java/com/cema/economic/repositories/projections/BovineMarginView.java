@@ -0,0 +1,12 @@
+package com.cema.economic.repositories.projections;
+
+public interface BovineMarginView {
+
+    String getBovineTag();
+
+    long getIncome();
+
+    long getSpending();
+
+    long getMargin();
+}
@@ -0,0 +1,14 @@
+package com.cema.economic.repositories.projections;
+
+public interface CategoryReportView {
+
+    String getCategoryName();
+
+    long getSpending();
+
+    long getConsumption();
+
+    long getLosses();
+
+    long getOperations();
+}
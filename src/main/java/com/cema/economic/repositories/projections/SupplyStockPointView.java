@@ -0,0 +1,12 @@
+package com.cema.economic.repositories.projections;
+
+import java.util.Date;
+
+public interface SupplyStockPointView {
+
+    Date getPeriod();
+
+    long getMovement();
+
+    long getAvailable();
+}
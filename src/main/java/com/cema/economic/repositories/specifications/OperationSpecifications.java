@@ -0,0 +1,107 @@
+package com.cema.economic.repositories.specifications;
+
+import com.cema.economic.domain.BovineOperationFilter;
+import com.cema.economic.domain.OperationCursor;
+import com.cema.economic.domain.SupplyOperationFilter;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.entities.CemaSupplyOperation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Search criteria shared by supply and bovine operations. Every filter left empty is skipped, so the query only carries
+ * the predicates the client sent.
+ */
+public class OperationSpecifications {
+
+    private OperationSpecifications() {
+    }
+
+    public static Specification<CemaSupplyOperation> matching(SupplyOperationFilter filter) {
+        Specification<CemaSupplyOperation> specification = Specification
+                .<CemaSupplyOperation>where(equalTo("establishmentCuig", filter.getEstablishmentCuig()))
+                .and(transactionBetween(filter.getFrom(), filter.getTo()))
+                .and(operationTypeIn(filter.getOperationTypes()))
+                .and(equalTo("operatorName", filter.getOperatorUserName()))
+                .and(amountBetween(filter.getMinAmount(), filter.getMaxAmount()));
+        if (StringUtils.hasText(filter.getSupplyName())) {
+            specification = specification.and((root, query, builder) ->
+                    builder.equal(root.join("cemaSupply").get("name"), filter.getSupplyName()));
+        }
+        return specification;
+    }
+
+    public static Specification<CemaBovineOperation> matching(BovineOperationFilter filter) {
+        return Specification
+                .<CemaBovineOperation>where(equalTo("establishmentCuig", filter.getEstablishmentCuig()))
+                .and(transactionBetween(filter.getFrom(), filter.getTo()))
+                .and(operationTypeIn(filter.getOperationTypes()))
+                .and(equalTo("bovineTag", filter.getBovineTag()))
+                .and(equalTo("operatorName", filter.getOperatorUserName()))
+                .and(amountBetween(filter.getMinAmount(), filter.getMaxAmount()));
+    }
+
+    /**
+     * The keyset condition of the cursor, newest first. The plain upper bound on the date lets the index scan start at
+     * the cursor, the rest breaks ties between operations of the same date.
+     */
+    public static <T> Specification<T> before(OperationCursor cursor) {
+        return (root, query, builder) -> builder.and(
+                builder.lessThanOrEqualTo(root.<Date>get("transactionDate"), cursor.getTransactionDate()),
+                builder.or(
+                        builder.lessThan(root.<Date>get("transactionDate"), cursor.getTransactionDate()),
+                        builder.lessThan(root.<UUID>get("id"), cursor.getId())));
+    }
+
+    private static <T> Specification<T> equalTo(String attribute, String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get(attribute), value);
+    }
+
+    private static <T> Specification<T> transactionBetween(Date from, Date to) {
+        return (root, query, builder) -> {
+            if (from == null && to == null) {
+                return null;
+            }
+            if (from == null) {
+                return builder.lessThan(root.get("transactionDate"), to);
+            }
+            if (to == null) {
+                return builder.greaterThanOrEqualTo(root.get("transactionDate"), from);
+            }
+            return builder.and(builder.greaterThanOrEqualTo(root.get("transactionDate"), from),
+                    builder.lessThan(root.get("transactionDate"), to));
+        };
+    }
+
+    private static <T> Specification<T> operationTypeIn(List<String> operationTypes) {
+        if (CollectionUtils.isEmpty(operationTypes)) {
+            return null;
+        }
+        List<String> types = operationTypes.stream().map(String::toLowerCase).distinct().collect(Collectors.toList());
+        return (root, query, builder) -> root.get("operationType").in(types);
+    }
+
+    private static <T> Specification<T> amountBetween(Long min, Long max) {
+        return (root, query, builder) -> {
+            if (min == null && max == null) {
+                return null;
+            }
+            if (min == null) {
+                return builder.lessThanOrEqualTo(root.get("amount"), max);
+            }
+            if (max == null) {
+                return builder.greaterThanOrEqualTo(root.get("amount"), min);
+            }
+            return builder.between(root.get("amount"), min, max);
+        };
+    }
+}
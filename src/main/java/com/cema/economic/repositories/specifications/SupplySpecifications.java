@@ -0,0 +1,65 @@
+package com.cema.economic.repositories.specifications;
+
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Supply search. The name matches as a case insensitive substring through upper(name) like '%TERM%', which the
+ * trigram index of V5 serves, and the results are ranked by their trigram similarity to the term.
+ */
+public class SupplySpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private SupplySpecifications() {
+    }
+
+    /**
+     * Every field of the example left empty is ignored. The ranking is applied here because a Sort can't order by a
+     * function, Spring Data drops it from the count query.
+     */
+    public static Specification<CemaSupply> matching(CemaSupply example, CemaCategory category) {
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            Expression<String> name = builder.upper(root.get("name"));
+            String term = StringUtils.hasText(example.getName()) ? example.getName().trim().toUpperCase() : null;
+            if (StringUtils.hasText(example.getEstablishmentCuig())) {
+                predicates.add(builder.equal(root.get("establishmentCuig"), example.getEstablishmentCuig()));
+            }
+            if (term != null) {
+                predicates.add(builder.like(name, "%" + escape(term) + "%", ESCAPE));
+            }
+            if (StringUtils.hasText(example.getUnits())) {
+                predicates.add(builder.like(builder.upper(root.get("units")),
+                        "%" + escape(example.getUnits().toUpperCase()) + "%", ESCAPE));
+            }
+            if (example.getPrice() != null) {
+                predicates.add(builder.equal(root.get("price"), example.getPrice()));
+            }
+            if (example.getMinimumStock() != null) {
+                predicates.add(builder.equal(root.get("minimumStock"), example.getMinimumStock()));
+            }
+            if (category != null) {
+                predicates.add(builder.equal(root.get("category"), category));
+            }
+            if (term != null) {
+                query.orderBy(builder.desc(builder.function("similarity", Double.class, name, builder.literal(term))),
+                        builder.asc(root.get("name")));
+            } else {
+                query.orderBy(builder.asc(root.get("name")));
+            }
+            return builder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static String escape(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,25 @@
+package com.cema.economic.services.balance;
+
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.entities.CemaSupply;
+
+import java.util.List;
+
+public interface SupplyBalanceService {
+
+    long getAvailable(CemaSupply cemaSupply);
+
+    void createBalance(CemaSupply cemaSupply);
+
+    void applyDelta(CemaSupply cemaSupply, long delta);
+
+    void consume(CemaSupply cemaSupply, long amount);
+
+    void deleteBalance(CemaSupply cemaSupply);
+
+    void updateMinimumStock(CemaSupply cemaSupply);
+
+    List<AvailableSupply> getBelowMinimum(String cuig);
+
+    int rebuildBalances(String cuig);
+}
@@ -0,0 +1,17 @@
+package com.cema.economic.services.balance;
+
+import com.cema.economic.entities.CemaSupply;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+public interface SupplyCheckpointService {
+
+    long getAvailableAsOf(CemaSupply cemaSupply, LocalDate asOf);
+
+    void applyDelta(CemaSupply cemaSupply, Date transactionDate, long delta);
+
+    void deleteCheckpoints(CemaSupply cemaSupply);
+
+    void createCurrentCheckpoints();
+}
@@ -0,0 +1,12 @@
+package com.cema.economic.services.balance;
+
+import com.cema.economic.domain.SupplyStockPoint;
+import com.cema.economic.entities.CemaSupply;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SupplyHistoryService {
+
+    List<SupplyStockPoint> getStockHistory(CemaSupply cemaSupply, LocalDate from, LocalDate to, String bucket);
+}
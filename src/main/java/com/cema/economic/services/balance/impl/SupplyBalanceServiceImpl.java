@@ -0,0 +1,137 @@
+package com.cema.economic.services.balance.impl;
+
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyBalance;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.cache.AvailabilityCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class SupplyBalanceServiceImpl implements SupplyBalanceService {
+
+    private final SupplyBalanceRepository supplyBalanceRepository;
+    private final AvailabilityCache availabilityCache;
+
+    public SupplyBalanceServiceImpl(SupplyBalanceRepository supplyBalanceRepository, AvailabilityCache availabilityCache) {
+        this.supplyBalanceRepository = supplyBalanceRepository;
+        this.availabilityCache = availabilityCache;
+    }
+
+    @Override
+    @Transactional
+    public long getAvailable(CemaSupply cemaSupply) {
+        Optional<CemaSupplyBalance> balance = supplyBalanceRepository.findById(cemaSupply.getId());
+        if (!balance.isPresent()) {
+            log.info("No balance found for supply {}, initializing it from its operations", cemaSupply.getId());
+            supplyBalanceRepository.initializeFromLedger(cemaSupply.getId());
+            balance = supplyBalanceRepository.findById(cemaSupply.getId());
+        }
+        return balance.map(CemaSupplyBalance::getAvailable).orElse(0L);
+    }
+
+    @Override
+    @Transactional
+    public void createBalance(CemaSupply cemaSupply) {
+        CemaSupplyBalance cemaSupplyBalance = CemaSupplyBalance.builder()
+                .supplyId(cemaSupply.getId())
+                .establishmentCuig(cemaSupply.getEstablishmentCuig())
+                .available(0L)
+                .minimumStock(cemaSupply.getMinimumStock())
+                .belowMinimum(cemaSupply.getMinimumStock() != null && cemaSupply.getMinimumStock() > 0)
+                .build();
+        supplyBalanceRepository.save(cemaSupplyBalance);
+        availabilityCache.invalidate(cemaSupply.getEstablishmentCuig(), cemaSupply.getName());
+    }
+
+    /**
+     * Must be called once the operation that caused the delta has been flushed. Supplies created before balances
+     * existed have no row yet, in that case the row is built from the operations, which already include this delta.
+     */
+    @Override
+    @Transactional
+    public void applyDelta(CemaSupply cemaSupply, long delta) {
+        Integer supplyId = cemaSupply.getId();
+        availabilityCache.invalidate(cemaSupply.getEstablishmentCuig(), cemaSupply.getName());
+        if (supplyBalanceRepository.addToAvailable(supplyId, delta) > 0) {
+            return;
+        }
+        if (supplyBalanceRepository.initializeFromLedger(supplyId) == 0) {
+            // Another transaction created the row first, so it did not see our operation.
+            supplyBalanceRepository.addToAvailable(supplyId, delta);
+        }
+    }
+
+    /**
+     * Check and decrement in a single conditional update, the row lock it takes is held until the transaction ends
+     * so concurrent consumptions of the same supply are serialized while other supplies are not affected.
+     * Must be called before the consuming operation is inserted.
+     */
+    @Override
+    @Transactional
+    public void consume(CemaSupply cemaSupply, long amount) {
+        Integer supplyId = cemaSupply.getId();
+        availabilityCache.invalidate(cemaSupply.getEstablishmentCuig(), cemaSupply.getName());
+        if (supplyBalanceRepository.consumeAvailable(supplyId, amount) > 0) {
+            return;
+        }
+        if (!supplyBalanceRepository.existsById(supplyId)) {
+            supplyBalanceRepository.initializeFromLedger(supplyId);
+            if (supplyBalanceRepository.consumeAvailable(supplyId, amount) > 0) {
+                return;
+            }
+        }
+        long available = supplyBalanceRepository.findById(supplyId).map(CemaSupplyBalance::getAvailable).orElse(0L);
+        throw new ValidationException(
+                String.format("This operation amount %d exceeds what is available %d for the supply %s", amount, available, cemaSupply.getName()));
+    }
+
+    @Override
+    @Transactional
+    public void deleteBalance(CemaSupply cemaSupply) {
+        supplyBalanceRepository.deleteBySupplyId(cemaSupply.getId());
+        availabilityCache.invalidate(cemaSupply.getEstablishmentCuig(), cemaSupply.getName());
+    }
+
+    /**
+     * The below minimum flag is kept by every update of the balance, so only a threshold change needs to re-evaluate it.
+     */
+    @Override
+    @Transactional
+    public void updateMinimumStock(CemaSupply cemaSupply) {
+        Long minimumStock = cemaSupply.getMinimumStock();
+        int updated = minimumStock != null
+                ? supplyBalanceRepository.updateMinimumStock(cemaSupply.getId(), minimumStock)
+                : supplyBalanceRepository.clearMinimumStock(cemaSupply.getId());
+        if (updated == 0) {
+            supplyBalanceRepository.initializeFromLedger(cemaSupply.getId());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailableSupply> getBelowMinimum(String cuig) {
+        return supplyBalanceRepository.findAllBelowMinimum(cuig);
+    }
+
+    @Override
+    @Transactional
+    public int rebuildBalances(String cuig) {
+        availabilityCache.invalidateAll();
+        if (StringUtils.hasText(cuig)) {
+            log.info("Rebuilding supply balances for establishment {}", cuig);
+            return supplyBalanceRepository.rebuildFromLedger(cuig);
+        }
+        log.info("Rebuilding supply balances for all establishments");
+        return supplyBalanceRepository.rebuildAllFromLedger();
+    }
+}
@@ -0,0 +1,165 @@
+package com.cema.economic.services.balance.impl;
+
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyBalanceCheckpoint;
+import com.cema.economic.repositories.SupplyBalanceCheckpointRepository;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps one checkpoint per supply and month with the availability at the start of that month, so the availability
+ * at any moment is the closest checkpoint plus at most a month of operations.
+ */
+@Service
+@Slf4j
+public class SupplyCheckpointServiceImpl implements SupplyCheckpointService {
+
+    private final SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    private final SupplyBalanceRepository supplyBalanceRepository;
+    private final SupplyOperationRepository supplyOperationRepository;
+    private final SupplyRepository supplyRepository;
+    private final SupplyBalanceService supplyBalanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+
+    public SupplyCheckpointServiceImpl(SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository,
+                                       SupplyBalanceRepository supplyBalanceRepository,
+                                       SupplyOperationRepository supplyOperationRepository,
+                                       SupplyRepository supplyRepository, SupplyBalanceService supplyBalanceService,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${app.checkpoints.page-size:500}") int pageSize) {
+        this.supplyBalanceCheckpointRepository = supplyBalanceCheckpointRepository;
+        this.supplyBalanceRepository = supplyBalanceRepository;
+        this.supplyOperationRepository = supplyOperationRepository;
+        this.supplyRepository = supplyRepository;
+        this.supplyBalanceService = supplyBalanceService;
+        this.transactionTemplate = transactionTemplate;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    @Transactional
+    public long getAvailableAsOf(CemaSupply cemaSupply, LocalDate asOf) {
+        Integer supplyId = cemaSupply.getId();
+        Date moment = toDate(asOf.plusDays(1));
+        Date period = toDate(asOf.withDayOfMonth(1));
+
+        Optional<CemaSupplyBalanceCheckpoint> checkpoint = supplyBalanceCheckpointRepository
+                .findFirstBySupplyIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(supplyId, moment);
+        if (!checkpoint.isPresent() || checkpoint.get().getPeriodStart().before(period)) {
+            createCheckpoints(cemaSupply, period);
+            checkpoint = supplyBalanceCheckpointRepository
+                    .findFirstBySupplyIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(supplyId, moment);
+        }
+
+        if (!checkpoint.isPresent()) {
+            return supplyOperationRepository.getSignedSumBefore(supplyId, moment);
+        }
+        CemaSupplyBalanceCheckpoint closest = checkpoint.get();
+        return closest.getAvailable() + supplyOperationRepository.getSignedSumBetween(supplyId, closest.getPeriodStart(), moment);
+    }
+
+    /**
+     * Operations registered with a past date change every checkpoint after them.
+     */
+    @Override
+    @Transactional
+    public void applyDelta(CemaSupply cemaSupply, Date transactionDate, long delta) {
+        if (delta == 0 || transactionDate == null) {
+            return;
+        }
+        supplyBalanceRepository.findBySupplyIdForUpdate(cemaSupply.getId());
+        supplyBalanceCheckpointRepository.addToCheckpointsAfter(cemaSupply.getId(), transactionDate, delta);
+    }
+
+    @Override
+    @Transactional
+    public void deleteCheckpoints(CemaSupply cemaSupply) {
+        supplyBalanceCheckpointRepository.deleteBySupplyId(cemaSupply.getId());
+    }
+
+    /**
+     * The supplies are read a page at a time and each one gets its checkpoints in a transaction of its own, so a supply
+     * that fails is logged and retried next month, or on its first read, without holding back the others.
+     */
+    @Override
+    @Scheduled(cron = "${app.checkpoints.cron:0 0 3 1 * *}")
+    public void createCurrentCheckpoints() {
+        Date period = toDate(LocalDate.now().withDayOfMonth(1));
+        log.info("Creating supply checkpoints for {}", period);
+        int supplies = 0;
+        int failed = 0;
+        Integer lastId = 0;
+        List<CemaSupply> page;
+        do {
+            page = supplyRepository.findAllByIdGreaterThanOrderById(lastId, PageRequest.of(0, pageSize));
+            for (CemaSupply cemaSupply : page) {
+                supplies++;
+                try {
+                    transactionTemplate.executeWithoutResult(status -> createCheckpoints(cemaSupply, period));
+                } catch (RuntimeException e) {
+                    failed++;
+                    log.error("Unable to create the checkpoints of supply {} for {}", cemaSupply.getId(), period, e);
+                }
+                lastId = cemaSupply.getId();
+            }
+        } while (page.size() == pageSize);
+        log.info("Created supply checkpoints for {}: {} supplies, {} failed", period, supplies, failed);
+    }
+
+    /**
+     * Fills the missing months up to lastPeriod. The balance row is locked first, as every write does, so operations
+     * being registered are either part of the new checkpoints or applied to them once they exist.
+     */
+    private void createCheckpoints(CemaSupply cemaSupply, Date lastPeriod) {
+        Integer supplyId = cemaSupply.getId();
+        supplyBalanceService.getAvailable(cemaSupply);
+        supplyBalanceRepository.findBySupplyIdForUpdate(supplyId);
+
+        Optional<CemaSupplyBalanceCheckpoint> latest = supplyBalanceCheckpointRepository.findFirstBySupplyIdOrderByPeriodStartDesc(supplyId);
+        if (latest.isPresent()) {
+            Date latestPeriod = latest.get().getPeriodStart();
+            if (!latestPeriod.before(lastPeriod)) {
+                return;
+            }
+            Date nextPeriod = toDate(toLocalDate(latestPeriod).plusMonths(1));
+            supplyBalanceCheckpointRepository.createMonthlyCheckpoints(supplyId, latest.get().getAvailable(), latestPeriod, nextPeriod, lastPeriod);
+            return;
+        }
+
+        Date firstOperation = supplyOperationRepository.findFirstTransactionDate(supplyId);
+        if (firstOperation == null) {
+            return;
+        }
+        Date firstPeriod = toDate(toLocalDate(firstOperation).withDayOfMonth(1));
+        if (firstPeriod.after(lastPeriod)) {
+            return;
+        }
+        log.info("Creating the first checkpoints for supply {} since {}", supplyId, firstPeriod);
+        supplyBalanceCheckpointRepository.createMonthlyCheckpoints(supplyId, 0, firstPeriod, firstPeriod, lastPeriod);
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,83 @@
+package com.cema.economic.services.balance.impl;
+
+import com.cema.economic.constants.HistoryBucket;
+import com.cema.economic.domain.SupplyStockPoint;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import com.cema.economic.services.balance.SupplyHistoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The running balance is computed by the database, the opening balance comes from the closest checkpoint.
+ */
+@Service
+@Slf4j
+public class SupplyHistoryServiceImpl implements SupplyHistoryService {
+
+    private static final long MAX_POINTS = 1000;
+
+    private final SupplyOperationRepository supplyOperationRepository;
+    private final SupplyCheckpointService supplyCheckpointService;
+
+    public SupplyHistoryServiceImpl(SupplyOperationRepository supplyOperationRepository,
+                                    SupplyCheckpointService supplyCheckpointService) {
+        this.supplyOperationRepository = supplyOperationRepository;
+        this.supplyCheckpointService = supplyCheckpointService;
+    }
+
+    @Override
+    @Transactional
+    public List<SupplyStockPoint> getStockHistory(CemaSupply cemaSupply, LocalDate from, LocalDate to, String bucket) {
+        validateRange(from, to, bucket);
+
+        long opening = supplyCheckpointService.getAvailableAsOf(cemaSupply, from.minusDays(1));
+        log.info("Calculating {} history for supply {} from {} to {} with opening {}", bucket, cemaSupply.getId(), from, to, opening);
+
+        return supplyOperationRepository.findStockHistory(cemaSupply.getId(), opening, toDate(from), toDate(to.plusDays(1)), bucket)
+                .stream()
+                .map(view -> SupplyStockPoint.builder()
+                        .period(view.getPeriod())
+                        .movement(view.getMovement())
+                        .available(view.getAvailable())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private void validateRange(LocalDate from, LocalDate to, String bucket) {
+        if (!HistoryBucket.VALUES.contains(bucket)) {
+            throw new ValidationException(String.format("The bucket %s is not one of %s", bucket, HistoryBucket.VALUES));
+        }
+        if (from.isAfter(to)) {
+            throw new ValidationException(String.format("The date from %s is after the date to %s", from, to));
+        }
+        long points;
+        switch (bucket) {
+            case HistoryBucket.DAY:
+                points = ChronoUnit.DAYS.between(from, to) + 1;
+                break;
+            case HistoryBucket.WEEK:
+                points = ChronoUnit.WEEKS.between(from, to) + 1;
+                break;
+            default:
+                points = ChronoUnit.MONTHS.between(from, to) + 1;
+        }
+        if (points > MAX_POINTS) {
+            throw new ValidationException(String.format("The history requested has %d points, the maximum is %d", points, MAX_POINTS));
+        }
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
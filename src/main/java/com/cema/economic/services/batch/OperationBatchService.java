@@ -0,0 +1,24 @@
+package com.cema.economic.services.batch;
+
+import com.cema.economic.domain.BatchItemResult;
+import com.cema.economic.domain.BovineBatchOperation;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.SupplyOperation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface OperationBatchService {
+
+    List<BatchItemResult<SupplyOperation>> registerSupplyOperations(List<SupplyOperation> supplyOperations);
+
+    /**
+     * Same as {@link #registerSupplyOperations(List)}, the outcome of every operator validated is kept in
+     * operatorErrors so a caller splitting many operations in batches validates each operator once.
+     */
+    List<BatchItemResult<SupplyOperation>> registerSupplyOperations(List<SupplyOperation> supplyOperations,
+                                                                    Map<String, Optional<String>> operatorErrors);
+
+    List<BovineOperation> registerBovineBatchOperation(BovineBatchOperation bovineBatchOperation);
+}
@@ -0,0 +1,396 @@
+package com.cema.economic.services.batch.impl;
+
+import com.cema.economic.constants.BatchItemStatus;
+import com.cema.economic.constants.Messages;
+import com.cema.economic.domain.BatchItemResult;
+import com.cema.economic.domain.BovineBatchOperation;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.SupplyOperation;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyBalance;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.exceptions.UnauthorizedException;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.Mapping;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import com.cema.economic.services.batch.OperationBatchService;
+import com.cema.economic.services.bovine.BovineOperationService;
+import com.cema.economic.services.calculation.CalculationService;
+import com.cema.economic.services.client.administration.AdministrationClientService;
+import com.cema.economic.services.client.bovine.BovineClientService;
+import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.validation.OperationValidationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+/**
+ * Registers many operations with the work the single endpoint repeats per operation done once per batch: every
+ * distinct operator is validated once, every distinct supply is looked up and has its balance locked once, and the
+ * availability is followed in memory while the items are walked in order. An item that fails is reported and skipped,
+ * the others are inserted together in a single transaction. A batch of bovines is rejected as a whole if any of its
+ * bovines is not valid, otherwise it is stored as one operation per bovine. The bovine service can only validate one
+ * bovine per call, so those calls are spread over a small pool of their own with the security context of the caller,
+ * whose token they send. The pool is not a bean on purpose, a TaskExecutor bean would replace the one Spring MVC uses
+ * for the streamed responses.
+ */
+@Service
+@Slf4j
+public class OperationBatchServiceImpl implements OperationBatchService {
+
+    private final AuthorizationService authorizationService;
+    private final UsersClientService usersClientService;
+    private final AdministrationClientService administrationClientService;
+    private final BovineClientService bovineClientService;
+    private final OperationValidationService<BovineOperation> bovineOperationValidationService;
+    private final Validator validator;
+    private final SupplyRepository supplyRepository;
+    private final SupplyOperationRepository supplyOperationRepository;
+    private final SupplyBalanceRepository supplyBalanceRepository;
+    private final SupplyBalanceService supplyBalanceService;
+    private final SupplyCheckpointService supplyCheckpointService;
+    private final CalculationService calculationService;
+    private final BovineOperationService bovineOperationService;
+    private final Mapping<CemaSupplyOperation, SupplyOperation> supplyOperationMapping;
+    private final Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor validationExecutor;
+    private final int maxSize;
+
+    public OperationBatchServiceImpl(AuthorizationService authorizationService, UsersClientService usersClientService,
+                                     AdministrationClientService administrationClientService,
+                                     BovineClientService bovineClientService,
+                                     OperationValidationService<BovineOperation> bovineOperationValidationService,
+                                     Validator validator, SupplyRepository supplyRepository,
+                                     SupplyOperationRepository supplyOperationRepository,
+                                     SupplyBalanceRepository supplyBalanceRepository,
+                                     SupplyBalanceService supplyBalanceService,
+                                     SupplyCheckpointService supplyCheckpointService,
+                                     CalculationService calculationService,
+                                     BovineOperationService bovineOperationService,
+                                     Mapping<CemaSupplyOperation, SupplyOperation> supplyOperationMapping,
+                                     Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping,
+                                     TransactionTemplate transactionTemplate,
+                                     @Value("${app.batch.max-size:1000}") int maxSize,
+                                     @Value("${app.batch.validation-threads:8}") int validationThreads) {
+        this.authorizationService = authorizationService;
+        this.usersClientService = usersClientService;
+        this.administrationClientService = administrationClientService;
+        this.bovineClientService = bovineClientService;
+        this.bovineOperationValidationService = bovineOperationValidationService;
+        this.validator = validator;
+        this.supplyRepository = supplyRepository;
+        this.supplyOperationRepository = supplyOperationRepository;
+        this.supplyBalanceRepository = supplyBalanceRepository;
+        this.supplyBalanceService = supplyBalanceService;
+        this.supplyCheckpointService = supplyCheckpointService;
+        this.calculationService = calculationService;
+        this.bovineOperationService = bovineOperationService;
+        this.supplyOperationMapping = supplyOperationMapping;
+        this.bovineOperationMapping = bovineOperationMapping;
+        this.transactionTemplate = transactionTemplate;
+        this.maxSize = maxSize;
+        this.validationExecutor = new ThreadPoolTaskExecutor();
+        this.validationExecutor.setCorePoolSize(validationThreads);
+        this.validationExecutor.setMaxPoolSize(validationThreads);
+        this.validationExecutor.setQueueCapacity(maxSize);
+        // A full queue makes the request validate its own bovines instead of failing.
+        this.validationExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        this.validationExecutor.setThreadNamePrefix("bovine-validation-");
+        this.validationExecutor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationExecutor.shutdown();
+    }
+
+    @Override
+    public List<BatchItemResult<SupplyOperation>> registerSupplyOperations(List<SupplyOperation> supplyOperations) {
+        return registerSupplyOperations(supplyOperations, new HashMap<>());
+    }
+
+    /**
+     * The operators are validated before the transaction starts, so the remote calls never hold the balance locks.
+     */
+    @Override
+    public List<BatchItemResult<SupplyOperation>> registerSupplyOperations(List<SupplyOperation> supplyOperations,
+                                                                           Map<String, Optional<String>> operatorErrors) {
+        validateSize(supplyOperations);
+        log.info("Registering a batch of {} supply operations", supplyOperations.size());
+
+        List<BatchItemResult<SupplyOperation>> results = new ArrayList<>(Collections.nCopies(supplyOperations.size(), null));
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < supplyOperations.size(); i++) {
+            SupplyOperation supplyOperation = supplyOperations.get(i);
+            Optional<String> error = validateItem(supplyOperation);
+            if (!error.isPresent()) {
+                error = operatorErrors.computeIfAbsent(supplyOperation.getOperatorUserName(), this::validateOperator);
+            }
+            if (error.isPresent()) {
+                results.set(i, failed(i, error.get()));
+            } else {
+                supplyOperation.setOperationType(supplyOperation.getOperationType().toLowerCase(Locale.ROOT));
+                pending.add(i);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> insertSupplyOperations(supplyOperations, pending, results));
+        }
+        return results;
+    }
+
+    /**
+     * The establishment, operator and batch are validated once instead of once per bovine, every bovine is validated
+     * once, several at a time, before anything is stored, and the amount of the batch is split between its bovines so the operations add
+     * up to it exactly.
+     */
+    @Override
+    public List<BovineOperation> registerBovineBatchOperation(BovineBatchOperation bovineBatchOperation) {
+        String cuig = bovineBatchOperation.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            throw new UnauthorizedException(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+        List<String> bovineTags = bovineBatchOperation.getBovineTags();
+        validateSize(bovineTags);
+        Set<String> distinctTags = new HashSet<>();
+        for (String bovineTag : bovineTags) {
+            if (!distinctTags.add(bovineTag)) {
+                throw new ValidationException(String.format("The bovine %s appears more than once in the batch", bovineTag));
+            }
+        }
+        bovineOperationValidationService.validateOperation(BovineOperation.builder()
+                .amount(bovineBatchOperation.getAmount())
+                .buyerName(bovineBatchOperation.getBuyerName())
+                .sellerName(bovineBatchOperation.getSellerName())
+                .build());
+        administrationClientService.validateEstablishment(cuig);
+        usersClientService.validateUser(bovineBatchOperation.getOperatorUserName());
+        bovineClientService.validateBatch(bovineBatchOperation.getBatchName(), cuig);
+        validateBovines(bovineTags, cuig);
+
+        log.info("Registering a {} of {} bovines of the batch {}", bovineBatchOperation.getOperationType(),
+                bovineTags.size(), bovineBatchOperation.getBatchName());
+        long share = bovineBatchOperation.getAmount() / bovineTags.size();
+        long remainder = bovineBatchOperation.getAmount() % bovineTags.size();
+        List<CemaBovineOperation> cemaBovineOperations = new ArrayList<>(bovineTags.size());
+        for (int i = 0; i < bovineTags.size(); i++) {
+            cemaBovineOperations.add(CemaBovineOperation.builder()
+                    .bovineTag(bovineTags.get(i))
+                    .amount(i < remainder ? share + 1 : share)
+                    .description(bovineBatchOperation.getDescription())
+                    .establishmentCuig(cuig)
+                    .sellerName(bovineBatchOperation.getSellerName())
+                    .buyerName(bovineBatchOperation.getBuyerName())
+                    .operationType(bovineBatchOperation.getOperationType().toLowerCase(Locale.ROOT))
+                    .operatorName(bovineBatchOperation.getOperatorUserName())
+                    .transactionDate(bovineBatchOperation.getTransactionDate())
+                    .build());
+        }
+
+        return bovineOperationService.saveBovineOperations(cemaBovineOperations).stream()
+                .map(bovineOperationMapping::mapEntityToDomain)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The first bovine of the batch that is not valid is reported, the validations still waiting are cancelled.
+     */
+    private void validateBovines(List<String> bovineTags, String cuig) {
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        List<Future<?>> validations = new ArrayList<>(bovineTags.size());
+        try {
+            for (String bovineTag : bovineTags) {
+                validations.add(validationExecutor.submit(new DelegatingSecurityContextRunnable(
+                        () -> bovineClientService.validateBovine(bovineTag, cuig), securityContext)));
+            }
+            for (Future<?> validation : validations) {
+                validation.get();
+            }
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating the bovines", interruptedException);
+        } finally {
+            validations.forEach(validation -> validation.cancel(true));
+        }
+    }
+
+    private void insertSupplyOperations(List<SupplyOperation> supplyOperations, List<Integer> pending,
+                                        List<BatchItemResult<SupplyOperation>> results) {
+        Map<String, List<CemaSupply>> supplies = findSupplies(supplyOperations, pending);
+
+        // Locked in id order so two batches touching the same supplies can't deadlock.
+        Map<Integer, Long> available = new HashMap<>();
+        supplies.values().stream().flatMap(List::stream).map(CemaSupply::getId).sorted()
+                .forEach(supplyId -> available.put(supplyId, lockBalance(supplyId)));
+
+        Map<Integer, Long> balanceDeltas = new HashMap<>();
+        Map<Integer, Map<Date, Long>> checkpointDeltas = new HashMap<>();
+        Map<Integer, CemaSupplyOperation> inserted = new LinkedHashMap<>();
+        for (Integer index : pending) {
+            SupplyOperation supplyOperation = supplyOperations.get(index);
+            CemaSupply cemaSupply = findSupply(supplies, supplyOperation);
+            if (cemaSupply == null) {
+                results.set(index, failed(index, String.format("The supply %s does not exists", supplyOperation.getSupplyName())));
+                continue;
+            }
+            CemaSupplyOperation cemaSupplyOperation = supplyOperationMapping.mapDomainToEntity(supplyOperation);
+            cemaSupplyOperation.setCemaSupply(cemaSupply);
+            long delta = calculationService.getSignedAmount(cemaSupplyOperation);
+            long current = available.get(cemaSupply.getId());
+            if (current + delta < 0) {
+                results.set(index, failed(index, String.format("This operation amount %d exceeds what is available %d for the supply %s",
+                        supplyOperation.getAmount(), current, cemaSupply.getName())));
+                continue;
+            }
+            available.put(cemaSupply.getId(), current + delta);
+            balanceDeltas.merge(cemaSupply.getId(), delta, Long::sum);
+            checkpointDeltas.computeIfAbsent(cemaSupply.getId(), supplyId -> new HashMap<>())
+                    .merge(cemaSupplyOperation.getTransactionDate(), delta, Long::sum);
+            inserted.put(index, cemaSupplyOperation);
+        }
+
+        supplyOperationRepository.saveAll(inserted.values());
+        supplyOperationRepository.flush();
+
+        for (CemaSupply cemaSupply : supplies.values().stream().flatMap(List::stream).collect(Collectors.toList())) {
+            long delta = balanceDeltas.getOrDefault(cemaSupply.getId(), 0L);
+            if (delta != 0) {
+                supplyBalanceService.applyDelta(cemaSupply, delta);
+            }
+            checkpointDeltas.getOrDefault(cemaSupply.getId(), new HashMap<>())
+                    .forEach((transactionDate, checkpointDelta) -> supplyCheckpointService.applyDelta(cemaSupply, transactionDate, checkpointDelta));
+        }
+        inserted.forEach((index, cemaSupplyOperation) -> results.set(index, BatchItemResult.<SupplyOperation>builder()
+                .index(index)
+                .status(BatchItemStatus.CREATED)
+                .item(supplyOperationMapping.mapEntityToDomain(cemaSupplyOperation))
+                .build()));
+        log.info("Inserted {} of {} supply operations", inserted.size(), results.size());
+    }
+
+    /**
+     * One query per establishment for every supply its operations name, ignoring the case of the names.
+     */
+    private Map<String, List<CemaSupply>> findSupplies(List<SupplyOperation> supplyOperations, List<Integer> pending) {
+        Map<String, Set<String>> namesByCuig = pending.stream()
+                .map(supplyOperations::get)
+                .collect(Collectors.groupingBy(SupplyOperation::getEstablishmentCuig,
+                        Collectors.mapping(supplyOperation -> supplyOperation.getSupplyName().toUpperCase(Locale.ROOT),
+                                Collectors.toSet())));
+        Map<String, List<CemaSupply>> supplies = new HashMap<>();
+        namesByCuig.forEach((cuig, names) -> supplyRepository.findAllByEstablishmentCuigAndUpperNameIn(cuig, names)
+                .forEach(cemaSupply -> supplies.computeIfAbsent(supplyKey(cuig, cemaSupply.getName()), key -> new ArrayList<>())
+                        .add(cemaSupply)));
+        return supplies;
+    }
+
+    /**
+     * Supplies whose names only differ in case can both exist, the one named exactly like the operation wins and
+     * otherwise the oldest.
+     */
+    private CemaSupply findSupply(Map<String, List<CemaSupply>> supplies, SupplyOperation supplyOperation) {
+        List<CemaSupply> candidates = supplies.get(supplyKey(supplyOperation.getEstablishmentCuig(), supplyOperation.getSupplyName()));
+        if (candidates == null) {
+            return null;
+        }
+        return candidates.stream()
+                .filter(cemaSupply -> cemaSupply.getName().equals(supplyOperation.getSupplyName()))
+                .findFirst()
+                .orElse(candidates.get(0));
+    }
+
+    /**
+     * Supplies created before balances existed get their row built from the operations first.
+     */
+    private long lockBalance(Integer supplyId) {
+        Optional<CemaSupplyBalance> balance = supplyBalanceRepository.findBySupplyIdForUpdate(supplyId);
+        if (!balance.isPresent()) {
+            supplyBalanceRepository.initializeFromLedger(supplyId);
+            balance = supplyBalanceRepository.findBySupplyIdForUpdate(supplyId);
+        }
+        return balance.map(CemaSupplyBalance::getAvailable).orElse(0L);
+    }
+
+    private Optional<String> validateItem(SupplyOperation supplyOperation) {
+        Set<ConstraintViolation<SupplyOperation>> violations = validator.validate(supplyOperation);
+        if (!violations.isEmpty()) {
+            return Optional.of(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        String cuig = supplyOperation.getEstablishmentCuig();
+        if (!authorizationService.isOnTheSameEstablishment(cuig)) {
+            return Optional.of(String.format(Messages.OUTSIDE_ESTABLISHMENT, cuig));
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> validateOperator(String operatorUserName) {
+        try {
+            usersClientService.validateUser(operatorUserName);
+            return Optional.empty();
+        } catch (ValidationException validationException) {
+            return Optional.of(validationException.getMessage());
+        }
+    }
+
+    private void validateSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ValidationException("The batch must have at least one operation");
+        }
+        if (items.size() > maxSize) {
+            throw new ValidationException(String.format("The batch can't have more than %d operations", maxSize));
+        }
+    }
+
+    private String supplyKey(String cuig, String supplyName) {
+        return cuig + '\u0000' + supplyName.toUpperCase(Locale.ROOT);
+    }
+
+    private <T> BatchItemResult<T> failed(int index, String error) {
+        return BatchItemResult.<T>builder()
+                .index(index)
+                .status(BatchItemStatus.FAILED)
+                .error(error)
+                .build();
+    }
+}
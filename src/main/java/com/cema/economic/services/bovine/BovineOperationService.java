@@ -0,0 +1,27 @@
+package com.cema.economic.services.bovine;
+
+import com.cema.economic.domain.BovineHistory;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.IncomeResponse;
+import com.cema.economic.domain.MonthlyIncome;
+import com.cema.economic.entities.CemaBovineOperation;
+
+import java.time.YearMonth;
+import java.util.List;
+
+public interface BovineOperationService {
+
+    CemaBovineOperation saveBovineOperation(CemaBovineOperation cemaBovineOperation);
+
+    List<CemaBovineOperation> saveBovineOperations(List<CemaBovineOperation> cemaBovineOperations);
+
+    CemaBovineOperation updateBovineOperation(CemaBovineOperation cemaBovineOperation, BovineOperation bovineOperation);
+
+    IncomeResponse getTotal(String cuig, YearMonth from, YearMonth to);
+
+    List<MonthlyIncome> getMonthlyTotals(String cuig, YearMonth from, YearMonth to);
+
+    int rebuildRollups(String cuig);
+
+    BovineHistory getBovineHistory(String cuig, String bovineTag);
+}
@@ -0,0 +1,200 @@
+package com.cema.economic.services.bovine.impl;
+
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.BovineHistory;
+import com.cema.economic.domain.BovineMargin;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.IncomeResponse;
+import com.cema.economic.domain.MonthlyIncome;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.entities.CemaBovineOperationRollup;
+import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.Mapping;
+import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.BovineOperationRollupRepository;
+import com.cema.economic.repositories.projections.BovineMarginView;
+import com.cema.economic.services.bovine.BovineOperationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Every write of a bovine operation is also added to the monthly rollup of its establishment and type, totals are
+ * read from the rollup so they never scan the operations.
+ */
+@Service
+@Slf4j
+public class BovineOperationServiceImpl implements BovineOperationService {
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(1900, 1);
+    private static final YearMonth LAST_MONTH = YearMonth.of(9999, 12);
+
+    private final BovineOperationRepository bovineOperationRepository;
+    private final BovineOperationRollupRepository bovineOperationRollupRepository;
+    private final Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping;
+
+    public BovineOperationServiceImpl(BovineOperationRepository bovineOperationRepository,
+                                      BovineOperationRollupRepository bovineOperationRollupRepository,
+                                      Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping) {
+        this.bovineOperationRepository = bovineOperationRepository;
+        this.bovineOperationRollupRepository = bovineOperationRollupRepository;
+        this.bovineOperationMapping = bovineOperationMapping;
+    }
+
+    @Override
+    @Transactional
+    public CemaBovineOperation saveBovineOperation(CemaBovineOperation cemaBovineOperation) {
+        CemaBovineOperation savedOperation = bovineOperationRepository.save(cemaBovineOperation);
+        addToRollup(savedOperation, 1);
+        return savedOperation;
+    }
+
+    /**
+     * The operations are inserted together and every rollup they touch is updated once with their sum.
+     */
+    @Override
+    @Transactional
+    public List<CemaBovineOperation> saveBovineOperations(List<CemaBovineOperation> cemaBovineOperations) {
+        List<CemaBovineOperation> savedOperations = bovineOperationRepository.saveAll(cemaBovineOperations);
+        bovineOperationRepository.flush();
+
+        Map<List<Object>, long[]> rollups = new HashMap<>();
+        for (CemaBovineOperation savedOperation : savedOperations) {
+            if (savedOperation.getTransactionDate() == null || savedOperation.getOperationType() == null) {
+                continue;
+            }
+            List<Object> key = Arrays.asList(savedOperation.getEstablishmentCuig(), toPeriodStart(savedOperation),
+                    savedOperation.getOperationType().toLowerCase());
+            long[] totals = rollups.computeIfAbsent(key, rollup -> new long[2]);
+            totals[0] += savedOperation.getAmount() != null ? savedOperation.getAmount() : 0L;
+            totals[1]++;
+        }
+        rollups.forEach((key, totals) -> bovineOperationRollupRepository.addToRollup((String) key.get(0), (Date) key.get(1),
+                (String) key.get(2), totals[0], totals[1]));
+        return savedOperations;
+    }
+
+    @Override
+    @Transactional
+    public CemaBovineOperation updateBovineOperation(CemaBovineOperation cemaBovineOperation, BovineOperation bovineOperation) {
+        addToRollup(cemaBovineOperation, -1);
+        cemaBovineOperation = bovineOperationMapping.updateDomainWithEntity(bovineOperation, cemaBovineOperation);
+        CemaBovineOperation savedOperation = bovineOperationRepository.save(cemaBovineOperation);
+        addToRollup(savedOperation, 1);
+        return savedOperation;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public IncomeResponse getTotal(String cuig, YearMonth from, YearMonth to) {
+        long income = 0;
+        long spending = 0;
+        for (MonthlyIncome monthlyIncome : getMonthlyTotals(cuig, from, to)) {
+            income += monthlyIncome.getIncome();
+            spending += monthlyIncome.getSpending();
+        }
+        return IncomeResponse.builder()
+                .income(income)
+                .spending(spending)
+                .total(income - spending)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MonthlyIncome> getMonthlyTotals(String cuig, YearMonth from, YearMonth to) {
+        from = from != null ? from : FIRST_MONTH;
+        to = to != null ? to : LAST_MONTH;
+        if (from.isAfter(to)) {
+            throw new ValidationException(String.format("The month from %s is after the month to %s", from, to));
+        }
+
+        List<CemaBovineOperationRollup> rollups = bovineOperationRollupRepository
+                .findAllByEstablishmentCuigAndPeriodStartBetweenOrderByPeriodStart(cuig, toDate(from), toDate(to));
+
+        Map<YearMonth, MonthlyIncome> months = new TreeMap<>();
+        for (CemaBovineOperationRollup rollup : rollups) {
+            if (rollup.getOperations() <= 0) {
+                // Every operation of the month was moved to another one.
+                continue;
+            }
+            YearMonth month = YearMonth.from(rollup.getPeriodStart().toInstant().atZone(ZoneId.systemDefault()));
+            MonthlyIncome monthlyIncome = months.computeIfAbsent(month, key -> MonthlyIncome.builder().month(key.toString()).build());
+            if (OperationType.SELL.equals(rollup.getOperationType())) {
+                monthlyIncome.setIncome(monthlyIncome.getIncome() + rollup.getAmount());
+            } else if (OperationType.BUY.equals(rollup.getOperationType())) {
+                monthlyIncome.setSpending(monthlyIncome.getSpending() + rollup.getAmount());
+            }
+            monthlyIncome.setTotal(monthlyIncome.getIncome() - monthlyIncome.getSpending());
+        }
+        return months.values().stream().collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public int rebuildRollups(String cuig) {
+        if (StringUtils.hasText(cuig)) {
+            log.info("Rebuilding bovine operation rollups for establishment {}", cuig);
+            bovineOperationRollupRepository.deleteByEstablishmentCuig(cuig);
+            return bovineOperationRollupRepository.rebuildFromOperations(cuig);
+        }
+        log.info("Rebuilding bovine operation rollups for all establishments");
+        bovineOperationRollupRepository.deleteAllInBatch();
+        return bovineOperationRollupRepository.rebuildAllFromOperations();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BovineHistory getBovineHistory(String cuig, String bovineTag) {
+        BovineMarginView marginView = bovineOperationRepository.getMargin(cuig, bovineTag);
+        if (marginView == null) {
+            throw new NotFoundException(String.format("Bovine %s has no operations", bovineTag));
+        }
+        BovineMargin margin = BovineMargin.builder()
+                .bovineTag(marginView.getBovineTag())
+                .income(marginView.getIncome())
+                .spending(marginView.getSpending())
+                .margin(marginView.getMargin())
+                .build();
+
+        List<BovineOperation> operations = bovineOperationRepository
+                .findAllByEstablishmentCuigAndBovineTagOrderByTransactionDate(cuig, bovineTag).stream()
+                .map(bovineOperationMapping::mapEntityToDomain)
+                .collect(Collectors.toList());
+
+        return BovineHistory.builder()
+                .margin(margin)
+                .operations(operations)
+                .build();
+    }
+
+    private void addToRollup(CemaBovineOperation cemaBovineOperation, int sign) {
+        if (cemaBovineOperation.getTransactionDate() == null || cemaBovineOperation.getOperationType() == null) {
+            return;
+        }
+        Date periodStart = toPeriodStart(cemaBovineOperation);
+        long amount = cemaBovineOperation.getAmount() != null ? cemaBovineOperation.getAmount() : 0L;
+        bovineOperationRollupRepository.addToRollup(cemaBovineOperation.getEstablishmentCuig(), periodStart,
+                cemaBovineOperation.getOperationType().toLowerCase(), sign * amount, sign);
+    }
+
+    private Date toPeriodStart(CemaBovineOperation cemaBovineOperation) {
+        return toDate(YearMonth.from(cemaBovineOperation.getTransactionDate().toInstant().atZone(ZoneId.systemDefault())));
+    }
+
+    private Date toDate(YearMonth month) {
+        return Date.from(month.atDay(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,12 @@
+package com.cema.economic.services.cache;
+
+import java.util.function.LongSupplier;
+
+public interface AvailabilityCache {
+
+    long getAvailable(String cuig, String supplyName, LongSupplier loader);
+
+    void invalidate(String cuig, String supplyName);
+
+    void invalidateAll();
+}
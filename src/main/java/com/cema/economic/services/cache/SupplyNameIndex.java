@@ -0,0 +1,13 @@
+package com.cema.economic.services.cache;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface SupplyNameIndex {
+
+    List<String> suggest(String cuig, String prefix, int limit, Supplier<List<String>> loader);
+
+    void add(String cuig, String supplyName);
+
+    void remove(String cuig, String supplyName);
+}
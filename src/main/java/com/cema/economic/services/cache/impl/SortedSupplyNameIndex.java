@@ -0,0 +1,178 @@
+package com.cema.economic.services.cache.impl;
+
+import com.cema.economic.services.cache.SupplyNameIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Supply names of every establishment in a sorted array, a prefix lookup is a binary search for the first name not
+ * before the prefix followed by a walk while the names still start with it. Readers never lock, writers replace the
+ * whole array. An establishment is loaded on its first lookup and kept current by add and remove, the least recently
+ * used ones are dropped past the configured limit.
+ */
+@Service
+@Slf4j
+public class SortedSupplyNameIndex implements SupplyNameIndex {
+
+    private static final String METRIC_NAME = "economic.supply.names";
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final boolean enabled;
+    private final Map<String, Names> establishments;
+    private final Counter loads;
+
+    public SortedSupplyNameIndex(@Value("${app.cache.supply-names.enabled:true}") boolean enabled,
+                                 @Value("${app.cache.supply-names.max-establishments:1000}") int maxEstablishments,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.loads = meterRegistry.counter(METRIC_NAME + ".loads");
+        this.establishments = new LinkedHashMap<String, Names>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Names> eldest) {
+                return size() > maxEstablishments;
+            }
+        };
+        meterRegistry.gauge(METRIC_NAME + ".establishments", this, SortedSupplyNameIndex::size);
+        log.info("Supply name index enabled: {}, max establishments: {}", enabled, maxEstablishments);
+    }
+
+    @Override
+    public List<String> suggest(String cuig, String prefix, int limit, Supplier<List<String>> loader) {
+        String[] names;
+        if (enabled) {
+            Names entry;
+            synchronized (establishments) {
+                entry = establishments.computeIfAbsent(cuig, key -> new Names());
+            }
+            names = entry.load(loader);
+        } else {
+            names = sort(loader.get());
+        }
+
+        List<String> suggestions = new ArrayList<>(Math.min(limit, names.length));
+        for (int i = firstNotBefore(names, prefix); i < names.length && suggestions.size() < limit; i++) {
+            if (!names[i].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            suggestions.add(names[i]);
+        }
+        return suggestions;
+    }
+
+    @Override
+    public void add(String cuig, String supplyName) {
+        update(cuig, names -> {
+            if (Arrays.binarySearch(names, supplyName, ORDER) >= 0) {
+                return names;
+            }
+            String[] updated = Arrays.copyOf(names, names.length + 1);
+            updated[names.length] = supplyName;
+            Arrays.sort(updated, ORDER);
+            return updated;
+        });
+    }
+
+    @Override
+    public void remove(String cuig, String supplyName) {
+        update(cuig, names -> Arrays.stream(names).filter(name -> !name.equals(supplyName)).toArray(String[]::new));
+    }
+
+    /**
+     * Only establishments already loaded are updated, the others read the committed names when they load. Inside a
+     * transaction the change waits for the commit, like the availability cache does.
+     */
+    private void update(String cuig, UnaryOperator<String[]> change) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            Names entry;
+            synchronized (establishments) {
+                entry = establishments.get(cuig);
+            }
+            if (entry != null) {
+                entry.change(change);
+            }
+        });
+    }
+
+    private int firstNotBefore(String[] names, String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(names[middle], prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private String[] sort(List<String> names) {
+        return names.stream().distinct().sorted(ORDER).collect(Collectors.toList()).toArray(new String[0]);
+    }
+
+    private double size() {
+        synchronized (establishments) {
+            return establishments.size();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Loading and changes hold the monitor of the establishment, so a change made while it loads is applied on top of
+     * the loaded names instead of being lost.
+     */
+    private class Names {
+        private volatile String[] sorted;
+
+        private String[] load(Supplier<List<String>> loader) {
+            String[] names = sorted;
+            if (names != null) {
+                return names;
+            }
+            synchronized (this) {
+                if (sorted == null) {
+                    loads.increment();
+                    sorted = sort(loader.get());
+                }
+                return sorted;
+            }
+        }
+
+        private synchronized void change(UnaryOperator<String[]> change) {
+            if (sorted != null) {
+                sorted = change.apply(sorted);
+            }
+        }
+    }
+}
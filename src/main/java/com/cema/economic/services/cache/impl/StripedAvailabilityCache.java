@@ -0,0 +1,178 @@
+package com.cema.economic.services.cache.impl;
+
+import com.cema.economic.services.cache.AvailabilityCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache split in stripes, each one guarded by its own lock. Every stripe keeps a generation that moves
+ * forward on each invalidation, a value loaded while the generation changed is not stored since it may be stale.
+ */
+@Service
+@Slf4j
+public class StripedAvailabilityCache implements AvailabilityCache {
+
+    private static final String METRIC_NAME = "economic.availability.cache";
+
+    private final boolean enabled;
+    private final Stripe[] stripes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public StripedAvailabilityCache(@Value("${app.cache.availability.enabled:true}") boolean enabled,
+                                    @Value("${app.cache.availability.max-entries:10000}") int maxEntries,
+                                    @Value("${app.cache.availability.stripes:16}") int stripeCount,
+                                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.hits = meterRegistry.counter(METRIC_NAME + ".requests", "result", "hit");
+        this.misses = meterRegistry.counter(METRIC_NAME + ".requests", "result", "miss");
+        this.evictions = meterRegistry.counter(METRIC_NAME + ".evictions");
+        this.stripes = new Stripe[stripeCount];
+        int entriesPerStripe = Math.max(1, maxEntries / stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(entriesPerStripe);
+        }
+        meterRegistry.gauge(METRIC_NAME + ".size", this, StripedAvailabilityCache::size);
+        log.info("Availability cache enabled: {}, max entries: {}, stripes: {}", enabled, maxEntries, stripeCount);
+    }
+
+    @Override
+    public long getAvailable(String cuig, String supplyName, LongSupplier loader) {
+        if (!enabled) {
+            return loader.getAsLong();
+        }
+        String key = key(cuig, supplyName);
+        Stripe stripe = stripeFor(key);
+        long generation;
+        stripe.lock.lock();
+        try {
+            Long available = stripe.entries.get(key);
+            if (available != null) {
+                hits.increment();
+                return available;
+            }
+            generation = stripe.generation;
+        } finally {
+            stripe.lock.unlock();
+        }
+        misses.increment();
+
+        long available = loader.getAsLong();
+
+        stripe.lock.lock();
+        try {
+            if (stripe.generation == generation) {
+                stripe.entries.put(key, available);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return available;
+    }
+
+    /**
+     * Inside a transaction the entry is dropped once it commits, otherwise readers could cache the value it replaces.
+     */
+    @Override
+    public void invalidate(String cuig, String supplyName) {
+        if (!enabled) {
+            return;
+        }
+        String key = key(cuig, supplyName);
+        afterCommit(() -> {
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                stripe.generation++;
+                stripe.entries.remove(key);
+            } finally {
+                stripe.lock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> {
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    stripe.generation++;
+                    stripe.entries.clear();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        });
+    }
+
+    private double size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private String key(String cuig, String supplyName) {
+        return cuig + '\u0000' + supplyName.toLowerCase(Locale.ROOT);
+    }
+
+    private class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Long> entries;
+        private long generation;
+
+        private Stripe(int maxEntries) {
+            this.entries = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
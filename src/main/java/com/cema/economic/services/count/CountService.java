@@ -0,0 +1,12 @@
+package com.cema.economic.services.count;
+
+public interface CountService {
+
+    long estimateCategories();
+
+    long estimateSupplies(String cuig);
+
+    long estimateSupplyOperations(String cuig);
+
+    long estimateBovineOperations(String cuig);
+}
@@ -0,0 +1,73 @@
+package com.cema.economic.services.count.impl;
+
+import com.cema.economic.repositories.BovineOperationRollupRepository;
+import com.cema.economic.services.count.CountService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+
+/**
+ * Totals for list headers that do not scan the table. Bovine operations of an establishment are summed from the
+ * monthly rollup, which is kept up to date on every write. Everything else is the row estimate of the Postgres
+ * planner, which comes from the table statistics and can be off by a few percent until the next analyze.
+ */
+@Service
+@Slf4j
+public class CountServiceImpl implements CountService {
+
+    private static final String ESTIMATE_ALL = "explain (format json) select 1 from %s";
+    private static final String ESTIMATE_BY_CUIG = "explain (format json) select 1 from %s where establishment_cuig = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BovineOperationRollupRepository bovineOperationRollupRepository;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public CountServiceImpl(DataSource dataSource, BovineOperationRollupRepository bovineOperationRollupRepository) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.bovineOperationRollupRepository = bovineOperationRollupRepository;
+    }
+
+    @Override
+    public long estimateCategories() {
+        return estimate("category", null);
+    }
+
+    @Override
+    public long estimateSupplies(String cuig) {
+        return estimate("supply", cuig);
+    }
+
+    @Override
+    public long estimateSupplyOperations(String cuig) {
+        return estimate("supply_operation", cuig);
+    }
+
+    @Override
+    public long estimateBovineOperations(String cuig) {
+        if (cuig == null) {
+            return estimate("bovine_operation", null);
+        }
+        return bovineOperationRollupRepository.sumOperations(cuig);
+    }
+
+    /**
+     * Only ever called with the table names above, the cuig is always a bound parameter.
+     */
+    private long estimate(String table, String cuig) {
+        String plan = cuig == null
+                ? jdbcTemplate.queryForObject(String.format(ESTIMATE_ALL, table), String.class)
+                : jdbcTemplate.queryForObject(String.format(ESTIMATE_BY_CUIG, table), String.class, cuig);
+        try {
+            JsonNode root = mapper.readTree(plan);
+            return root.path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException e) {
+            log.error("Unable to read the plan of {}", table, e);
+            return 0;
+        }
+    }
+}
@@ -1,16 +1,24 @@
 package com.cema.economic.services.database;
 
+import com.cema.economic.domain.Supply;
+import com.cema.economic.domain.SupplyOperation;
 import com.cema.economic.entities.CemaSupply;
 import com.cema.economic.entities.CemaSupplyOperation;
 import org.springframework.data.domain.Page;
 
 public interface DatabaseService {
-    int getAvailableSupplyByName(String name, String cuig);
+    long getAvailableSupplyByName(String name, String cuig);
 
     CemaSupplyOperation saveSupplyOperation(CemaSupplyOperation cemaSupplyOperation, String supplyName);
 
+    CemaSupplyOperation updateSupplyOperation(CemaSupplyOperation cemaSupplyOperation, SupplyOperation supplyOperation);
+
     CemaSupply saveCemaSupply(CemaSupply cemaSupply, String categoryName);
 
+    CemaSupply updateCemaSupply(CemaSupply cemaSupply, Supply supply);
+
+    void deleteCemaSupply(CemaSupply cemaSupply);
+
     Page<CemaSupply> searchSupplies(CemaSupply cemaSupply, String category, int page, int size);
 
     boolean canBeDeleted(String supplyName, String cuig);
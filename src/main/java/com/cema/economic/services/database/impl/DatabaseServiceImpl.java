@@ -1,25 +1,30 @@
 package com.cema.economic.services.database.impl;
 
+import com.cema.economic.domain.Supply;
+import com.cema.economic.domain.SupplyOperation;
 import com.cema.economic.entities.CemaCategory;
 import com.cema.economic.entities.CemaSupply;
 import com.cema.economic.entities.CemaSupplyOperation;
 import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.CategoryRepository;
 import com.cema.economic.repositories.SupplyOperationRepository;
 import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.repositories.specifications.SupplySpecifications;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import com.cema.economic.services.cache.AvailabilityCache;
 import com.cema.economic.services.calculation.CalculationService;
 import com.cema.economic.services.database.DatabaseService;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import com.cema.economic.services.price.SupplyPriceService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.util.List;
+import java.util.Date;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -29,27 +34,47 @@ public class DatabaseServiceImpl implements DatabaseService {
     private final SupplyRepository supplyRepository;
     private final SupplyOperationRepository supplyOperationRepository;
     private final CalculationService calculationService;
+    private final SupplyBalanceService supplyBalanceService;
+    private final Mapping<CemaSupplyOperation, SupplyOperation> supplyOperationMapping;
+    private final Mapping<CemaSupply, Supply> supplyMapping;
+    private final AvailabilityCache availabilityCache;
+    private final SupplyCheckpointService supplyCheckpointService;
+    private final SupplyPriceService supplyPriceService;
 
 
     public DatabaseServiceImpl(CategoryRepository categoryRepository, SupplyRepository supplyRepository,
-                               SupplyOperationRepository supplyOperationRepository, CalculationService calculationService) {
+                               SupplyOperationRepository supplyOperationRepository, CalculationService calculationService,
+                               SupplyBalanceService supplyBalanceService,
+                               Mapping<CemaSupplyOperation, SupplyOperation> supplyOperationMapping,
+                               Mapping<CemaSupply, Supply> supplyMapping,
+                               AvailabilityCache availabilityCache,
+                               SupplyCheckpointService supplyCheckpointService,
+                               SupplyPriceService supplyPriceService) {
         this.categoryRepository = categoryRepository;
         this.supplyRepository = supplyRepository;
         this.supplyOperationRepository = supplyOperationRepository;
         this.calculationService = calculationService;
+        this.supplyBalanceService = supplyBalanceService;
+        this.supplyOperationMapping = supplyOperationMapping;
+        this.supplyMapping = supplyMapping;
+        this.availabilityCache = availabilityCache;
+        this.supplyCheckpointService = supplyCheckpointService;
+        this.supplyPriceService = supplyPriceService;
     }
 
     @Override
-    public int getAvailableSupplyByName(String name, String cuig){
-        List<CemaSupplyOperation> supplyOperations = supplyOperationRepository.findAllByEstablishmentCuigAndCemaSupplyName(cuig, name);
-        int available = 0;
-        for (CemaSupplyOperation cemaSupplyOperation: supplyOperations) {
-            available += calculationService.getSignedAmount(cemaSupplyOperation);
-        }
-        return available;
+    public long getAvailableSupplyByName(String name, String cuig){
+        return availabilityCache.getAvailable(cuig, name, () -> {
+            CemaSupply cemaSupply = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase(name, cuig);
+            if (cemaSupply == null) {
+                return 0;
+            }
+            return supplyBalanceService.getAvailable(cemaSupply);
+        });
     }
 
     @Override
+    @Transactional
     public CemaSupplyOperation saveSupplyOperation(CemaSupplyOperation cemaSupplyOperation, String supplyName) {
         CemaSupply cemaSupply = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase(supplyName, cemaSupplyOperation.getEstablishmentCuig());
         if (cemaSupply == null) {
@@ -57,10 +82,42 @@ public class DatabaseServiceImpl implements DatabaseService {
         }
         cemaSupplyOperation.setCemaSupply(cemaSupply);
 
-        return supplyOperationRepository.save(cemaSupplyOperation);
+        long signedAmount = calculationService.getSignedAmount(cemaSupplyOperation);
+        CemaSupplyOperation savedOperation;
+        if (signedAmount < 0) {
+            supplyBalanceService.consume(cemaSupply, -signedAmount);
+            savedOperation = supplyOperationRepository.save(cemaSupplyOperation);
+        } else {
+            savedOperation = supplyOperationRepository.saveAndFlush(cemaSupplyOperation);
+            supplyBalanceService.applyDelta(cemaSupply, signedAmount);
+        }
+        supplyCheckpointService.applyDelta(cemaSupply, savedOperation.getTransactionDate(), signedAmount);
+        return savedOperation;
+    }
+
+    @Override
+    @Transactional
+    public CemaSupplyOperation updateSupplyOperation(CemaSupplyOperation cemaSupplyOperation, SupplyOperation supplyOperation) {
+        long previousAmount = calculationService.getSignedAmount(cemaSupplyOperation);
+        Date previousDate = cemaSupplyOperation.getTransactionDate();
+
+        cemaSupplyOperation = supplyOperationMapping.updateDomainWithEntity(supplyOperation, cemaSupplyOperation);
+        CemaSupplyOperation savedOperation = supplyOperationRepository.saveAndFlush(cemaSupplyOperation);
+
+        CemaSupply cemaSupply = savedOperation.getCemaSupply();
+        long amount = calculationService.getSignedAmount(savedOperation);
+        if (amount != previousAmount) {
+            supplyBalanceService.applyDelta(cemaSupply, amount - previousAmount);
+        }
+        if (amount != previousAmount || !Objects.equals(previousDate, savedOperation.getTransactionDate())) {
+            supplyCheckpointService.applyDelta(cemaSupply, previousDate, -previousAmount);
+            supplyCheckpointService.applyDelta(cemaSupply, savedOperation.getTransactionDate(), amount);
+        }
+        return savedOperation;
     }
 
     @Override
+    @Transactional
     public CemaSupply saveCemaSupply(CemaSupply cemaSupply, String categoryName) {
         Optional<CemaCategory> cemaCategoryOptional = categoryRepository.findById(categoryName);
         if (!cemaCategoryOptional.isPresent()) {
@@ -68,7 +125,32 @@ public class DatabaseServiceImpl implements DatabaseService {
         }
         cemaSupply.setCategory(cemaCategoryOptional.get());
 
-        return supplyRepository.save(cemaSupply);
+        CemaSupply savedSupply = supplyRepository.save(cemaSupply);
+        supplyBalanceService.createBalance(savedSupply);
+        supplyPriceService.recordInitialPrice(savedSupply);
+        return savedSupply;
+    }
+
+    @Override
+    @Transactional
+    public CemaSupply updateCemaSupply(CemaSupply cemaSupply, Supply supply) {
+        Long previousPrice = cemaSupply.getPrice();
+
+        cemaSupply = supplyMapping.updateDomainWithEntity(supply, cemaSupply);
+        CemaSupply savedSupply = supplyRepository.saveAndFlush(cemaSupply);
+
+        supplyPriceService.recordPriceChange(savedSupply, previousPrice);
+        supplyBalanceService.updateMinimumStock(savedSupply);
+        return savedSupply;
+    }
+
+    @Override
+    @Transactional
+    public void deleteCemaSupply(CemaSupply cemaSupply) {
+        supplyBalanceService.deleteBalance(cemaSupply);
+        supplyCheckpointService.deleteCheckpoints(cemaSupply);
+        supplyPriceService.deletePrices(cemaSupply);
+        supplyRepository.delete(cemaSupply);
     }
 
     @Override
@@ -80,17 +162,11 @@ public class DatabaseServiceImpl implements DatabaseService {
             }
             cemaSupply.setCategory(cemaCategory);
         }
-        ExampleMatcher caseInsensitiveExampleMatcher = ExampleMatcher
-                .matching()
-                .withIgnoreCase()
-                .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING);
-        Pageable paging = PageRequest.of(page, size, Sort.by("name"));
-        return supplyRepository.findAll(Example.of(cemaSupply, caseInsensitiveExampleMatcher), paging);
+        return supplyRepository.findAll(SupplySpecifications.matching(cemaSupply, cemaSupply.getCategory()), PageRequest.of(page, size));
     }
 
     @Override
     public boolean canBeDeleted(String supplyName, String cuig) {
-        List<CemaSupplyOperation> cemaSupplyOperationList = supplyOperationRepository.findAllByEstablishmentCuigAndCemaSupplyName(cuig, supplyName);
-        return CollectionUtils.isEmpty(cemaSupplyOperationList);
+        return !supplyOperationRepository.existsByEstablishmentCuigAndCemaSupplyName(cuig, supplyName);
     }
 }
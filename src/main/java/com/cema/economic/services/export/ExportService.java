@@ -0,0 +1,14 @@
+package com.cema.economic.services.export;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+public interface ExportService {
+
+    StreamingResponseBody exportSupplyOperations(String cuig, LocalDate from, LocalDate to, String format);
+
+    StreamingResponseBody exportBovineOperations(String cuig, LocalDate from, LocalDate to, String format);
+
+    String getContentType(String format);
+}
@@ -0,0 +1,146 @@
+package com.cema.economic.services.export.impl;
+
+import com.cema.economic.constants.ExportFormat;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.services.export.ExportService;
+import com.fasterxml.jackson.core.JsonFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Streams operations straight from a forward only cursor to the response. Postgres only uses a cursor, instead of
+ * sending the whole result, inside a transaction and with a fetch size, so rows are read in fixed size batches and
+ * written as they arrive.
+ */
+@Service
+@Slf4j
+public class ExportServiceImpl implements ExportService {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 30);
+
+    private static final String[] SUPPLY_COLUMNS = {"id", "supply_name", "operation_type", "amount", "operator_name",
+            "description", "transaction_date", "establishment_cuig"};
+    private static final String[] BOVINE_COLUMNS = {"id", "bovine_tag", "operation_type", "amount", "seller_name",
+            "buyer_name", "operator_name", "description", "transaction_date", "establishment_cuig"};
+
+    private static final String SUPPLY_OPERATIONS = "select so.id, s.name as supply_name, so.operation_type, so.amount, " +
+            "so.operator_name, so.description, so.transaction_date, so.establishment_cuig " +
+            "from supply_operation so left join supply s on s.id = so.supply_id " +
+            "where so.establishment_cuig = ? and so.transaction_date >= ? and so.transaction_date < ? " +
+            "order by so.transaction_date, so.id";
+
+    private static final String BOVINE_OPERATIONS = "select bo.id, bo.bovine_tag, bo.operation_type, bo.amount, bo.seller_name, " +
+            "bo.buyer_name, bo.operator_name, bo.description, bo.transaction_date, bo.establishment_cuig " +
+            "from bovine_operation bo " +
+            "where bo.establishment_cuig = ? and bo.transaction_date >= ? and bo.transaction_date < ? " +
+            "order by bo.transaction_date, bo.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ExportServiceImpl(DataSource dataSource, PlatformTransactionManager transactionManager,
+                             @Value("${app.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public StreamingResponseBody exportSupplyOperations(String cuig, LocalDate from, LocalDate to, String format) {
+        return export(SUPPLY_OPERATIONS, SUPPLY_COLUMNS, cuig, from, to, format);
+    }
+
+    @Override
+    public StreamingResponseBody exportBovineOperations(String cuig, LocalDate from, LocalDate to, String format) {
+        return export(BOVINE_OPERATIONS, BOVINE_COLUMNS, cuig, from, to, format);
+    }
+
+    @Override
+    public String getContentType(String format) {
+        return ExportFormat.NDJSON.equals(format) ? ExportFormat.NDJSON_CONTENT_TYPE : ExportFormat.CSV_CONTENT_TYPE;
+    }
+
+    /**
+     * Validates before the response starts, once rows are being written errors can no longer change the status.
+     */
+    private StreamingResponseBody export(String sql, String[] columns, String cuig, LocalDate from, LocalDate to, String format) {
+        if (!ExportFormat.VALUES.contains(format)) {
+            throw new ValidationException(String.format("The format %s is not one of %s", format, ExportFormat.VALUES));
+        }
+        LocalDate first = from != null ? from : FIRST_DAY;
+        LocalDate last = to != null ? to : LAST_DAY;
+        if (first.isAfter(last)) {
+            throw new ValidationException(String.format("The date from %s is after the date to %s", first, last));
+        }
+        Object[] parameters = {cuig, toDate(first), toDate(last.plusDays(1))};
+
+        return outputStream -> {
+            RowWriter rowWriter = createRowWriter(format, outputStream);
+            rowWriter.writeHeader(columns);
+            long rows = transactionTemplate.execute(status -> {
+                ExportRowCallbackHandler handler = new ExportRowCallbackHandler(rowWriter, columns.length);
+                jdbcTemplate.query(sql, handler, parameters);
+                return handler.rows;
+            });
+            rowWriter.finish();
+            log.info("Exported {} rows for establishment {} as {}", rows, cuig, format);
+        };
+    }
+
+    private RowWriter createRowWriter(String format, OutputStream outputStream) throws IOException {
+        if (ExportFormat.NDJSON.equals(format)) {
+            return new NdjsonRowWriter(jsonFactory, outputStream);
+        }
+        return new CsvRowWriter(outputStream);
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static class ExportRowCallbackHandler implements RowCallbackHandler {
+
+        private final RowWriter rowWriter;
+        private final Object[] values;
+        private long rows;
+
+        ExportRowCallbackHandler(RowWriter rowWriter, int columns) {
+            this.rowWriter = rowWriter;
+            this.values = new Object[columns];
+        }
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    Object value = resultSet.getObject(i + 1);
+                    values[i] = value instanceof Timestamp ? ((Timestamp) value).toInstant().toString() : value;
+                }
+                rowWriter.writeRow(values);
+                rows++;
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        }
+    }
+}
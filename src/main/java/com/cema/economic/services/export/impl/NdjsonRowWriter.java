@@ -0,0 +1,52 @@
+package com.cema.economic.services.export.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+class NdjsonRowWriter implements RowWriter {
+
+    private final JsonGenerator generator;
+    private String[] columns;
+    private boolean written;
+
+    NdjsonRowWriter(JsonFactory jsonFactory, OutputStream outputStream) throws IOException {
+        this.generator = jsonFactory.createGenerator(outputStream);
+        this.generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public void writeHeader(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void writeRow(Object[] values) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            generator.writeFieldName(columns[i]);
+            Object value = values[i];
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Number) {
+                generator.writeNumber(((Number) value).longValue());
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        written = true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (written) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+}
@@ -0,0 +1,15 @@
+package com.cema.economic.services.export.impl;
+
+import java.io.IOException;
+
+/**
+ * Writes the rows of an export one by one, without keeping them.
+ */
+interface RowWriter {
+
+    void writeHeader(String[] columns) throws IOException;
+
+    void writeRow(Object[] values) throws IOException;
+
+    void finish() throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.cema.economic.services.imports;
+
+import com.cema.economic.domain.ImportJob;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface ImportJobService {
+
+    ImportJob create(ImportJob importJob);
+
+    ImportJob getJob(UUID id);
+
+    ImportJob importOperations(UUID id, InputStream inputStream);
+}
@@ -0,0 +1,111 @@
+package com.cema.economic.services.imports.impl;
+
+import com.cema.economic.exceptions.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows the export writes, one at a time, so only the current row is ever held in memory. Quoted values may
+ * have commas, quotes and line breaks, empty values are read as null.
+ */
+class CsvRowReader {
+
+    private static final int END = -1;
+    private static final int NONE = -2;
+    private static final int MAX_VALUE_LENGTH = 4096;
+
+    private final Reader reader;
+    private final List<String> values = new ArrayList<>();
+    private final StringBuilder value = new StringBuilder();
+    private int next = NONE;
+
+    CsvRowReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the next row, or null once the input is over. Blank lines are skipped.
+     */
+    String[] readRow() throws IOException {
+        values.clear();
+        int character = read();
+        while (character == '\r' || character == '\n') {
+            character = read();
+        }
+        if (character == END) {
+            return null;
+        }
+        while (true) {
+            value.setLength(0);
+            boolean quoted = character == '"';
+            if (quoted) {
+                character = readQuoted();
+            } else {
+                while (character != ',' && character != '\r' && character != '\n' && character != END) {
+                    append(character);
+                    character = read();
+                }
+            }
+            values.add(value.length() > 0 || quoted ? value.toString() : null);
+            if (character != ',') {
+                if (character == '\r' && peek() == '\n') {
+                    read();
+                }
+                return values.toArray(new String[0]);
+            }
+            character = read();
+        }
+    }
+
+    /**
+     * Reads a quoted value and returns the character after its closing quote.
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int character = read();
+            if (character == END) {
+                throw new ValidationException("The file ends inside a quoted value");
+            }
+            if (character == '"') {
+                if (peek() != '"') {
+                    return read();
+                }
+                read();
+            }
+            append(character);
+        }
+    }
+
+    /**
+     * A file with an unclosed quote would otherwise keep growing a single value until the memory runs out.
+     */
+    private void append(int character) {
+        if (value.length() == MAX_VALUE_LENGTH) {
+            throw new ValidationException(String.format("A value is longer than %d characters", MAX_VALUE_LENGTH));
+        }
+        value.append((char) character);
+    }
+
+    private int read() throws IOException {
+        if (next != NONE) {
+            int character = next;
+            next = NONE;
+            return character;
+        }
+        return reader.read();
+    }
+
+    private int peek() throws IOException {
+        if (next == NONE) {
+            next = reader.read();
+        }
+        return next;
+    }
+}
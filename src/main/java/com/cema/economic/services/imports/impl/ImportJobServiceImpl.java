@@ -0,0 +1,453 @@
+package com.cema.economic.services.imports.impl;
+
+import com.cema.economic.constants.BatchItemStatus;
+import com.cema.economic.constants.ImportJobStatus;
+import com.cema.economic.constants.ImportType;
+import com.cema.economic.domain.BatchItemResult;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.ImportJob;
+import com.cema.economic.domain.ImportRowError;
+import com.cema.economic.domain.SupplyOperation;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.entities.CemaImportJob;
+import com.cema.economic.entities.CemaImportJobError;
+import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.Mapping;
+import com.cema.economic.repositories.ImportJobErrorRepository;
+import com.cema.economic.repositories.ImportJobRepository;
+import com.cema.economic.services.batch.OperationBatchService;
+import com.cema.economic.services.bovine.BovineOperationService;
+import com.cema.economic.services.client.administration.AdministrationClientService;
+import com.cema.economic.services.client.bovine.BovineClientService;
+import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.imports.ImportJobService;
+import com.cema.economic.services.validation.OperationValidationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Imports the operations of a csv, in the format the export writes, as it is read from the request. Rows are
+ * collected in batches of a fixed size and every batch is stored in its own transaction, so the memory used does not
+ * depend on the size of the file and the upload is only read as fast as the rows are stored. The operators, bovines
+ * and establishment are validated once per import, the progress is saved after every batch.
+ */
+@Service
+@Slf4j
+public class ImportJobServiceImpl implements ImportJobService {
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final List<String> SUPPLY_COLUMNS = Arrays.asList("supply_name", "operation_type", "amount",
+            "operator_name", "transaction_date");
+    private static final List<String> BOVINE_COLUMNS = Arrays.asList("bovine_tag", "operation_type", "amount",
+            "operator_name", "transaction_date");
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobErrorRepository importJobErrorRepository;
+    private final Mapping<CemaImportJob, ImportJob> importJobMapping;
+    private final Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping;
+    private final OperationValidationService<BovineOperation> bovineOperationValidationService;
+    private final OperationBatchService operationBatchService;
+    private final BovineOperationService bovineOperationService;
+    private final AdministrationClientService administrationClientService;
+    private final UsersClientService usersClientService;
+    private final BovineClientService bovineClientService;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ImportJobServiceImpl(ImportJobRepository importJobRepository,
+                                ImportJobErrorRepository importJobErrorRepository,
+                                Mapping<CemaImportJob, ImportJob> importJobMapping,
+                                Mapping<CemaBovineOperation, BovineOperation> bovineOperationMapping,
+                                OperationValidationService<BovineOperation> bovineOperationValidationService,
+                                OperationBatchService operationBatchService,
+                                BovineOperationService bovineOperationService,
+                                AdministrationClientService administrationClientService,
+                                UsersClientService usersClientService, BovineClientService bovineClientService,
+                                Validator validator,
+                                @Value("${app.imports.batch-size:500}") int batchSize,
+                                @Value("${app.imports.max-errors:100}") int maxErrors) {
+        this.importJobRepository = importJobRepository;
+        this.importJobErrorRepository = importJobErrorRepository;
+        this.importJobMapping = importJobMapping;
+        this.bovineOperationMapping = bovineOperationMapping;
+        this.bovineOperationValidationService = bovineOperationValidationService;
+        this.operationBatchService = operationBatchService;
+        this.bovineOperationService = bovineOperationService;
+        this.administrationClientService = administrationClientService;
+        this.usersClientService = usersClientService;
+        this.bovineClientService = bovineClientService;
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    @Override
+    public ImportJob create(ImportJob importJob) {
+        String importType = importJob.getImportType().toLowerCase(Locale.ROOT);
+        if (!ImportType.VALUES.contains(importType)) {
+            throw new ValidationException(String.format("The import %s is not one of %s", importType, ImportType.VALUES));
+        }
+        CemaImportJob cemaImportJob = importJobMapping.mapDomainToEntity(importJob);
+        cemaImportJob.setImportType(importType);
+        cemaImportJob.setStatus(ImportJobStatus.PENDING);
+        cemaImportJob.setCreatedAt(new Date());
+        CemaImportJob saved = importJobRepository.save(cemaImportJob);
+        log.info("Created {} import {} for establishment {}", importType, saved.getId(), saved.getEstablishmentCuig());
+        return importJobMapping.mapEntityToDomain(saved);
+    }
+
+    @Override
+    public ImportJob getJob(UUID id) {
+        return toDomain(findJob(id));
+    }
+
+    /**
+     * A job receives a single file. Batches stored before a failure are kept, rowsImported tells how many rows they
+     * had.
+     */
+    @Override
+    public ImportJob importOperations(UUID id, InputStream inputStream) {
+        CemaImportJob cemaImportJob = findJob(id);
+        if (importJobRepository.start(id, new Date()) == 0) {
+            throw new ValidationException(String.format("The import %s is %s, only pending imports can receive a file",
+                    id, cemaImportJob.getStatus()));
+        }
+        cemaImportJob = findJob(id);
+        log.info("Importing {} for establishment {} in import {}", cemaImportJob.getImportType(),
+                cemaImportJob.getEstablishmentCuig(), id);
+
+        ImportRun run = new ImportRun(cemaImportJob);
+        try {
+            administrationClientService.validateEstablishment(cemaImportJob.getEstablishmentCuig());
+            CsvRowReader csvRowReader = new CsvRowReader(inputStream);
+            if (ImportType.SUPPLY_OPERATIONS.equals(cemaImportJob.getImportType())) {
+                readRows(csvRowReader, SUPPLY_COLUMNS, run, this::toSupplyOperation, this::storeSupplyOperations);
+            } else {
+                readRows(csvRowReader, BOVINE_COLUMNS, run, this::toBovineOperation, this::storeBovineOperations);
+            }
+            run.cemaImportJob.setStatus(ImportJobStatus.DONE);
+        } catch (Exception e) {
+            log.error("Import {} failed", id, e);
+            run.cemaImportJob.setStatus(ImportJobStatus.FAILED);
+            run.cemaImportJob.setError(truncate(String.valueOf(e.getMessage())));
+        } finally {
+            run.cemaImportJob.setFinishedAt(new Date());
+            saveProgress(run);
+        }
+        log.info("Import {} finished {}: {} rows read, {} imported, {} failed", id, run.cemaImportJob.getStatus(),
+                run.cemaImportJob.getRowsRead(), run.cemaImportJob.getRowsImported(), run.cemaImportJob.getRowsFailed());
+        return toDomain(run.cemaImportJob);
+    }
+
+    private <T> void readRows(CsvRowReader csvRowReader, List<String> requiredColumns, ImportRun run,
+                              RowParser<T> rowParser, Consumer<Batch<T>> storeItems) throws IOException {
+        String[] header = csvRowReader.readRow();
+        if (header == null) {
+            throw new ValidationException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] != null) {
+                columns.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        List<String> missing = requiredColumns.stream().filter(column -> !columns.containsKey(column)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new ValidationException(String.format("The columns %s are missing", missing));
+        }
+
+        Batch<T> batch = new Batch<>(run);
+        String[] row;
+        while ((row = csvRowReader.readRow()) != null) {
+            long rowNumber = run.read();
+            try {
+                batch.add(rowNumber, rowParser.parse(new Row(columns, row), run.cemaImportJob.getEstablishmentCuig()));
+            } catch (ValidationException validationException) {
+                batch.fail(rowNumber, validationException.getMessage());
+            }
+            if (batch.rows() == batchSize) {
+                store(batch, storeItems);
+                saveProgress(run);
+                batch = new Batch<>(run);
+            }
+        }
+        store(batch, storeItems);
+    }
+
+    /**
+     * The failures are recorded in the order of the rows, whether the row could not be read or stored.
+     */
+    private <T> void store(Batch<T> batch, Consumer<Batch<T>> storeItems) {
+        if (!batch.items.isEmpty()) {
+            storeItems.accept(batch);
+        }
+        batch.failures.forEach(batch.run::fail);
+    }
+
+    private void storeSupplyOperations(Batch<SupplyOperation> batch) {
+        List<BatchItemResult<SupplyOperation>> results = operationBatchService.registerSupplyOperations(batch.items,
+                batch.run.operatorErrors);
+        for (BatchItemResult<SupplyOperation> result : results) {
+            if (BatchItemStatus.CREATED.equals(result.getStatus())) {
+                batch.run.imported(1);
+            } else {
+                batch.fail(batch.rowNumbers.get(result.getIndex()), result.getError());
+            }
+        }
+    }
+
+    private void storeBovineOperations(Batch<BovineOperation> batch) {
+        List<CemaBovineOperation> cemaBovineOperations = new ArrayList<>(batch.items.size());
+        for (int i = 0; i < batch.items.size(); i++) {
+            BovineOperation bovineOperation = batch.items.get(i);
+            Optional<String> error = validateBovineOperation(bovineOperation, batch.run);
+            if (error.isPresent()) {
+                batch.fail(batch.rowNumbers.get(i), error.get());
+                continue;
+            }
+            bovineOperation.setOperationType(bovineOperation.getOperationType().toLowerCase(Locale.ROOT));
+            cemaBovineOperations.add(bovineOperationMapping.mapDomainToEntity(bovineOperation));
+        }
+        if (!cemaBovineOperations.isEmpty()) {
+            bovineOperationService.saveBovineOperations(cemaBovineOperations);
+            batch.run.imported(cemaBovineOperations.size());
+        }
+    }
+
+    private Optional<String> validateBovineOperation(BovineOperation bovineOperation, ImportRun run) {
+        Set<ConstraintViolation<BovineOperation>> violations = validator.validate(bovineOperation);
+        if (!violations.isEmpty()) {
+            return Optional.of(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        try {
+            bovineOperationValidationService.validateOperation(bovineOperation);
+        } catch (ValidationException validationException) {
+            return Optional.of(validationException.getMessage());
+        }
+        Optional<String> error = run.operatorErrors.computeIfAbsent(bovineOperation.getOperatorUserName(),
+                operatorUserName -> validate(() -> usersClientService.validateUser(operatorUserName)));
+        if (error.isPresent()) {
+            return error;
+        }
+        String cuig = run.cemaImportJob.getEstablishmentCuig();
+        return run.bovineErrors.computeIfAbsent(bovineOperation.getBovineTag(),
+                bovineTag -> validate(() -> bovineClientService.validateBovine(bovineTag, cuig)));
+    }
+
+    private SupplyOperation toSupplyOperation(Row row, String cuig) {
+        return SupplyOperation.builder()
+                .supplyName(row.get("supply_name"))
+                .operationType(row.get("operation_type"))
+                .amount(row.getLong("amount"))
+                .operatorUserName(row.get("operator_name"))
+                .description(row.get("description"))
+                .transactionDate(row.getDate("transaction_date"))
+                .establishmentCuig(row.getCuig(cuig))
+                .build();
+    }
+
+    private BovineOperation toBovineOperation(Row row, String cuig) {
+        return BovineOperation.builder()
+                .bovineTag(row.get("bovine_tag"))
+                .operationType(row.get("operation_type"))
+                .amount(row.getLong("amount"))
+                .sellerName(row.get("seller_name"))
+                .buyerName(row.get("buyer_name"))
+                .operatorUserName(row.get("operator_name"))
+                .description(row.get("description"))
+                .transactionDate(row.getDate("transaction_date"))
+                .establishmentCuig(row.getCuig(cuig))
+                .build();
+    }
+
+    /**
+     * Saves the counters and the row errors collected since the last call, these are what the status endpoint shows.
+     */
+    private void saveProgress(ImportRun run) {
+        if (!run.errors.isEmpty()) {
+            importJobErrorRepository.saveAll(run.errors);
+            run.errors.clear();
+        }
+        run.cemaImportJob = importJobRepository.save(run.cemaImportJob);
+    }
+
+    private Optional<String> validate(Runnable validation) {
+        try {
+            validation.run();
+            return Optional.empty();
+        } catch (ValidationException validationException) {
+            return Optional.of(validationException.getMessage());
+        }
+    }
+
+    private ImportJob toDomain(CemaImportJob cemaImportJob) {
+        ImportJob importJob = importJobMapping.mapEntityToDomain(cemaImportJob);
+        importJob.setErrors(importJobErrorRepository.findAllByImportJobIdOrderByRowNumber(cemaImportJob.getId()).stream()
+                .map(error -> ImportRowError.builder().row(error.getRowNumber()).message(error.getMessage()).build())
+                .collect(Collectors.toList()));
+        return importJob;
+    }
+
+    private CemaImportJob findJob(UUID id) {
+        CemaImportJob cemaImportJob = importJobRepository.findCemaImportJobById(id);
+        if (cemaImportJob == null) {
+            throw new NotFoundException(String.format("Import %s doesn't exits", id));
+        }
+        return cemaImportJob;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private interface RowParser<T> {
+        T parse(Row row, String cuig);
+    }
+
+    /**
+     * The state of an import while its file is read: the job with its counters, the row errors not saved yet and the
+     * validations already done.
+     */
+    private class ImportRun {
+
+        private CemaImportJob cemaImportJob;
+        private final List<CemaImportJobError> errors = new ArrayList<>();
+        private final Map<String, Optional<String>> operatorErrors = new HashMap<>();
+        private final Map<String, Optional<String>> bovineErrors = new HashMap<>();
+
+        private ImportRun(CemaImportJob cemaImportJob) {
+            this.cemaImportJob = cemaImportJob;
+        }
+
+        private long read() {
+            cemaImportJob.setRowsRead(cemaImportJob.getRowsRead() + 1);
+            return cemaImportJob.getRowsRead();
+        }
+
+        private void imported(int rows) {
+            cemaImportJob.setRowsImported(cemaImportJob.getRowsImported() + rows);
+        }
+
+        /**
+         * Every failed row is counted, only the first ones are kept with their error.
+         */
+        private void fail(long rowNumber, String message) {
+            if (cemaImportJob.getRowsFailed() < maxErrors) {
+                errors.add(CemaImportJobError.builder()
+                        .importJobId(cemaImportJob.getId())
+                        .rowNumber(rowNumber)
+                        .message(truncate(String.valueOf(message)))
+                        .build());
+            }
+            cemaImportJob.setRowsFailed(cemaImportJob.getRowsFailed() + 1);
+        }
+    }
+
+    private static class Batch<T> {
+
+        private final ImportRun run;
+        private final List<T> items = new ArrayList<>();
+        private final List<Long> rowNumbers = new ArrayList<>();
+        private final Map<Long, String> failures = new TreeMap<>();
+
+        private Batch(ImportRun run) {
+            this.run = run;
+        }
+
+        private void add(long rowNumber, T item) {
+            items.add(item);
+            rowNumbers.add(rowNumber);
+        }
+
+        private void fail(long rowNumber, String message) {
+            failures.put(rowNumber, message);
+        }
+
+        private int rows() {
+            return items.size() + failures.size();
+        }
+    }
+
+    private static class Row {
+
+        private final Map<String, Integer> columns;
+        private final String[] values;
+
+        private Row(Map<String, Integer> columns, String[] values) {
+            this.columns = columns;
+            this.values = values;
+        }
+
+        private String get(String column) {
+            Integer index = columns.get(column);
+            return index != null && index < values.length ? values[index] : null;
+        }
+
+        private Long getLong(String column) {
+            String value = get(column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new ValidationException(String.format("The %s %s is not a number", column, value));
+            }
+        }
+
+        /**
+         * Accepts the instants the export writes and plain days.
+         */
+        private Date getDate(String column) {
+            String value = get(column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                if (value.length() == 10) {
+                    return Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+                }
+                return Date.from(Instant.parse(value));
+            } catch (DateTimeParseException e) {
+                throw new ValidationException(String.format("The %s %s is not a date", column, value));
+            }
+        }
+
+        private String getCuig(String cuig) {
+            String value = get("establishment_cuig");
+            if (value != null && !value.equals(cuig)) {
+                throw new ValidationException(String.format("The row is for the establishment %s, not %s", value, cuig));
+            }
+            return cuig;
+        }
+    }
+}
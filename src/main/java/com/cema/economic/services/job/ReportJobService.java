@@ -0,0 +1,19 @@
+package com.cema.economic.services.job;
+
+import com.cema.economic.domain.ReportJob;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+public interface ReportJobService {
+
+    ReportJob submit(ReportJob reportJob);
+
+    ReportJob getJob(UUID id);
+
+    StreamingResponseBody getResult(UUID id);
+
+    String getContentType(String format);
+
+    void deleteExpiredJobs();
+}
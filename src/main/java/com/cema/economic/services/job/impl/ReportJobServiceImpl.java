@@ -0,0 +1,322 @@
+package com.cema.economic.services.job.impl;
+
+import com.cema.economic.constants.ExportFormat;
+import com.cema.economic.constants.ReportJobStatus;
+import com.cema.economic.constants.ReportType;
+import com.cema.economic.domain.CategoryReport;
+import com.cema.economic.domain.ReportJob;
+import com.cema.economic.entities.CemaReportJob;
+import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.exceptions.TooManyRequestsException;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.Mapping;
+import com.cema.economic.repositories.ReportJobRepository;
+import com.cema.economic.services.export.ExportService;
+import com.cema.economic.services.job.ReportJobService;
+import com.cema.economic.services.report.ReportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Runs reports that are too slow for a request in a small pool of its own and keeps the result in the database, in
+ * chunks, until the job expires, so any instance can serve or delete the result of a job another one ran. Every
+ * establishment can only have a few jobs queued or running at once, so one of them can not fill the queue for the
+ * rest; the jobs are counted in the database so the limit holds across instances. Jobs an instance did not finish
+ * before it stopped are failed by the cleanup once they time out. The pool is not a bean on purpose, a TaskExecutor
+ * bean would replace the one Spring MVC uses for the streamed responses.
+ */
+@Service
+@Slf4j
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 30);
+    private static final int MAX_ERROR_LENGTH = 255;
+    private static final String INSERT_CHUNK = "insert into report_job_chunk (job_id, seq, data) values (?, ?, ?)";
+    private static final String SELECT_CHUNK = "select data from report_job_chunk where job_id = ? and seq = ?";
+    private static final String DELETE_CHUNKS = "delete from report_job_chunk where job_id = ?";
+
+    private final ReportJobRepository reportJobRepository;
+    private final Mapping<CemaReportJob, ReportJob> reportJobMapping;
+    private final ExportService exportService;
+    private final ReportService reportService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final int chunkSize;
+    private final Duration ttl;
+    private final Duration timeout;
+    private final int maxPerEstablishment;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ReportJobServiceImpl(ReportJobRepository reportJobRepository,
+                                Mapping<CemaReportJob, ReportJob> reportJobMapping,
+                                ExportService exportService, ReportService reportService,
+                                PlatformTransactionManager transactionManager, DataSource dataSource,
+                                @Value("${app.jobs.threads:2}") int threads,
+                                @Value("${app.jobs.queue-capacity:50}") int queueCapacity,
+                                @Value("${app.jobs.max-per-establishment:2}") int maxPerEstablishment,
+                                @Value("${app.jobs.ttl:PT24H}") Duration ttl,
+                                @Value("${app.jobs.timeout:PT2H}") Duration timeout,
+                                @Value("${app.jobs.chunk-size:1048576}") int chunkSize) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportJobMapping = reportJobMapping;
+        this.exportService = exportService;
+        this.reportService = reportService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.maxPerEstablishment = maxPerEstablishment;
+        this.ttl = ttl;
+        this.timeout = timeout;
+        this.chunkSize = chunkSize;
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("report-job-");
+        this.executor.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Everything that can be wrong with the request is checked here, so the caller gets the error instead of a failed
+     * job. The job is saved before it is queued, the worker may pick it up before this method returns.
+     */
+    @Override
+    public ReportJob submit(ReportJob reportJob) {
+        String reportType = reportJob.getReportType().toLowerCase();
+        List<String> formats = ReportType.FORMATS.get(reportType);
+        if (formats == null) {
+            throw new ValidationException(String.format("The report %s is not one of %s", reportType, ReportType.VALUES));
+        }
+        String format = StringUtils.hasText(reportJob.getFormat()) ? reportJob.getFormat().toLowerCase() : formats.get(0);
+        if (!formats.contains(format)) {
+            throw new ValidationException(String.format("The format %s is not one of %s", format, formats));
+        }
+        LocalDate from = reportJob.getFrom() != null ? toLocalDate(reportJob.getFrom()) : null;
+        LocalDate to = reportJob.getTo() != null ? toLocalDate(reportJob.getTo()) : null;
+        LocalDate first = from != null ? from : FIRST_DAY;
+        LocalDate last = to != null ? to : LAST_DAY;
+        if (first.isAfter(last)) {
+            throw new ValidationException(String.format("The date from %s is after the date to %s", first, last));
+        }
+        String cuig = reportJob.getEstablishmentCuig();
+        StreamingResponseBody body = createBody(reportType, cuig, from, to, format);
+
+        Date now = new Date();
+        CemaReportJob cemaReportJob = reportJobMapping.mapDomainToEntity(reportJob);
+        cemaReportJob.setReportType(reportType);
+        cemaReportJob.setFormat(format);
+        cemaReportJob.setStatus(ReportJobStatus.PENDING);
+        cemaReportJob.setCreatedAt(now);
+        cemaReportJob.setExpiresAt(Date.from(now.toInstant().plus(ttl)));
+        CemaReportJob saved = transactionTemplate.execute(status -> {
+            reportJobRepository.lockEstablishment(cuig);
+            if (reportJobRepository.countByEstablishmentCuigAndStatusIn(cuig, ReportJobStatus.IN_PROGRESS) >= maxPerEstablishment) {
+                throw new TooManyRequestsException(String.format("The establishment %s already has %d reports in progress",
+                        cuig, maxPerEstablishment));
+            }
+            return reportJobRepository.save(cemaReportJob);
+        });
+
+        try {
+            executor.execute(() -> run(saved, body));
+        } catch (TaskRejectedException e) {
+            saved.setStatus(ReportJobStatus.FAILED);
+            saved.setError("The report queue is full");
+            saved.setFinishedAt(now);
+            reportJobRepository.save(saved);
+            throw new TooManyRequestsException("The report queue is full, try again later");
+        }
+        log.info("Queued {} report {} for establishment {}", reportType, saved.getId(), cuig);
+        return reportJobMapping.mapEntityToDomain(saved);
+    }
+
+    @Override
+    public ReportJob getJob(UUID id) {
+        return reportJobMapping.mapEntityToDomain(findJob(id));
+    }
+
+    @Override
+    public StreamingResponseBody getResult(UUID id) {
+        CemaReportJob cemaReportJob = findJob(id);
+        if (!ReportJobStatus.DONE.equals(cemaReportJob.getStatus())) {
+            throw new ValidationException(String.format("The report %s is %s", id, cemaReportJob.getStatus()));
+        }
+        return outputStream -> {
+            for (int seq = 0; ; seq++) {
+                List<byte[]> chunk = jdbcTemplate.query(SELECT_CHUNK, (resultSet, rowNum) -> resultSet.getBytes(1), id, seq);
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                outputStream.write(chunk.get(0));
+            }
+        };
+    }
+
+    @Override
+    public String getContentType(String format) {
+        return ReportType.JSON_FORMAT.equals(format) ? "application/json" : exportService.getContentType(format);
+    }
+
+    /**
+     * Jobs running for longer than the timeout are failed first, so they stop counting against their establishment
+     * and are deleted once they expire like the others. The time a job waits in the queue does not count, jobs
+     * left pending by a stopped instance are deleted when they expire.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.jobs.cleanup-delay:600000}")
+    public void deleteExpiredJobs() {
+        Date now = new Date();
+        int interrupted = reportJobRepository.failJobsStartedBefore(Date.from(now.toInstant().minus(timeout)),
+                "The report did not finish in time", now, Date.from(now.toInstant().plus(ttl)));
+        if (interrupted > 0) {
+            log.warn("Failed {} reports that did not finish in {}", interrupted, timeout);
+        }
+
+        int expired = reportJobRepository.deleteExpiredJobs(now);
+        if (expired > 0) {
+            log.info("Deleted {} expired reports", expired);
+        }
+    }
+
+    private StreamingResponseBody createBody(String reportType, String cuig, LocalDate from, LocalDate to, String format) {
+        switch (reportType) {
+            case ReportType.SUPPLY_OPERATIONS:
+                return exportService.exportSupplyOperations(cuig, from, to, format);
+            case ReportType.BOVINE_OPERATIONS:
+                return exportService.exportBovineOperations(cuig, from, to, format);
+            default:
+                return outputStream -> {
+                    List<CategoryReport> categoryReports = reportService.getCategoryReport(cuig, from, to);
+                    mapper.writeValue(outputStream, categoryReports);
+                };
+        }
+    }
+
+    /**
+     * Every change of status is conditional on the one before, so a job the cleanup failed is neither started nor
+     * brought back by a worker that finishes it late.
+     */
+    private void run(CemaReportJob cemaReportJob, StreamingResponseBody body) {
+        UUID id = cemaReportJob.getId();
+        if (reportJobRepository.start(id, new Date()) == 0) {
+            log.info("Report {} is no longer pending, it is not run", id);
+            return;
+        }
+        String status = ReportJobStatus.DONE;
+        String error = null;
+        Long resultSize = null;
+        try {
+            ChunkOutputStream chunkOutputStream = new ChunkOutputStream(id);
+            try (OutputStream outputStream = chunkOutputStream) {
+                body.writeTo(outputStream);
+            }
+            resultSize = chunkOutputStream.size;
+        } catch (Exception e) {
+            log.error("Report {} failed", id, e);
+            status = ReportJobStatus.FAILED;
+            String message = String.valueOf(e.getMessage());
+            error = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        }
+
+        Date now = new Date();
+        if (reportJobRepository.finish(id, status, error, resultSize, now, Date.from(now.toInstant().plus(ttl))) == 0) {
+            log.warn("Report {} was failed by the cleanup while it ran, its result is discarded", id);
+            status = ReportJobStatus.FAILED;
+        }
+        if (ReportJobStatus.FAILED.equals(status)) {
+            jdbcTemplate.update(DELETE_CHUNKS, id);
+        }
+    }
+
+    private CemaReportJob findJob(UUID id) {
+        CemaReportJob cemaReportJob = reportJobRepository.findCemaReportJobById(id);
+        if (cemaReportJob == null) {
+            throw new NotFoundException(String.format("Report %s doesn't exits", id));
+        }
+        return cemaReportJob;
+    }
+
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Stores what is written in rows of chunkSize bytes as they fill, so only one chunk of the result is ever held in
+     * memory.
+     */
+    private class ChunkOutputStream extends OutputStream {
+
+        private final UUID id;
+        private final byte[] buffer = new byte[chunkSize];
+        private int position;
+        private int seq;
+        private long size;
+
+        private ChunkOutputStream(UUID id) {
+            this.id = id;
+        }
+
+        @Override
+        public void write(int b) {
+            if (position == buffer.length) {
+                store();
+            }
+            buffer[position++] = (byte) b;
+            size++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (position == buffer.length) {
+                    store();
+                }
+                int copied = Math.min(length, buffer.length - position);
+                System.arraycopy(bytes, offset, buffer, position, copied);
+                position += copied;
+                offset += copied;
+                length -= copied;
+                size += copied;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (position > 0) {
+                store();
+            }
+        }
+
+        private void store() {
+            jdbcTemplate.update(INSERT_CHUNK, id, seq++, Arrays.copyOf(buffer, position));
+            position = 0;
+        }
+    }
+}
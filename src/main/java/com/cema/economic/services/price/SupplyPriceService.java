@@ -0,0 +1,12 @@
+package com.cema.economic.services.price;
+
+import com.cema.economic.entities.CemaSupply;
+
+public interface SupplyPriceService {
+
+    void recordInitialPrice(CemaSupply cemaSupply);
+
+    void recordPriceChange(CemaSupply cemaSupply, Long previousPrice);
+
+    void deletePrices(CemaSupply cemaSupply);
+}
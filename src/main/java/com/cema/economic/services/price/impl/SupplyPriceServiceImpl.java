@@ -0,0 +1,65 @@
+package com.cema.economic.services.price.impl;
+
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyPrice;
+import com.cema.economic.repositories.SupplyPriceRepository;
+import com.cema.economic.services.price.SupplyPriceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Keeps every price a supply had, so operations are valued at the price in effect when they took place.
+ */
+@Service
+@Slf4j
+public class SupplyPriceServiceImpl implements SupplyPriceService {
+
+    /**
+     * The first price of a supply also applies to operations dated before the supply was registered.
+     */
+    private static final Date SINCE_ALWAYS = new Date(0);
+
+    private final SupplyPriceRepository supplyPriceRepository;
+
+    public SupplyPriceServiceImpl(SupplyPriceRepository supplyPriceRepository) {
+        this.supplyPriceRepository = supplyPriceRepository;
+    }
+
+    @Override
+    @Transactional
+    public void recordInitialPrice(CemaSupply cemaSupply) {
+        savePrice(cemaSupply.getId(), cemaSupply.getPrice(), SINCE_ALWAYS);
+    }
+
+    @Override
+    @Transactional
+    public void recordPriceChange(CemaSupply cemaSupply, Long previousPrice) {
+        if (Objects.equals(previousPrice, cemaSupply.getPrice())) {
+            return;
+        }
+        if (!supplyPriceRepository.existsBySupplyId(cemaSupply.getId())) {
+            log.info("Supply {} had no price history, keeping {} as its previous price", cemaSupply.getId(), previousPrice);
+            savePrice(cemaSupply.getId(), previousPrice, SINCE_ALWAYS);
+        }
+        savePrice(cemaSupply.getId(), cemaSupply.getPrice(), new Date());
+    }
+
+    @Override
+    @Transactional
+    public void deletePrices(CemaSupply cemaSupply) {
+        supplyPriceRepository.deleteBySupplyId(cemaSupply.getId());
+    }
+
+    private void savePrice(Integer supplyId, Long price, Date validFrom) {
+        CemaSupplyPrice cemaSupplyPrice = CemaSupplyPrice.builder()
+                .supplyId(supplyId)
+                .price(price)
+                .validFrom(validFrom)
+                .build();
+        supplyPriceRepository.save(cemaSupplyPrice);
+    }
+}
@@ -0,0 +1,14 @@
+package com.cema.economic.services.report;
+
+import com.cema.economic.domain.BovineMarginReport;
+import com.cema.economic.domain.CategoryReport;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ReportService {
+
+    List<CategoryReport> getCategoryReport(String cuig, LocalDate from, LocalDate to);
+
+    BovineMarginReport getBovineMarginReport(String cuig, int limit);
+}
@@ -0,0 +1,101 @@
+package com.cema.economic.services.report.impl;
+
+import com.cema.economic.domain.BovineMargin;
+import com.cema.economic.domain.BovineMarginReport;
+import com.cema.economic.domain.CategoryReport;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.projections.BovineMarginRankView;
+import com.cema.economic.services.report.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class ReportServiceImpl implements ReportService {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(1900, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 30);
+
+    private static final int MAX_MARGIN_LIMIT = 100;
+
+    private final SupplyOperationRepository supplyOperationRepository;
+    private final BovineOperationRepository bovineOperationRepository;
+
+    public ReportServiceImpl(SupplyOperationRepository supplyOperationRepository,
+                             BovineOperationRepository bovineOperationRepository) {
+        this.supplyOperationRepository = supplyOperationRepository;
+        this.bovineOperationRepository = bovineOperationRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryReport> getCategoryReport(String cuig, LocalDate from, LocalDate to) {
+        from = from != null ? from : FIRST_DAY;
+        to = to != null ? to : LAST_DAY;
+        if (from.isAfter(to)) {
+            throw new ValidationException(String.format("The date from %s is after the date to %s", from, to));
+        }
+        log.info("Calculating category report for establishment {} from {} to {}", cuig, from, to);
+
+        return supplyOperationRepository.getCategoryReport(cuig, toDate(from), toDate(to.plusDays(1))).stream()
+                .map(view -> CategoryReport.builder()
+                        .categoryName(view.getCategoryName())
+                        .spending(view.getSpending())
+                        .consumption(view.getConsumption())
+                        .losses(view.getLosses())
+                        .operations(view.getOperations())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * A bovine can be in both lists when the establishment has fewer bovines than twice the limit.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BovineMarginReport getBovineMarginReport(String cuig, int limit) {
+        if (limit < 1 || limit > MAX_MARGIN_LIMIT) {
+            throw new ValidationException(String.format("The limit must be between 1 and %d", MAX_MARGIN_LIMIT));
+        }
+        List<BovineMarginRankView> ranked = bovineOperationRepository.findTopAndBottomMargins(cuig, limit);
+
+        List<BovineMargin> top = ranked.stream()
+                .filter(view -> view.getTopRank() <= limit)
+                .sorted(Comparator.comparingLong(BovineMarginRankView::getTopRank))
+                .map(this::toBovineMargin)
+                .collect(Collectors.toList());
+        List<BovineMargin> bottom = ranked.stream()
+                .filter(view -> view.getBottomRank() <= limit)
+                .sorted(Comparator.comparingLong(BovineMarginRankView::getBottomRank))
+                .map(this::toBovineMargin)
+                .collect(Collectors.toList());
+
+        return BovineMarginReport.builder()
+                .top(top)
+                .bottom(bottom)
+                .build();
+    }
+
+    private BovineMargin toBovineMargin(BovineMarginRankView view) {
+        return BovineMargin.builder()
+                .bovineTag(view.getBovineTag())
+                .income(view.getIncome())
+                .spending(view.getSpending())
+                .margin(view.getMargin())
+                .build();
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
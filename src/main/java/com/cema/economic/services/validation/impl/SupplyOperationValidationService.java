@@ -23,7 +23,7 @@ public class SupplyOperationValidationService implements OperationValidationServ
             String cuig = operation.getEstablishmentCuig();
             long cost = operation.getAmount();
 
-            int available = databaseService.getAvailableSupplyByName(supplyName, cuig);
+            long available = databaseService.getAvailableSupplyByName(supplyName, cuig);
             if(available < cost){
                 throw new ValidationException(
                         String.format("This operation amount %d exceeds what is available %d for the supply %s", cost, available, supplyName));
@@ -0,0 +1,4 @@
+-- Batches and imports look supplies up by name ignoring its case. supply_name_upper_cuig_idx can not serve them, the
+-- single lookup only ignores the case of the establishment.
+
+create index supply_cuig_upper_name_idx on supply (establishment_cuig, upper(name));
@@ -0,0 +1,50 @@
+-- The tables the service started with. Databases created before migrations existed already have them and are
+-- baselined at this version, so this script only runs on new databases.
+
+create table category
+(
+    name        varchar(255) not null,
+    description varchar(255),
+    primary key (name)
+);
+
+create table supply
+(
+    id                 int4 generated by default as identity,
+    name               varchar(255),
+    units              varchar(255),
+    price              int8,
+    establishment_cuig varchar(255),
+    category_name      varchar(255),
+    primary key (id),
+    constraint supply_category_fk foreign key (category_name) references category
+);
+
+create table supply_operation
+(
+    id                 uuid not null,
+    supply_id          int4,
+    operation_type     varchar(255),
+    amount             int8,
+    operator_name      varchar(255),
+    description        varchar(255),
+    transaction_date   timestamp,
+    establishment_cuig varchar(255),
+    primary key (id),
+    constraint supply_operation_supply_fk foreign key (supply_id) references supply
+);
+
+create table bovine_operation
+(
+    id                 uuid not null,
+    bovine_tag         varchar(255),
+    operation_type     varchar(255),
+    amount             int8,
+    seller_name        varchar(255),
+    buyer_name         varchar(255),
+    operator_name      varchar(255),
+    description        varchar(255),
+    transaction_date   timestamp,
+    establishment_cuig varchar(255),
+    primary key (id)
+);
@@ -0,0 +1,86 @@
+-- The tables and columns the balance, checkpoint, minimum stock, bovine rollup, price and report job features added
+-- with hand-applied scripts, moved here in the order they were added. Every statement can run again, so databases
+-- where the scripts were already applied, which are baselined at V1, pass through this version unchanged.
+
+-- supply_balance.sql
+create table if not exists supply_balance
+(
+    supply_id          int4 not null,
+    establishment_cuig varchar(255),
+    available          int8,
+    primary key (supply_id)
+);
+
+-- supply_balance_checkpoint.sql
+create table if not exists supply_balance_checkpoint
+(
+    id           int8 generated by default as identity,
+    supply_id    int4,
+    period_start timestamp,
+    available    int8,
+    primary key (id),
+    constraint supply_balance_checkpoint_supply_period_uk unique (supply_id, period_start)
+);
+
+-- supply_minimum_stock.sql
+alter table supply
+    add column if not exists minimum_stock int8;
+
+alter table supply_balance
+    add column if not exists minimum_stock int8,
+    add column if not exists below_minimum boolean not null default false;
+
+create index if not exists supply_balance_cuig_below_minimum_idx on supply_balance (establishment_cuig, below_minimum);
+
+-- bovine_operation_rollup.sql
+create table if not exists bovine_operation_rollup
+(
+    id                 int8 generated by default as identity,
+    establishment_cuig varchar(255),
+    period_start       timestamp,
+    operation_type     varchar(255),
+    amount             int8,
+    operations         int8,
+    primary key (id),
+    constraint bovine_operation_rollup_cuig_period_type_uk unique (establishment_cuig, period_start, operation_type)
+);
+
+-- The rollup has to be complete from the start, the periods already there are kept as they are.
+insert into bovine_operation_rollup (establishment_cuig, period_start, operation_type, amount, operations)
+select bo.establishment_cuig, date_trunc('month', bo.transaction_date), lower(bo.operation_type), coalesce(sum(bo.amount), 0), count(*)
+from bovine_operation bo
+where bo.transaction_date is not null
+group by 1, 2, 3
+on conflict (establishment_cuig, period_start, operation_type) do nothing;
+
+-- supply_price.sql
+create table if not exists supply_price
+(
+    id         int8 generated by default as identity,
+    supply_id  int4,
+    price      int8,
+    valid_from timestamp,
+    primary key (id),
+    constraint supply_price_supply_valid_from_uk unique (supply_id, valid_from)
+);
+
+-- report_job.sql
+create table if not exists report_job
+(
+    id                 uuid not null,
+    report_type        varchar(255),
+    format             varchar(255),
+    from_date          timestamp,
+    to_date            timestamp,
+    establishment_cuig varchar(255),
+    status             varchar(255),
+    error              varchar(255),
+    result_path        varchar(255),
+    result_size        int8,
+    created_at         timestamp,
+    finished_at        timestamp,
+    expires_at         timestamp,
+    primary key (id)
+);
+
+create index if not exists report_job_expires_at_idx on report_job (expires_at);
@@ -0,0 +1,26 @@
+-- One index per access path of the repositories, QueryPlanTest fails when a query can only be served by a
+-- sequential scan.
+
+-- Supplies of an establishment, by name
+create index supply_cuig_name_idx on supply (establishment_cuig, name);
+
+-- Operation ledger of a supply, for balances, checkpoints and stock history
+create index supply_operation_supply_date_idx on supply_operation (supply_id, transaction_date);
+
+-- Newest first listings and keyset pages, per establishment and across all of them
+create index supply_operation_cuig_date_id_idx on supply_operation (establishment_cuig, transaction_date, id);
+create index supply_operation_date_id_idx on supply_operation (transaction_date, id);
+
+-- Totals per operation type, the amount makes it an index only scan
+create index supply_operation_cuig_type_amount_idx on supply_operation (establishment_cuig, operation_type, amount);
+
+create index bovine_operation_cuig_date_id_idx on bovine_operation (establishment_cuig, transaction_date, id);
+create index bovine_operation_date_id_idx on bovine_operation (transaction_date, id);
+create index bovine_operation_cuig_type_amount_idx on bovine_operation (establishment_cuig, operation_type, amount);
+
+-- History and margin of a single bovine
+create index bovine_operation_cuig_tag_idx on bovine_operation (establishment_cuig, bovine_tag, transaction_date);
+
+-- Case insensitive lookups, Spring Data compares upper() of both sides and only for the properties marked IgnoreCase
+create index category_upper_name_idx on category (upper(name));
+create index supply_name_upper_cuig_idx on supply (name, upper(establishment_cuig));
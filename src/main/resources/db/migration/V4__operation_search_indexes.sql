@@ -0,0 +1,9 @@
+-- Operation search, newest first per establishment. The filter columns follow the keyset columns so the type, amount,
+-- supply and tag predicates are checked on the index entries and only matching rows are read from the table.
+drop index supply_operation_cuig_date_id_idx;
+create index supply_operation_cuig_date_search_idx on supply_operation
+    (establishment_cuig, transaction_date, id, operation_type, supply_id, amount);
+
+drop index bovine_operation_cuig_date_id_idx;
+create index bovine_operation_cuig_date_search_idx on bovine_operation
+    (establishment_cuig, transaction_date, id, operation_type, bovine_tag, amount);
@@ -0,0 +1,5 @@
+-- Supply search matches upper(name) like '%TERM%' and ranks by similarity, a trigram index serves both without
+-- reading every supply.
+create extension if not exists pg_trgm;
+
+create index supply_name_trgm_idx on supply using gin (upper(name) gin_trgm_ops);
@@ -0,0 +1,28 @@
+-- Historical operations are imported from a streamed csv, the job keeps the progress and the first rows that failed.
+
+create table import_job
+(
+    id                 uuid not null,
+    import_type        varchar(255),
+    establishment_cuig varchar(255),
+    status             varchar(255),
+    error              varchar(255),
+    rows_read          int8 not null default 0,
+    rows_imported      int8 not null default 0,
+    rows_failed        int8 not null default 0,
+    created_at         timestamp,
+    started_at         timestamp,
+    finished_at        timestamp,
+    primary key (id)
+);
+
+create table import_job_error
+(
+    id            int8 generated by default as identity,
+    import_job_id uuid not null,
+    row_number    int8,
+    message       varchar(255),
+    primary key (id)
+);
+
+create index import_job_error_job_row_idx on import_job_error (import_job_id, row_number);
@@ -0,0 +1,6 @@
+-- The jobs in progress of an establishment are counted on every submit, and the ones left behind by a stopped instance
+-- are looked up by the cleanup.
+
+create index report_job_cuig_status_idx on report_job (establishment_cuig, status);
+
+create index report_job_status_created_at_idx on report_job (status, created_at);
@@ -0,0 +1,8 @@
+-- Jobs time out from the moment they start running, the time they wait in the queue does not count.
+
+alter table report_job
+    add column started_at timestamp;
+
+drop index report_job_status_created_at_idx;
+
+create index report_job_status_started_at_idx on report_job (status, started_at);
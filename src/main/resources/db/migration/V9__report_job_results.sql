@@ -0,0 +1,14 @@
+-- Results are kept in the database in chunks instead of on the disk of the instance that ran the job, so every
+-- instance can serve and delete them.
+
+create table report_job_chunk
+(
+    job_id uuid  not null,
+    seq    int4  not null,
+    data   bytea not null,
+    primary key (job_id, seq),
+    constraint report_job_chunk_job_fk foreign key (job_id) references report_job (id) on delete cascade
+);
+
+alter table report_job
+    drop column result_path;
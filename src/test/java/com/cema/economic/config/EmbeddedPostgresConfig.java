@@ -0,0 +1,28 @@
+package com.cema.economic.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+@TestConfiguration
+public class EmbeddedPostgresConfig {
+
+    @Bean(destroyMethod = "close")
+    public EmbeddedPostgres embeddedPostgres() throws IOException {
+        return EmbeddedPostgres.start();
+    }
+
+    @Bean
+    public DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(embeddedPostgres.getJdbcUrl("postgres", "postgres"))
+                .username("postgres")
+                .build();
+    }
+}
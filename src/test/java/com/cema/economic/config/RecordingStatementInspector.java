@@ -0,0 +1,29 @@
+package com.cema.economic.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the SQL Hibernate sends, so tests can look at what derived queries really run.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> getStatements() {
+        return new ArrayList<>(STATEMENTS);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+}
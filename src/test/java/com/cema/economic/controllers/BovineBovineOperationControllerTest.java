@@ -7,9 +7,14 @@ import com.cema.economic.exceptions.NotFoundException;
 import com.cema.economic.mapping.Mapping;
 import com.cema.economic.repositories.BovineOperationRepository;
 import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.batch.OperationBatchService;
+import com.cema.economic.services.bovine.BovineOperationService;
 import com.cema.economic.services.client.administration.AdministrationClientService;
 import com.cema.economic.services.client.bovine.BovineClientService;
 import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.count.CountService;
+import com.cema.economic.services.export.ExportService;
+import com.cema.economic.services.job.ReportJobService;
 import com.cema.economic.services.validation.OperationValidationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +50,16 @@ public class BovineBovineOperationControllerTest {
     private AdministrationClientService administrationClientService;
     @Mock
     private UsersClientService usersClientService;
+    @Mock
+    private BovineOperationService bovineOperationService;
+    @Mock
+    private ExportService exportService;
+    @Mock
+    private ReportJobService reportJobService;
+    @Mock
+    private CountService countService;
+    @Mock
+    private OperationBatchService operationBatchService;
 
     private BovineOperationController bovineOperationController;
 
@@ -55,7 +70,8 @@ public class BovineBovineOperationControllerTest {
         when(authorizationService.getCurrentUserCuig()).thenReturn(cuig);
         bovineOperationController = new BovineOperationController(bovineOperationRepository, operationMapping,
                 authorizationService, bovineClientService, bovineOperationValidationService, administrationClientService,
-                usersClientService);
+                usersClientService, bovineOperationService, exportService, reportJobService, countService,
+                operationBatchService);
     }
 
     @Test
@@ -0,0 +1,91 @@
+package com.cema.economic.entities.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+public class TimeOrderedUuidGeneratorTest {
+
+    private final long now = 1_600_000_000_000L;
+
+    @Test
+    public void nextShouldBeAVersion7UuidWithTheTimeOfTheClock() {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(() -> now, new AtomicLong());
+
+        UUID uuid = generator.next();
+
+        assertThat(uuid.version(), is(7));
+        assertThat(uuid.variant(), is(2));
+        assertThat(uuid.getMostSignificantBits() >>> 16, is(now));
+        assertThat(uuid.getMostSignificantBits() & 0xFFFL, is(0L));
+    }
+
+    @Test
+    public void nextShouldBorrowTheNextMillisecondWhenTheCounterRunsOut() {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(() -> now, new AtomicLong());
+
+        UUID uuid = null;
+        for (int i = 0; i <= 4096; i++) {
+            uuid = generator.next();
+        }
+
+        assertThat(uuid.getMostSignificantBits() >>> 16, is(now + 1));
+        assertThat(uuid.getMostSignificantBits() & 0xFFFL, is(0L));
+    }
+
+    @Test
+    public void nextShouldAlwaysBeGreaterThanThePreviousOne() {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(System::currentTimeMillis, new AtomicLong());
+        UUID previous = generator.next();
+        for (int i = 0; i < 200_000; i++) {
+            UUID next = generator.next();
+            assertThat(next.getMostSignificantBits(), greaterThan(previous.getMostSignificantBits()));
+            previous = next;
+        }
+    }
+
+    @Test
+    public void concurrentCallsShouldNeverRepeatAnId() throws Exception {
+        TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(System::currentTimeMillis, new AtomicLong());
+        int threads = 8;
+        int ids = 50_000;
+        Set<UUID> generated = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < ids; j++) {
+                    generated.add(generator.next());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        assertThat(generated.size(), is(threads * ids));
+    }
+
+    @Test
+    public void nextUuidShouldUseTheSharedGenerator() {
+        UUID first = TimeOrderedUuidGenerator.nextUuid();
+        UUID second = TimeOrderedUuidGenerator.nextUuid();
+
+        assertThat(second.version(), is(7));
+        assertThat(second.getMostSignificantBits(), greaterThan(first.getMostSignificantBits()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.domain.SupplyOperation;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.mapping.impl.SupplyOperationMappingImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Compares the list endpoint paths: loading managed entities and mapping them against building the domain objects
+ * straight from the query. Opt in with {@code mvn test -Dtest=ListProjectionBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, SupplyOperationMappingImpl.class})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ListProjectionBenchmarkTest {
+
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    private final String cuig = "cuig-3";
+    private final Pageable paging = PageRequest.of(0, 200, Sort.by("transactionDate").descending());
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private SupplyOperationMappingImpl supplyOperationMapping;
+
+    @BeforeEach
+    public void setUp() {
+        entityManager.createNativeQuery("insert into category (name, description) values ('Alimento', 'alimento')")
+                .executeUpdate();
+        entityManager.createNativeQuery("insert into supply (name, units, price, establishment_cuig, category_name, minimum_stock) " +
+                "select 'Supply ' || s, 'Kg', 10, 'cuig-' || c, 'Alimento', 5 " +
+                "from generate_series(1, 10) c, generate_series(1, 50) s").executeUpdate();
+        entityManager.createNativeQuery("insert into supply_operation (id, supply_id, operation_type, amount, operator_name, " +
+                "transaction_date, establishment_cuig) " +
+                "select cast(md5(cast(random() as text) || i) as uuid), s.id, 'buy', i, 'merlinds', " +
+                "timestamp '2021-01-01' + (i % 365) * interval '1 day', s.establishment_cuig " +
+                "from supply s, generate_series(1, 100) i").executeUpdate();
+        entityManager.createNativeQuery("analyze").executeUpdate();
+    }
+
+    @Test
+    public void projectionShouldBeCheaperThanEntityMapping() {
+        Supplier<List<SupplyOperation>> entities = () -> supplyOperationRepository.findAllByEstablishmentCuig(cuig, paging)
+                .getContent().stream().map(supplyOperationMapping::mapEntityToDomain).collect(Collectors.toList());
+        Supplier<List<SupplyOperation>> projection = () -> supplyOperationRepository
+                .findOperationsByEstablishmentCuig(cuig, paging).getContent();
+
+        assertThat(projection.get(), is(entities.get()));
+
+        long[] entityCost = measure(entities);
+        long[] projectionCost = measure(projection);
+        log.info("Entity mapping: {} us and {} bytes per page", entityCost[0], entityCost[1]);
+        log.info("Projection: {} us and {} bytes per page", projectionCost[0], projectionCost[1]);
+    }
+
+    /**
+     * Returns the average microseconds and bytes allocated per call, with a fresh persistence context on each call
+     * like a request would have.
+     */
+    private long[] measure(Supplier<List<SupplyOperation>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytes = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.get();
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        bytes = threadBean.getThreadAllocatedBytes(threadId) - bytes;
+        return new long[]{elapsed / ITERATIONS / 1000, bytes / ITERATIONS};
+    }
+}
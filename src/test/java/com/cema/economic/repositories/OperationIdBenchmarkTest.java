@@ -0,0 +1,91 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.entities.ids.TimeOrderedUuidGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Inserts the same operations, in jdbc batches, into two copies of the supply operation table: one with random ids
+ * and one with time ordered ids, and compares the time and the size of the primary key. Opt in with
+ * {@code mvn test -Dtest=OperationIdBenchmarkTest -Dbenchmark=true}, {@code -Dbenchmark.rows} changes the rows
+ * inserted.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OperationIdBenchmarkTest {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT = "insert into %s (id, supply_id, operation_type, amount, operator_name, " +
+            "transaction_date, establishment_cuig) values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final int rows = Integer.getInteger("benchmark.rows", 2_000_000);
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("drop table if exists random_id_operation");
+        jdbcTemplate.execute("drop table if exists ordered_id_operation");
+    }
+
+    @Test
+    public void timeOrderedIdsShouldInsertFasterAndKeepTheIndexSmaller() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table random_id_operation (like supply_operation including defaults including indexes)");
+        jdbcTemplate.execute("create table ordered_id_operation (like supply_operation including defaults including indexes)");
+
+        report("random", "random_id_operation", insert("random_id_operation", UUID::randomUUID));
+        report("time ordered", "ordered_id_operation", insert("ordered_id_operation", TimeOrderedUuidGenerator::nextUuid));
+    }
+
+    private long insert(String table, Supplier<UUID> ids) {
+        String sql = String.format(INSERT, table);
+        long start = System.nanoTime();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{ids.get(), 1 + i % 500, "buy", (long) i, "merlinds",
+                    new Timestamp(System.currentTimeMillis()), "cuig-" + i % 50});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void report(String ids, String table, long nanos) {
+        Long primaryKey = jdbcTemplate.queryForObject(
+                String.format("select pg_relation_size('%s_pkey')", table), Long.class);
+        Long indexes = jdbcTemplate.queryForObject(
+                String.format("select pg_indexes_size('%s')", table), Long.class);
+        log.info("{} ids: {} rows in {} ms, {} rows/s, primary key {} MB, every index {} MB", ids, rows,
+                nanos / 1_000_000, rows * 1_000_000_000L / nanos, primaryKey / (1024 * 1024), indexes / (1024 * 1024));
+    }
+}
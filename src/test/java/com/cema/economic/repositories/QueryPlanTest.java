@@ -0,0 +1,202 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.config.RecordingStatementInspector;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.constants.ReportJobStatus;
+import com.cema.economic.domain.BovineOperationFilter;
+import com.cema.economic.domain.OperationCursor;
+import com.cema.economic.domain.SupplyOperationFilter;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.repositories.specifications.OperationSpecifications;
+import com.cema.economic.repositories.specifications.SupplySpecifications;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Runs every hot repository query over a seeded dataset and explains the SQL Hibernate sent with sequential scans
+ * disabled. The planner then only falls back to a sequential scan when no index can serve the query, so a Seq Scan in
+ * the plan means a migration is missing an index.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.cema.economic.config.RecordingStatementInspector")
+public class QueryPlanTest {
+
+    private static final String[] SEED = {
+            "insert into category (name, description) values ('Alimento', 'alimento'), ('Medicina', 'medicina')",
+            "insert into supply (name, units, price, establishment_cuig, category_name, minimum_stock) " +
+                    "select 'Supply ' || s, 'Kg', 10, 'cuig-' || c, case when s % 2 = 0 then 'Alimento' else 'Medicina' end, 5 " +
+                    "from generate_series(1, 20) c, generate_series(1, 25) s",
+            "insert into supply_operation (id, supply_id, operation_type, amount, operator_name, transaction_date, establishment_cuig) " +
+                    "select cast(md5(cast(random() as text) || i) as uuid), s.id, (array['buy', 'use', 'loss'])[1 + i % 3], 1 + i % 10, 'merlinds', " +
+                    "timestamp '2021-01-01' + (i % 365) * interval '1 day', s.establishment_cuig " +
+                    "from supply s, generate_series(1, 40) i",
+            "insert into bovine_operation (id, bovine_tag, operation_type, amount, operator_name, transaction_date, establishment_cuig) " +
+                    "select cast(md5(cast(random() as text) || i) as uuid), 'tag-' || (i % 500), (array['buy', 'sell'])[1 + i % 2], 100 + i, 'merlinds', " +
+                    "timestamp '2021-01-01' + (i % 365) * interval '1 day', 'cuig-' || (i % 20) " +
+                    "from generate_series(1, 20000) i",
+            "insert into bovine_operation_rollup (establishment_cuig, period_start, operation_type, amount, operations) " +
+                    "select bo.establishment_cuig, date_trunc('month', bo.transaction_date), bo.operation_type, sum(bo.amount), count(*) " +
+                    "from bovine_operation bo group by 1, 2, 3",
+            "insert into supply_balance (supply_id, establishment_cuig, available, minimum_stock, below_minimum) " +
+                    "select s.id, s.establishment_cuig, s.id % 10, s.minimum_stock, s.id % 10 < s.minimum_stock from supply s",
+            "insert into supply_balance_checkpoint (supply_id, period_start, available) " +
+                    "select s.id, timestamp '2021-01-01' + m * interval '1 month', m from supply s, generate_series(0, 11) m",
+            "insert into supply_price (supply_id, price, valid_from) " +
+                    "select s.id, 10 + m, timestamp '2021-01-01' + m * interval '1 month' from supply s, generate_series(0, 5) m",
+            "analyze",
+            "set local enable_seqscan = off"
+    };
+
+    private final String cuig = "cuig-3";
+    private final Timestamp from = Timestamp.valueOf(LocalDate.of(2021, 3, 1).atStartOfDay());
+    private final Timestamp until = Timestamp.valueOf(LocalDate.of(2021, 4, 1).atStartOfDay());
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private BovineOperationRepository bovineOperationRepository;
+    @Autowired
+    private BovineOperationRollupRepository bovineOperationRollupRepository;
+    @Autowired
+    private SupplyBalanceRepository supplyBalanceRepository;
+    @Autowired
+    private SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    private Integer supplyId;
+
+    @BeforeEach
+    public void setUp() {
+        for (String statement : SEED) {
+            entityManager.createNativeQuery(statement).executeUpdate();
+        }
+        supplyId = ((Number) entityManager.createNativeQuery("select min(id) from supply where establishment_cuig = 'cuig-3'")
+                .getSingleResult()).intValue();
+    }
+
+    @Test
+    public void categoryAndSupplyQueriesShouldUseIndexes() {
+        assertUsesIndexes(() -> categoryRepository.findCemaCategoryByNameIgnoreCase("alimento"), "alimento");
+        assertUsesIndexes(() -> supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Supply 3", cuig),
+                "Supply 3", cuig);
+        assertUsesIndexes(() -> supplyRepository.findAllByEstablishmentCuigAndUpperNameIn(cuig, Collections.singleton("SUPPLY 3")),
+                cuig, "SUPPLY 3");
+        assertUsesIndexes(() -> supplyRepository.findSupplySliceByEstablishmentCuig(cuig, PageRequest.of(0, 10)), cuig, 11);
+        assertUsesIndexes(() -> supplyRepository.findAll(SupplySpecifications.matching(CemaSupply.builder().name("ply 1").build(), null),
+                PageRequest.of(0, 10)), "%PLY 1%", "\\", "PLY 1", 10);
+        assertUsesIndexes(() -> supplyRepository.findAllAvailableSupplies(cuig), cuig);
+        assertUsesIndexes(() -> supplyRepository.findAllAvailableSupplyTotals(cuig), cuig);
+        assertUsesIndexes(() -> supplyBalanceRepository.findAllBelowMinimum(cuig), cuig);
+        assertUsesIndexes(() -> supplyRepository.findAllByIdGreaterThanOrderById(supplyId, PageRequest.of(0, 10)), supplyId, 10);
+    }
+
+    @Test
+    public void supplyOperationQueriesShouldUseIndexes() {
+        PageRequest newestFirst = PageRequest.of(0, 10, Sort.by("transactionDate").descending());
+        OperationCursor first = OperationCursor.decode("");
+
+        assertUsesIndexes(() -> supplyOperationRepository.findAllByEstablishmentCuigAndCemaSupplyName(cuig, "Supply 3"),
+                cuig, "Supply 3");
+        assertUsesIndexes(() -> supplyOperationRepository.getSumForOperationType(cuig, OperationType.BUY), cuig, OperationType.BUY);
+        assertUsesIndexes(() -> supplyOperationRepository.findOperationsByEstablishmentCuig(cuig, newestFirst), cuig, 10);
+        assertUsesIndexes(() -> supplyOperationRepository.findOperationSlice(newestFirst), 11);
+        assertUsesIndexes(() -> supplyOperationRepository.findIdsByEstablishmentCuigBefore(cuig, first.getTransactionDate(),
+                first.getId().toString(), 10), cuig, first.getTransactionDate(), first.getId().toString(), 10);
+        SupplyOperationFilter filter = SupplyOperationFilter.builder().establishmentCuig(cuig).from(from).to(until)
+                .operationTypes(Collections.singletonList(OperationType.BUY)).supplyName("Supply 3").minAmount(2L).build();
+        assertUsesIndexes(() -> supplyOperationRepository.search(OperationSpecifications.matching(filter)
+                        .and(OperationSpecifications.before(first)), 11),
+                cuig, from, until, OperationType.BUY, "Supply 3", first.getTransactionDate(), first.getTransactionDate(), first.getId(), 11);
+        assertUsesIndexes(() -> supplyOperationRepository.getSignedSumBetween(supplyId, from, until), supplyId, from, until);
+        assertUsesIndexes(() -> supplyOperationRepository.getValuedSpending(cuig, from, until), cuig, from, until);
+        assertUsesIndexes(() -> supplyOperationRepository.getCategoryReport(cuig, from, until), cuig, from, until);
+        assertUsesIndexes(() -> supplyBalanceCheckpointRepository
+                .findFirstBySupplyIdAndPeriodStartLessThanEqualOrderByPeriodStartDesc(supplyId, until), supplyId, until, 1);
+    }
+
+    @Test
+    public void bovineOperationQueriesShouldUseIndexes() {
+        PageRequest newestFirst = PageRequest.of(0, 10, Sort.by("transactionDate").descending());
+
+        assertUsesIndexes(() -> bovineOperationRepository.findOperationsByEstablishmentCuig(cuig, newestFirst), cuig, 10);
+        assertUsesIndexes(() -> bovineOperationRepository.findOperationSlice(newestFirst), 11);
+        OperationCursor first = OperationCursor.decode("");
+        BovineOperationFilter filter = BovineOperationFilter.builder().establishmentCuig(cuig)
+                .operationTypes(Collections.singletonList(OperationType.SELL)).bovineTag("tag-3").build();
+        assertUsesIndexes(() -> bovineOperationRepository.search(OperationSpecifications.matching(filter)
+                        .and(OperationSpecifications.before(first)), 11),
+                cuig, OperationType.SELL, "tag-3", first.getTransactionDate(), first.getTransactionDate(), first.getId(), 11);
+        assertUsesIndexes(() -> bovineOperationRepository.getSumForOperationType(cuig, OperationType.SELL), cuig, OperationType.SELL);
+        assertUsesIndexes(() -> bovineOperationRepository.findAllByEstablishmentCuigAndBovineTagOrderByTransactionDate(cuig, "tag-3"),
+                cuig, "tag-3");
+        assertUsesIndexes(() -> bovineOperationRollupRepository
+                .findAllByEstablishmentCuigAndPeriodStartBetweenOrderByPeriodStart(cuig, from, until), cuig, from, until);
+    }
+
+    @Test
+    public void reportJobQueriesShouldUseIndexes() {
+        assertUsesIndexes(() -> reportJobRepository.countByEstablishmentCuigAndStatusIn(cuig, ReportJobStatus.IN_PROGRESS),
+                cuig, ReportJobStatus.PENDING, ReportJobStatus.RUNNING);
+        assertUsesIndexes(() -> reportJobRepository.failJobsStartedBefore(from, "timeout", until, until),
+                "timeout", until, until, from);
+    }
+
+    /**
+     * Explains the first statement the query sends, with the same parameters the repository bound.
+     */
+    private void assertUsesIndexes(Runnable query, Object... parameters) {
+        RecordingStatementInspector.clear();
+        query.run();
+        List<String> statements = RecordingStatementInspector.getStatements();
+        String sql = statements.get(0);
+
+        String plan = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            StringBuilder lines = new StringBuilder();
+            try (PreparedStatement preparedStatement = connection.prepareStatement("explain " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    preparedStatement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        lines.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+            }
+            return lines.toString();
+        });
+
+        assertThat(sql + "\n" + plan, plan, not(containsString("Seq Scan")));
+    }
+}
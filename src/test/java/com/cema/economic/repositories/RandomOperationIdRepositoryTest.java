@@ -0,0 +1,69 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+@TestPropertySource(properties = "spring.jpa.properties.economic.ids.time-ordered=false")
+public class RandomOperationIdRepositoryTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    public void operationIdsShouldBeRandomWhenTimeOrderedIdsAreTurnedOff() {
+        CemaCategory alimento = testEntityManager.persist(CemaCategory.builder().name("Alimento").description("alimento").build());
+        CemaSupply maiz = testEntityManager.persist(CemaSupply.builder()
+                .name("Maiz")
+                .units("Kg")
+                .price(20L)
+                .establishmentCuig(cuig)
+                .category(alimento)
+                .build());
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            created.add(testEntityManager.persist(CemaSupplyOperation.builder()
+                    .cemaSupply(maiz)
+                    .operationType(OperationType.BUY)
+                    .amount(1L)
+                    .transactionDate(new Date())
+                    .establishmentCuig(cuig)
+                    .build()).getId());
+            created.add(testEntityManager.persist(CemaBovineOperation.builder()
+                    .bovineTag(String.valueOf(i))
+                    .operationType(OperationType.BUY)
+                    .amount(1L)
+                    .sellerName("Roberto")
+                    .operatorName("merlinds")
+                    .transactionDate(new Date())
+                    .establishmentCuig(cuig)
+                    .build()).getId());
+        }
+        testEntityManager.flush();
+
+        assertThat(created.stream().allMatch(id -> id.version() == 4), is(true));
+    }
+}
@@ -0,0 +1,274 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.OperationCursor;
+import com.cema.economic.domain.SupplyOperation;
+import com.cema.economic.domain.SupplyOperationFilter;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.entities.CemaSupplyPrice;
+import com.cema.economic.entities.ids.TimeOrderedUuidGenerator;
+import com.cema.economic.repositories.projections.CategoryReportView;
+import com.cema.economic.repositories.specifications.OperationSpecifications;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+public class SupplyOperationRepositoryTest {
+
+    private final String cuig = "321";
+    private final LocalDate january = LocalDate.of(2021, 1, 1);
+    private final Sort newestFirst = Sort.by(Sort.Direction.DESC, "transactionDate", "id");
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private CemaCategory alimento;
+    private CemaCategory medicina;
+
+    @BeforeEach
+    public void setUp() {
+        alimento = testEntityManager.persist(CemaCategory.builder().name("Alimento").description("alimento").build());
+        medicina = testEntityManager.persist(CemaCategory.builder().name("Medicina").description("medicina").build());
+    }
+
+    @Test
+    public void getCategoryReportShouldAggregateEveryCategoryWithOperationsInTheRange() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        CemaSupply vacuna = persistSupply("Vacuna", cuig, medicina);
+        CemaSupply otherMaiz = persistSupply("Maiz", "999", alimento);
+        testEntityManager.persist(CemaSupplyPrice.builder().supplyId(maiz.getId()).price(10L).validFrom(new Date(0)).build());
+        testEntityManager.persist(CemaSupplyPrice.builder().supplyId(maiz.getId()).price(12L).validFrom(toDate(january.plusMonths(1))).build());
+
+        persistOperation(maiz, OperationType.BUY, 100L, january.plusDays(3));
+        persistOperation(maiz, OperationType.USE, 30L, january.plusMonths(1).plusDays(2));
+        persistOperation(maiz, OperationType.LOSS, 5L, january.plusMonths(1).plusDays(5));
+        persistOperation(maiz, OperationType.BUY, 50L, january.plusMonths(6));
+        persistOperation(vacuna, OperationType.BUY, 2L, january.plusDays(10));
+        persistOperation(otherMaiz, OperationType.BUY, 1000L, january.plusDays(3));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<CategoryReportView> report = supplyOperationRepository.getCategoryReport(cuig, toDate(january), toDate(january.plusMonths(3)));
+
+        assertThat(report.size(), is(2));
+        assertThat(report.get(0).getCategoryName(), is("Alimento"));
+        assertThat(report.get(0).getSpending(), is(1000L));
+        assertThat(report.get(0).getConsumption(), is(360L));
+        assertThat(report.get(0).getLosses(), is(60L));
+        assertThat(report.get(0).getOperations(), is(3L));
+        assertThat(report.get(1).getCategoryName(), is("Medicina"));
+        assertThat(report.get(1).getSpending(), is(40L));
+    }
+
+    @Test
+    public void keysetPagesShouldWalkEveryOperationOnceNewestFirst() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        CemaSupply otherMaiz = persistSupply("Maiz", "999", alimento);
+        for (int i = 0; i < 7; i++) {
+            persistOperation(maiz, OperationType.BUY, i, january.plusDays(i / 3));
+        }
+        persistOperation(otherMaiz, OperationType.BUY, 1L, january);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<CemaSupplyOperation> walked = new ArrayList<>();
+        OperationCursor cursor = OperationCursor.decode("");
+        List<CemaSupplyOperation> page;
+        do {
+            List<UUID> ids = supplyOperationRepository.findIdsByEstablishmentCuigBefore(cuig, cursor.getTransactionDate(),
+                    cursor.getId().toString(), 3).stream().map(UUID::fromString).collect(Collectors.toList());
+            page = supplyOperationRepository.findAllByIdIn(ids, newestFirst);
+            walked.addAll(page);
+            if (!page.isEmpty()) {
+                CemaSupplyOperation last = page.get(page.size() - 1);
+                cursor = OperationCursor.decode(OperationCursor.after(last.getTransactionDate(), last.getId()).encode());
+            }
+        } while (page.size() == 3);
+
+        assertThat(walked.size(), is(7));
+        Set<UUID> ids = walked.stream().map(CemaSupplyOperation::getId).collect(Collectors.toSet());
+        assertThat(ids.size(), is(7));
+        for (int i = 1; i < walked.size(); i++) {
+            assertThat(walked.get(i - 1).getTransactionDate().compareTo(walked.get(i).getTransactionDate()) >= 0, is(true));
+        }
+    }
+
+    @Test
+    public void findOperationsByEstablishmentCuigShouldReadOnlyTheProjectedColumns() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        CemaSupply vacuna = persistSupply("Vacuna", cuig, medicina);
+        for (int i = 0; i < 4; i++) {
+            persistOperation(i % 2 == 0 ? maiz : vacuna, OperationType.BUY, i, january.plusDays(i));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<SupplyOperation> page = supplyOperationRepository.findOperationsByEstablishmentCuig(cuig,
+                PageRequest.of(0, 3, newestFirst));
+
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+        assertThat(page.getTotalElements(), is(4L));
+        assertThat(page.getContent().size(), is(3));
+        assertThat(page.getContent().get(0).getAmount(), is(3L));
+        assertThat(page.getContent().get(0).getSupplyName(), is("Vacuna"));
+        assertThat(page.getContent().get(1).getSupplyName(), is("Maiz"));
+        assertThat(page.getContent().get(0).getOperatorUserName(), is("merlinds"));
+    }
+
+    @Test
+    public void entityPathsShouldFetchTheSupplyAndCategoryWithTheOperations() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        CemaSupply vacuna = persistSupply("Vacuna", cuig, medicina);
+        for (int i = 0; i < 6; i++) {
+            persistOperation(i % 2 == 0 ? maiz : vacuna, OperationType.BUY, i, january.plusDays(i));
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        Page<CemaSupplyOperation> page = supplyOperationRepository.findAllByEstablishmentCuig(cuig, PageRequest.of(0, 4, newestFirst));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(page.getContent().get(0).getCemaSupply().getCategory().getName(), is("Medicina"));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+
+        testEntityManager.clear();
+        statistics.clear();
+        CemaSupplyOperation operation = supplyOperationRepository.findCemaSupplyOperationById(page.getContent().get(1).getId());
+        assertThat(operation.getCemaSupply().getCategory().getName(), is("Alimento"));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+
+        testEntityManager.clear();
+        statistics.clear();
+        OperationCursor first = OperationCursor.decode("");
+        List<UUID> ids = supplyOperationRepository.findIdsByEstablishmentCuigBefore(cuig, first.getTransactionDate(),
+                first.getId().toString(), 4).stream().map(UUID::fromString).collect(Collectors.toList());
+        List<CemaSupplyOperation> keysetPage = supplyOperationRepository.findAllByIdIn(ids, newestFirst);
+        assertThat(keysetPage.size(), is(4));
+        assertThat(keysetPage.get(3).getCemaSupply().getName(), is("Maiz"));
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+    }
+
+    @Test
+    public void searchShouldApplyEveryFilterAndWalkTheCursor() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        CemaSupply vacuna = persistSupply("Vacuna", cuig, medicina);
+        CemaSupply otherMaiz = persistSupply("Maiz", "999", alimento);
+        for (int i = 0; i < 10; i++) {
+            persistOperation(maiz, i % 2 == 0 ? OperationType.BUY : OperationType.USE, 10 * i, january.plusDays(i / 2));
+        }
+        persistOperation(vacuna, OperationType.BUY, 40L, january.plusDays(1));
+        persistOperation(otherMaiz, OperationType.BUY, 40L, january.plusDays(1));
+        testEntityManager.flush();
+        testEntityManager.clear();
+        SupplyOperationFilter filter = SupplyOperationFilter.builder()
+                .establishmentCuig(cuig)
+                .supplyName("Maiz")
+                .operationTypes(Collections.singletonList("BUY"))
+                .from(toDate(january.plusDays(1)))
+                .minAmount(20L)
+                .maxAmount(80L)
+                .build();
+
+        List<CemaSupplyOperation> walked = new ArrayList<>();
+        OperationCursor cursor = OperationCursor.decode("");
+        List<CemaSupplyOperation> page;
+        do {
+            page = supplyOperationRepository.search(OperationSpecifications.matching(filter)
+                    .and(OperationSpecifications.before(cursor)), 2);
+            walked.addAll(page);
+            if (!page.isEmpty()) {
+                CemaSupplyOperation last = page.get(page.size() - 1);
+                cursor = OperationCursor.after(last.getTransactionDate(), last.getId());
+            }
+        } while (page.size() == 2);
+
+        assertThat(walked.stream().map(CemaSupplyOperation::getAmount).collect(Collectors.toList()), is(Arrays.asList(80L, 60L, 40L, 20L)));
+        assertThat(walked.get(0).getCemaSupply().getCategory().getName(), is("Alimento"));
+    }
+
+    @Test
+    public void operationIdsShouldFollowTheOrderTheyWereCreatedIn() {
+        CemaSupply maiz = persistSupply("Maiz", cuig, alimento);
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            created.add(testEntityManager.persist(CemaSupplyOperation.builder()
+                    .cemaSupply(maiz)
+                    .operationType(OperationType.BUY)
+                    .amount(1L)
+                    .transactionDate(toDate(january))
+                    .establishmentCuig(cuig)
+                    .build()).getId());
+        }
+        testEntityManager.flush();
+
+        List<?> ordered = testEntityManager.getEntityManager()
+                .createNativeQuery("select cast(so.id as varchar) from supply_operation so order by so.id").getResultList();
+
+        assertThat(entityManagerFactory.getProperties().get(TimeOrderedUuidGenerator.TIME_ORDERED_SETTING), is("true"));
+        assertThat(created.stream().allMatch(id -> id.version() == 7), is(true));
+        assertThat(ordered, is(created.stream().map(UUID::toString).collect(Collectors.toList())));
+    }
+
+    private CemaSupply persistSupply(String name, String cuig, CemaCategory category) {
+        return testEntityManager.persist(CemaSupply.builder()
+                .name(name)
+                .units("Kg")
+                .price(20L)
+                .establishmentCuig(cuig)
+                .category(category)
+                .build());
+    }
+
+    private void persistOperation(CemaSupply cemaSupply, String type, long amount, LocalDate transactionDate) {
+        testEntityManager.persist(CemaSupplyOperation.builder()
+                .cemaSupply(cemaSupply)
+                .operationType(type)
+                .amount(amount)
+                .operatorName("merlinds")
+                .transactionDate(toDate(transactionDate))
+                .establishmentCuig(cemaSupply.getEstablishmentCuig())
+                .build());
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,173 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.domain.Supply;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.repositories.specifications.SupplySpecifications;
+import com.cema.economic.services.calculation.impl.CalculationServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+public class SupplyRepositoryTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+
+    private CemaCategory cemaCategory;
+
+    @BeforeEach
+    public void setUp() {
+        cemaCategory = testEntityManager.persist(CemaCategory.builder().name("Alimento").description("alimento").build());
+    }
+
+    @Test
+    public void findAllAvailableSupplyTotalsShouldMatchTheSumOfEveryOperation() {
+        CemaSupply maiz = persistSupply("Maiz", cuig);
+        CemaSupply heno = persistSupply("Heno", cuig);
+        persistSupply("Sal", cuig);
+        CemaSupply otherMaiz = persistSupply("Maiz", "999");
+        persistOperation(maiz, OperationType.BUY, 100L);
+        persistOperation(maiz, OperationType.USE, 30L);
+        persistOperation(maiz, OperationType.LOSS, 5L);
+        persistOperation(heno, OperationType.BUY, 20L);
+        persistOperation(otherMaiz, OperationType.BUY, 1000L);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<AvailableSupply> result = supplyRepository.findAllAvailableSupplyTotals(cuig);
+
+        CalculationServiceImpl calculationService = new CalculationServiceImpl();
+        assertThat(result.size(), is(3));
+        for (AvailableSupply availableSupply : result) {
+            long expected = supplyOperationRepository.findAllByEstablishmentCuigAndCemaSupplyName(cuig, availableSupply.getSupplyName())
+                    .stream().mapToLong(calculationService::getSignedAmount).sum();
+            assertThat(availableSupply.getAvailable(), is(expected));
+            assertThat(availableSupply.getUnits(), is("Kg"));
+        }
+        assertThat(result.get(1).getSupplyName(), is("Maiz"));
+        assertThat(result.get(1).getAvailable(), is(65L));
+    }
+
+    @Test
+    public void findAllAvailableSupplyTotalsShouldIssueOneStatementRegardlessOfTheNumberOfSupplies() {
+        CemaSupply single = persistSupply("Maiz", "1");
+        persistOperation(single, OperationType.BUY, 10L);
+        for (int i = 0; i < 25; i++) {
+            CemaSupply cemaSupply = persistSupply("Supply " + i, "25");
+            persistOperation(cemaSupply, OperationType.BUY, 10L);
+            persistOperation(cemaSupply, OperationType.USE, 1L);
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        assertThat(countStatements("1"), is(1L));
+        assertThat(countStatements("25"), is(1L));
+    }
+
+    @Test
+    public void findSupplySliceByEstablishmentCuigShouldNotCountNorLoadEntities() {
+        for (int i = 0; i < 5; i++) {
+            persistSupply("Supply " + i, cuig);
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Slice<Supply> first = supplyRepository.findSupplySliceByEstablishmentCuig(cuig, PageRequest.of(0, 3));
+        Slice<Supply> last = supplyRepository.findSupplySliceByEstablishmentCuig(cuig, PageRequest.of(1, 3));
+
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(statistics.getEntityLoadCount(), is(0L));
+        assertThat(first.getContent().get(0).getCategoryName(), is("Alimento"));
+        assertThat(first.getNumberOfElements(), is(3));
+        assertThat(first.hasNext(), is(true));
+        assertThat(last.getNumberOfElements(), is(2));
+        assertThat(last.hasNext(), is(false));
+    }
+
+    @Test
+    public void searchShouldMatchSubstringsIgnoringCaseAndRankBySimilarity() {
+        persistSupply("Harina de maiz", cuig);
+        persistSupply("Maiz partido", cuig);
+        persistSupply("MAIZ", cuig);
+        persistSupply("Heno", cuig);
+        persistSupply("Maiz", "999");
+        persistSupply("Sal 100%", cuig);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        Page<CemaSupply> found = supplyRepository.findAll(SupplySpecifications.matching(
+                CemaSupply.builder().name(" maiz").establishmentCuig(cuig).build(), null), PageRequest.of(0, 2));
+        Page<CemaSupply> literal = supplyRepository.findAll(SupplySpecifications.matching(
+                CemaSupply.builder().name("0%").establishmentCuig(cuig).build(), null), PageRequest.of(0, 10));
+        Page<CemaSupply> wildcard = supplyRepository.findAll(SupplySpecifications.matching(
+                CemaSupply.builder().name("h_no").establishmentCuig(cuig).build(), null), PageRequest.of(0, 10));
+
+        assertThat(found.getTotalElements(), is(3L));
+        assertThat(found.getContent().get(0).getName(), is("MAIZ"));
+        assertThat(found.getContent().get(1).getName(), is("Maiz partido"));
+        assertThat(literal.getContent().get(0).getName(), is("Sal 100%"));
+        assertThat(wildcard.getTotalElements(), is(0L));
+    }
+
+    private long countStatements(String cuig) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        supplyRepository.findAllAvailableSupplyTotals(cuig);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private CemaSupply persistSupply(String name, String cuig) {
+        return testEntityManager.persist(CemaSupply.builder()
+                .name(name)
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+    }
+
+    private void persistOperation(CemaSupply cemaSupply, String type, long amount) {
+        testEntityManager.persist(CemaSupplyOperation.builder()
+                .cemaSupply(cemaSupply)
+                .operationType(type)
+                .amount(amount)
+                .operatorName("merlinds")
+                .transactionDate(new Date())
+                .establishmentCuig(cemaSupply.getEstablishmentCuig())
+                .build());
+    }
+}
@@ -0,0 +1,86 @@
+package com.cema.economic.repositories;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.repositories.specifications.SupplySpecifications;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Latency of the supply search over 100k supplies, the trigram search against the ExampleMatcher containing search it
+ * replaced. Opt in with {@code mvn test -Dtest=SupplySearchBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EmbeddedPostgresConfig.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class SupplySearchBenchmarkTest {
+
+    private static final int RUNS = 50;
+    private static final String[] TERMS = {"maiz", "lote 123", "sin resultados"};
+
+    private final String cuig = "cuig-7";
+    private final ExampleMatcher containing = ExampleMatcher.matching()
+            .withIgnoreCase()
+            .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING);
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private SupplyRepository supplyRepository;
+
+    @BeforeEach
+    public void setUp() {
+        entityManager.createNativeQuery("insert into category (name, description) values ('Alimento', 'alimento')")
+                .executeUpdate();
+        entityManager.createNativeQuery("insert into supply (name, units, price, establishment_cuig, category_name, minimum_stock) " +
+                "select (array['Maiz', 'Heno', 'Sal', 'Avena', 'Soja', 'Trigo', 'Alfalfa', 'Vacuna', 'Ivermectina', 'Balanceado'])[1 + i % 10] " +
+                "|| ' lote ' || i, 'Kg', 10, 'cuig-' || (i % 50), 'Alimento', 5 from generate_series(1, 100000) i").executeUpdate();
+        entityManager.createNativeQuery("analyze").executeUpdate();
+    }
+
+    @Test
+    public void trigramSearchLatency() {
+        for (String term : TERMS) {
+            report("example, one cuig", term, name -> supplyRepository.findAll(Example.of(
+                    CemaSupply.builder().name(name).establishmentCuig(cuig).build(), containing), PageRequest.of(0, 10, Sort.by("name"))));
+            report("trigram, one cuig", term, name -> supplyRepository.findAll(SupplySpecifications.matching(
+                    CemaSupply.builder().name(name).establishmentCuig(cuig).build(), null), PageRequest.of(0, 10)));
+            report("example, every cuig", term, name -> supplyRepository.findAll(Example.of(
+                    CemaSupply.builder().name(name).build(), containing), PageRequest.of(0, 10, Sort.by("name"))));
+            report("trigram, every cuig", term, name -> supplyRepository.findAll(SupplySpecifications.matching(
+                    CemaSupply.builder().name(name).build(), null), PageRequest.of(0, 10)));
+        }
+    }
+
+    private void report(String path, String term, Function<String, ?> search) {
+        for (int i = 0; i < RUNS / 5; i++) {
+            search.apply(term);
+            entityManager.clear();
+        }
+        long[] micros = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search.apply(term);
+            micros[i] = (System.nanoTime() - start) / 1000;
+            entityManager.clear();
+        }
+        Arrays.sort(micros);
+        log.info("{} '{}': p50 {} us, p95 {} us", path, term, micros[RUNS / 2], micros[RUNS * 95 / 100]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.cema.economic.services.balance.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyBalanceCheckpoint;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.repositories.SupplyBalanceCheckpointRepository;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, SupplyCheckpointServiceImpl.class})
+@TestPropertySource(properties = "app.checkpoints.page-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SupplyCheckpointServiceImplTest {
+
+    private final String cuig = "321";
+    private final LocalDate period = LocalDate.now().withDayOfMonth(1);
+
+    @Autowired
+    private SupplyCheckpointService supplyCheckpointService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private SupplyBalanceRepository supplyBalanceRepository;
+    @Autowired
+    private SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    @MockBean
+    private SupplyBalanceService supplyBalanceService;
+
+    @AfterEach
+    public void tearDown() {
+        supplyOperationRepository.deleteAllInBatch();
+        supplyBalanceCheckpointRepository.deleteAllInBatch();
+        supplyBalanceRepository.deleteAllInBatch();
+        supplyRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void aSupplyThatFailsShouldNotStopTheCheckpointsOfTheOthers() {
+        CemaCategory cemaCategory = categoryRepository.save(CemaCategory.builder().name("Alimento").description("alimento").build());
+        List<CemaSupply> supplies = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            CemaSupply cemaSupply = supplyRepository.save(CemaSupply.builder()
+                    .name("Supply " + i)
+                    .units("Kg")
+                    .price(10L)
+                    .establishmentCuig(cuig)
+                    .category(cemaCategory)
+                    .build());
+            supplyOperationRepository.save(CemaSupplyOperation.builder()
+                    .cemaSupply(cemaSupply)
+                    .operationType(OperationType.BUY)
+                    .amount((long) i)
+                    .operatorName("merlinds")
+                    .transactionDate(toDate(period.minusMonths(2).plusDays(3)))
+                    .establishmentCuig(cuig)
+                    .build());
+            supplies.add(cemaSupply);
+        }
+        when(supplyBalanceService.getAvailable(argThat(cemaSupply -> cemaSupply != null && "Supply 3".equals(cemaSupply.getName()))))
+                .thenThrow(new IllegalStateException("The balance of Supply 3 is locked"));
+
+        supplyCheckpointService.createCurrentCheckpoints();
+
+        for (CemaSupply cemaSupply : supplies) {
+            Optional<CemaSupplyBalanceCheckpoint> latest = supplyBalanceCheckpointRepository
+                    .findFirstBySupplyIdOrderByPeriodStartDesc(cemaSupply.getId());
+            if ("Supply 3".equals(cemaSupply.getName())) {
+                assertThat(latest.isPresent(), is(false));
+            } else {
+                assertThat(latest.isPresent(), is(true));
+                assertThat(latest.get().getPeriodStart().getTime(), is(toDate(period).getTime()));
+                assertThat(latest.get().getAvailable(), is(supplies.indexOf(cemaSupply) + 1L));
+            }
+        }
+        assertThat(supplyBalanceCheckpointRepository.count(), is(12L));
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
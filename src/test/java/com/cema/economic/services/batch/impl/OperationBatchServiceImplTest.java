@@ -0,0 +1,309 @@
+package com.cema.economic.services.batch.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.BatchItemStatus;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.BatchItemResult;
+import com.cema.economic.domain.BovineBatchOperation;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.SupplyOperation;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.impl.BovineOperationMappingImpl;
+import com.cema.economic.mapping.impl.SupplyOperationMappingImpl;
+import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.BovineOperationRollupRepository;
+import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.repositories.SupplyBalanceCheckpointRepository;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.impl.SupplyBalanceServiceImpl;
+import com.cema.economic.services.balance.impl.SupplyCheckpointServiceImpl;
+import com.cema.economic.services.batch.OperationBatchService;
+import com.cema.economic.services.bovine.impl.BovineOperationServiceImpl;
+import com.cema.economic.services.cache.impl.StripedAvailabilityCache;
+import com.cema.economic.services.calculation.impl.CalculationServiceImpl;
+import com.cema.economic.services.client.administration.AdministrationClientService;
+import com.cema.economic.services.client.bovine.BovineClientService;
+import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.validation.impl.BovineOperationValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, OperationBatchServiceImpl.class, SupplyBalanceServiceImpl.class,
+        SupplyCheckpointServiceImpl.class, CalculationServiceImpl.class, SupplyOperationMappingImpl.class,
+        StripedAvailabilityCache.class, SimpleMeterRegistry.class, LocalValidatorFactoryBean.class,
+        BovineOperationServiceImpl.class, BovineOperationMappingImpl.class, BovineOperationValidationService.class})
+@TestPropertySource(properties = "app.batch.max-size=100")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OperationBatchServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private OperationBatchService operationBatchService;
+    @Autowired
+    private SupplyBalanceService supplyBalanceService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private SupplyBalanceRepository supplyBalanceRepository;
+    @Autowired
+    private SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    @Autowired
+    private BovineOperationRepository bovineOperationRepository;
+    @Autowired
+    private BovineOperationRollupRepository bovineOperationRollupRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @MockBean
+    private AuthorizationService authorizationService;
+    @MockBean
+    private UsersClientService usersClientService;
+    @MockBean
+    private AdministrationClientService administrationClientService;
+    @MockBean
+    private BovineClientService bovineClientService;
+
+    @BeforeEach
+    public void setUp() {
+        when(authorizationService.isOnTheSameEstablishment(any())).thenReturn(true);
+        CemaCategory cemaCategory = categoryRepository.save(CemaCategory.builder().name("Alimento").description("alimento").build());
+        createSupply("Maiz", cemaCategory);
+        createSupply("Heno", cemaCategory);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bovineOperationRollupRepository.deleteAllInBatch();
+        bovineOperationRepository.deleteAllInBatch();
+        supplyOperationRepository.deleteAllInBatch();
+        supplyBalanceCheckpointRepository.deleteAllInBatch();
+        supplyBalanceRepository.deleteAllInBatch();
+        supplyRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void failedItemsShouldNotPreventTheOthersFromBeingInserted() {
+        doThrow(new ValidationException("The user intruder does not exists")).when(usersClientService).validateUser("intruder");
+        SupplyOperation intruder = operation(OperationType.BUY, 5L, "Maiz");
+        intruder.setOperatorUserName("intruder");
+        SupplyOperation invalid = operation(OperationType.BUY, 0L, "Maiz");
+
+        List<BatchItemResult<SupplyOperation>> results = operationBatchService.registerSupplyOperations(Arrays.asList(
+                operation("BUY", 10L, "Maiz"),
+                operation(OperationType.USE, 4L, "Maiz"),
+                operation(OperationType.USE, 7L, "Maiz"),
+                operation(OperationType.BUY, 3L, "Avena"),
+                intruder,
+                invalid,
+                operation(OperationType.BUY, 2L, "Heno")));
+
+        assertThat(results.size(), is(7));
+        assertThat(results.get(0).getStatus(), is(BatchItemStatus.CREATED));
+        assertThat(results.get(0).getItem().getOperationType(), is(OperationType.BUY));
+        assertThat(results.get(1).getStatus(), is(BatchItemStatus.CREATED));
+        assertThat(results.get(2).getError(), is("This operation amount 7 exceeds what is available 6 for the supply Maiz"));
+        assertThat(results.get(3).getError(), is("The supply Avena does not exists"));
+        assertThat(results.get(4).getError(), is("The user intruder does not exists"));
+        assertThat(results.get(5).getStatus(), is(BatchItemStatus.FAILED));
+        assertThat(results.get(6).getStatus(), is(BatchItemStatus.CREATED));
+        assertThat(results.get(6).getIndex(), is(6));
+
+        assertThat(supplyOperationRepository.count(), is(3L));
+        assertThat(supplyBalanceService.getAvailable(supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig)), is(6L));
+        assertThat(supplyBalanceService.getAvailable(supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Heno", cuig)), is(2L));
+        verify(usersClientService, times(1)).validateUser("merlinds");
+    }
+
+    @Test
+    public void supplyNamesShouldBeMatchedIgnoringTheirCase() {
+        createSupply("heno", categoryRepository.findAll().get(0));
+
+        List<BatchItemResult<SupplyOperation>> results = operationBatchService.registerSupplyOperations(Arrays.asList(
+                operation(OperationType.BUY, 5L, "maiz"),
+                operation(OperationType.BUY, 2L, "HENO"),
+                operation(OperationType.BUY, 3L, "heno")));
+
+        assertThat(results.stream().allMatch(result -> BatchItemStatus.CREATED.equals(result.getStatus())), is(true));
+        assertThat(supplyBalanceService.getAvailable(supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig)), is(5L));
+        assertThat(supplyBalanceService.getAvailable(supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Heno", cuig)), is(2L));
+        assertThat(supplyBalanceService.getAvailable(supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("heno", cuig)), is(3L));
+    }
+
+    @Test
+    public void operationsShouldBeInsertedInJdbcBatches() {
+        List<SupplyOperation> supplyOperations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            supplyOperations.add(operation(OperationType.BUY, 1L, i % 2 == 0 ? "Maiz" : "Heno"));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BatchItemResult<SupplyOperation>> results = operationBatchService.registerSupplyOperations(supplyOperations);
+
+        assertThat(results.stream().allMatch(result -> BatchItemStatus.CREATED.equals(result.getStatus())), is(true));
+        assertThat(supplyOperationRepository.count(), is(100L));
+        assertThat(statistics.getPrepareStatementCount(), lessThan(20L));
+    }
+
+    @Test
+    public void batchesOutsideTheLimitsShouldBeRejected() {
+        assertThrows(ValidationException.class, () -> operationBatchService.registerSupplyOperations(Collections.emptyList()));
+        assertThrows(ValidationException.class, () -> operationBatchService.registerSupplyOperations(
+                Collections.nCopies(101, operation(OperationType.BUY, 1L, "Maiz"))));
+    }
+
+    @Test
+    public void batchOperationShouldSplitTheAmountBetweenEveryBovine() {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tags.add(String.valueOf(1000 + i));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BovineOperation> bovineOperations = operationBatchService.registerBovineBatchOperation(bovineBatch(tags, 100_050L));
+
+        assertThat(bovineOperations.size(), is(100));
+        assertThat(bovineOperations.get(0).getAmount(), is(1001L));
+        assertThat(bovineOperations.get(49).getAmount(), is(1001L));
+        assertThat(bovineOperations.get(50).getAmount(), is(1000L));
+        assertThat(bovineOperations.get(99).getBovineTag(), is("1099"));
+        assertThat(bovineOperations.stream().mapToLong(BovineOperation::getAmount).sum(), is(100_050L));
+        assertThat(bovineOperationRepository.count(), is(100L));
+        assertThat(bovineOperationRollupRepository.sumOperations(cuig), is(100L));
+        assertThat(statistics.getPrepareStatementCount(), lessThan(10L));
+        verify(bovineClientService, times(1)).validateBatch("Lote 3", cuig);
+        verify(bovineClientService, times(1)).validateBovine("1042", cuig);
+        verify(bovineClientService, times(100)).validateBovine(any(), any());
+        verify(usersClientService, times(1)).validateUser("merlinds");
+        verify(administrationClientService, times(1)).validateEstablishment(cuig);
+    }
+
+    @Test
+    public void batchOperationWithRepeatedBovinesShouldBeRejected() {
+        assertThrows(ValidationException.class, () -> operationBatchService.registerBovineBatchOperation(
+                bovineBatch(Arrays.asList("1000", "1001", "1000"), 300L)));
+        assertThat(bovineOperationRepository.count(), is(0L));
+    }
+
+    @Test
+    public void batchOperationWithAnInvalidBovineShouldBeRejected() {
+        doThrow(new ValidationException("The bovine 1001 does not exists")).when(bovineClientService).validateBovine("1001", cuig);
+
+        ValidationException validationException = assertThrows(ValidationException.class, () -> operationBatchService
+                .registerBovineBatchOperation(bovineBatch(Arrays.asList("1000", "1001", "1002"), 300L)));
+
+        assertThat(validationException.getMessage(), is("The bovine 1001 does not exists"));
+        assertThat(bovineOperationRepository.count(), is(0L));
+        assertThat(bovineOperationRollupRepository.sumOperations(cuig), is(0L));
+    }
+
+    @Test
+    public void batchOperationShouldValidateTheBovinesAtTheSameTimeWithTheCallerAuthentication() {
+        Authentication authentication = new TestingAuthenticationToken("merlinds", "token");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<Authentication> seen = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(10, TimeUnit.SECONDS)) {
+                throw new ValidationException("The bovines were validated one after the other");
+            }
+            seen.add(SecurityContextHolder.getContext().getAuthentication());
+            return null;
+        }).when(bovineClientService).validateBovine(any(), any());
+
+        try {
+            operationBatchService.registerBovineBatchOperation(bovineBatch(Arrays.asList("1000", "1001"), 200L));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        assertThat(seen, is(Arrays.asList(authentication, authentication)));
+        assertThat(bovineOperationRepository.count(), is(2L));
+    }
+
+    private void createSupply(String name, CemaCategory cemaCategory) {
+        CemaSupply cemaSupply = supplyRepository.save(CemaSupply.builder()
+                .name(name)
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+        supplyBalanceService.createBalance(cemaSupply);
+    }
+
+    private SupplyOperation operation(String type, long amount, String supplyName) {
+        return SupplyOperation.builder()
+                .operationType(type)
+                .amount(amount)
+                .operatorUserName("merlinds")
+                .transactionDate(new Date())
+                .establishmentCuig(cuig)
+                .supplyName(supplyName)
+                .build();
+    }
+
+    private BovineBatchOperation bovineBatch(List<String> tags, long amount) {
+        return BovineBatchOperation.builder()
+                .batchName("Lote 3")
+                .bovineTags(tags)
+                .establishmentCuig(cuig)
+                .amount(amount)
+                .buyerName("Roberto")
+                .operationType("SELL")
+                .operatorUserName("merlinds")
+                .transactionDate(new Date())
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.cema.economic.services.bovine.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.BovineHistory;
+import com.cema.economic.domain.BovineOperation;
+import com.cema.economic.domain.IncomeResponse;
+import com.cema.economic.domain.MonthlyIncome;
+import com.cema.economic.entities.CemaBovineOperation;
+import com.cema.economic.exceptions.NotFoundException;
+import com.cema.economic.mapping.impl.BovineOperationMappingImpl;
+import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.BovineOperationRollupRepository;
+import com.cema.economic.repositories.projections.BovineMarginRankView;
+import com.cema.economic.services.bovine.BovineOperationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, BovineOperationServiceImpl.class, BovineOperationMappingImpl.class})
+public class BovineOperationServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private BovineOperationService bovineOperationService;
+    @Autowired
+    private BovineOperationRollupRepository bovineOperationRollupRepository;
+    @Autowired
+    private BovineOperationRepository bovineOperationRepository;
+
+    @Test
+    public void totalsShouldFollowInsertsAndUpdatesOfOperations() {
+        bovineOperationService.saveBovineOperation(operation(OperationType.BUY, 1000L, LocalDate.of(2021, 1, 10)));
+        bovineOperationService.saveBovineOperation(operation(OperationType.SELL, 1500L, LocalDate.of(2021, 1, 20)));
+        CemaBovineOperation sale = bovineOperationService.saveBovineOperation(operation("SELL", 700L, LocalDate.of(2021, 2, 3)));
+        bovineOperationService.saveBovineOperation(operation(OperationType.SELL, 300L, LocalDate.of(2021, 4, 1)));
+        CemaBovineOperation otherEstablishment = operation(OperationType.SELL, 99L, LocalDate.of(2021, 1, 5));
+        otherEstablishment.setEstablishmentCuig("999");
+        bovineOperationService.saveBovineOperation(otherEstablishment);
+
+        BovineOperation update = BovineOperation.builder()
+                .amount(800L)
+                .transactionDate(toDate(LocalDate.of(2021, 3, 15)))
+                .build();
+        bovineOperationService.updateBovineOperation(sale, update);
+
+        List<MonthlyIncome> months = bovineOperationService.getMonthlyTotals(cuig, YearMonth.of(2021, 1), YearMonth.of(2021, 3));
+        assertThat(months.size(), is(2));
+        assertThat(months.get(0).getMonth(), is("2021-01"));
+        assertThat(months.get(0).getTotal(), is(500L));
+        assertThat(months.get(1).getMonth(), is("2021-03"));
+        assertThat(months.get(1).getIncome(), is(800L));
+
+        IncomeResponse total = bovineOperationService.getTotal(cuig, null, null);
+        assertThat(total.getIncome(), is(2600L));
+        assertThat(total.getSpending(), is(1000L));
+        assertThat(total.getTotal(), is(1600L));
+
+        bovineOperationService.rebuildRollups(cuig);
+        assertThat(bovineOperationService.getTotal(cuig, null, null), is(total));
+        assertThat(bovineOperationRollupRepository.count(), is(5L));
+    }
+
+    @Test
+    public void bovineHistoryShouldIncludeItsOperationsAndMargin() {
+        bovineOperationService.saveBovineOperation(operation(OperationType.SELL, 1500L, LocalDate.of(2021, 6, 20)));
+        bovineOperationService.saveBovineOperation(operation("BUY", 1000L, LocalDate.of(2021, 1, 10)));
+        CemaBovineOperation other = operation(OperationType.BUY, 900L, LocalDate.of(2021, 1, 10));
+        other.setBovineTag("9999");
+        bovineOperationService.saveBovineOperation(other);
+
+        BovineHistory history = bovineOperationService.getBovineHistory(cuig, "1234");
+
+        assertThat(history.getOperations().size(), is(2));
+        assertThat(history.getOperations().get(0).getOperationType(), is("BUY"));
+        assertThat(history.getMargin().getIncome(), is(1500L));
+        assertThat(history.getMargin().getSpending(), is(1000L));
+        assertThat(history.getMargin().getMargin(), is(500L));
+        assertThrows(NotFoundException.class, () -> bovineOperationService.getBovineHistory("999", "1234"));
+    }
+
+    @Test
+    public void topAndBottomMarginsShouldBeRankedInTheDatabase() {
+        long[] margins = {300L, -200L, 50L, 700L, 0L};
+        for (int i = 0; i < margins.length; i++) {
+            CemaBovineOperation buy = operation(OperationType.BUY, 1000L, LocalDate.of(2021, 1, 10));
+            buy.setBovineTag("tag" + i);
+            CemaBovineOperation sell = operation(OperationType.SELL, 1000L + margins[i], LocalDate.of(2021, 5, 10));
+            sell.setBovineTag("tag" + i);
+            bovineOperationService.saveBovineOperation(buy);
+            bovineOperationService.saveBovineOperation(sell);
+        }
+
+        List<BovineMarginRankView> ranked = bovineOperationRepository.findTopAndBottomMargins(cuig, 2);
+
+        assertThat(ranked.size(), is(4));
+        assertThat(ranked.get(0).getBovineTag(), is("tag3"));
+        assertThat(ranked.get(0).getTopRank(), is(1L));
+        assertThat(ranked.get(1).getMargin(), is(300L));
+        assertThat(ranked.get(2).getBovineTag(), is("tag4"));
+        assertThat(ranked.get(2).getBottomRank(), is(2L));
+        assertThat(ranked.get(3).getMargin(), is(-200L));
+    }
+
+    private CemaBovineOperation operation(String type, long amount, LocalDate transactionDate) {
+        return CemaBovineOperation.builder()
+                .bovineTag("1234")
+                .operationType(type)
+                .amount(amount)
+                .operatorName("merlinds")
+                .transactionDate(toDate(transactionDate))
+                .establishmentCuig(cuig)
+                .build();
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
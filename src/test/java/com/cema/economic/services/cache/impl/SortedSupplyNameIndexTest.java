@@ -0,0 +1,84 @@
+package com.cema.economic.services.cache.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+public class SortedSupplyNameIndexTest {
+
+    private final String cuig = "321";
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void suggestShouldMatchPrefixesIgnoringCaseInAlphabeticalOrder() {
+        SortedSupplyNameIndex index = new SortedSupplyNameIndex(true, 10, new SimpleMeterRegistry());
+        Supplier<List<String>> loader = loader("Heno", "harina", "Maiz", "HENO rollo", "Sal");
+
+        assertThat(index.suggest(cuig, "he", 10, loader), is(Arrays.asList("Heno", "HENO rollo")));
+        assertThat(index.suggest(cuig, "H", 2, loader), is(Arrays.asList("harina", "Heno")));
+        assertThat(index.suggest(cuig, "", 10, loader).size(), is(5));
+        assertThat(index.suggest(cuig, "x", 10, loader), is(Collections.emptyList()));
+        assertThat(index.suggest("999", "he", 10, loader("Hierro")), is(Collections.emptyList()));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void addAndRemoveShouldKeepALoadedEstablishmentCurrent() {
+        SortedSupplyNameIndex index = new SortedSupplyNameIndex(true, 10, new SimpleMeterRegistry());
+        Supplier<List<String>> loader = loader("Heno", "Maiz");
+        index.suggest(cuig, "", 10, loader);
+
+        index.add(cuig, "Harina");
+        index.add(cuig, "Harina");
+        index.remove(cuig, "Heno");
+        index.add("999", "Hierro");
+
+        assertThat(index.suggest(cuig, "h", 10, loader), is(Collections.singletonList("Harina")));
+        assertThat(index.suggest("999", "h", 10, loader("Heno")), is(Collections.singletonList("Heno")));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void warmLookupsShouldNotLoadAgainAndStayUnderAMillisecond() {
+        SortedSupplyNameIndex index = new SortedSupplyNameIndex(true, 10, new SimpleMeterRegistry());
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            names.add("Supply " + i);
+        }
+        Supplier<List<String>> loader = () -> {
+            loads.incrementAndGet();
+            return names;
+        };
+        for (int i = 0; i < 20000; i++) {
+            index.suggest(cuig, "supply " + (i % 500), 10, loader);
+        }
+
+        long[] nanos = new long[10000];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            index.suggest(cuig, "supply " + (i % 500), 10, loader);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        assertThat(loads.get(), is(1));
+        assertThat(nanos[nanos.length * 99 / 100], lessThan(1_000_000L));
+    }
+
+    private Supplier<List<String>> loader(String... names) {
+        return () -> {
+            loads.incrementAndGet();
+            return Arrays.asList(names);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.cema.economic.services.cache.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class StripedAvailabilityCacheTest {
+
+    private final String cuig = "321";
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void getAvailableShouldOnlyLoadOnceForTheSameSupplyIgnoringCase() {
+        StripedAvailabilityCache cache = new StripedAvailabilityCache(true, 100, 4, meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+
+        long first = cache.getAvailable(cuig, "Maiz", () -> loads.incrementAndGet() * 10L);
+        long second = cache.getAvailable(cuig, "MAIZ", () -> loads.incrementAndGet() * 10L);
+
+        assertThat(first, is(10L));
+        assertThat(second, is(10L));
+        assertThat(loads.get(), is(1));
+        assertThat(meterRegistry.counter("economic.availability.cache.requests", "result", "hit").count(), is(1.0));
+        assertThat(meterRegistry.counter("economic.availability.cache.requests", "result", "miss").count(), is(1.0));
+    }
+
+    @Test
+    public void invalidateShouldForceTheNextReadToLoad() {
+        StripedAvailabilityCache cache = new StripedAvailabilityCache(true, 100, 4, meterRegistry);
+        cache.getAvailable(cuig, "Maiz", () -> 10L);
+
+        cache.invalidate(cuig, "maiz");
+        long result = cache.getAvailable(cuig, "Maiz", () -> 7L);
+
+        assertThat(result, is(7L));
+    }
+
+    @Test
+    public void valueLoadedWhileInvalidatedShouldNotBeStored() {
+        StripedAvailabilityCache cache = new StripedAvailabilityCache(true, 100, 4, meterRegistry);
+
+        long stale = cache.getAvailable(cuig, "Maiz", () -> {
+            cache.invalidate(cuig, "Maiz");
+            return 10L;
+        });
+        long result = cache.getAvailable(cuig, "Maiz", () -> 7L);
+
+        assertThat(stale, is(10L));
+        assertThat(result, is(7L));
+    }
+
+    @Test
+    public void cacheShouldEvictTheLeastRecentlyUsedEntriesWhenFull() {
+        StripedAvailabilityCache cache = new StripedAvailabilityCache(true, 2, 1, meterRegistry);
+        cache.getAvailable(cuig, "Maiz", () -> 1L);
+        cache.getAvailable(cuig, "Heno", () -> 2L);
+        cache.getAvailable(cuig, "Maiz", () -> 1L);
+
+        cache.getAvailable(cuig, "Sal", () -> 3L);
+        long result = cache.getAvailable(cuig, "Heno", () -> 20L);
+
+        assertThat(result, is(20L));
+        assertThat(meterRegistry.counter("economic.availability.cache.evictions").count(), is(2.0));
+        assertThat(meterRegistry.get("economic.availability.cache.size").gauge().value(), is(2.0));
+    }
+
+    @Test
+    public void disabledCacheShouldAlwaysLoad() {
+        StripedAvailabilityCache cache = new StripedAvailabilityCache(false, 100, 4, meterRegistry);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getAvailable(cuig, "Maiz", () -> loads.incrementAndGet());
+        cache.getAvailable(cuig, "Maiz", () -> loads.incrementAndGet());
+
+        assertThat(loads.get(), is(2));
+    }
+}
@@ -0,0 +1,92 @@
+package com.cema.economic.services.count.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.entities.CemaBovineOperationRollup;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.services.count.CountService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, CountServiceImpl.class})
+public class CountServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private CountService countService;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    public void estimateSupplyOperationsShouldUseTheStatisticsOfTheEstablishment() {
+        CemaCategory cemaCategory = testEntityManager.persist(CemaCategory.builder().name("Alimento").description("alimento").build());
+        CemaSupply maiz = persistSupply(cemaCategory, cuig);
+        CemaSupply otherMaiz = persistSupply(cemaCategory, "999");
+        for (int i = 0; i < 40; i++) {
+            persistOperation(maiz);
+        }
+        for (int i = 0; i < 10; i++) {
+            persistOperation(otherMaiz);
+        }
+        testEntityManager.flush();
+        testEntityManager.getEntityManager().createNativeQuery("analyze supply_operation").executeUpdate();
+
+        assertThat(countService.estimateSupplyOperations(cuig), is(40L));
+        assertThat(countService.estimateSupplyOperations(null), is(50L));
+    }
+
+    @Test
+    public void estimateBovineOperationsShouldSumTheRollupOfTheEstablishment() {
+        persistRollup(cuig, new Date(0), OperationType.BUY, 3L);
+        persistRollup(cuig, new Date(), OperationType.SELL, 2L);
+        persistRollup("999", new Date(), OperationType.BUY, 7L);
+        testEntityManager.flush();
+
+        assertThat(countService.estimateBovineOperations(cuig), is(5L));
+    }
+
+    private CemaSupply persistSupply(CemaCategory cemaCategory, String cuig) {
+        return testEntityManager.persist(CemaSupply.builder()
+                .name("Maiz")
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+    }
+
+    private void persistOperation(CemaSupply cemaSupply) {
+        testEntityManager.persist(CemaSupplyOperation.builder()
+                .cemaSupply(cemaSupply)
+                .operationType(OperationType.BUY)
+                .amount(1L)
+                .operatorName("merlinds")
+                .transactionDate(new Date())
+                .establishmentCuig(cemaSupply.getEstablishmentCuig())
+                .build());
+    }
+
+    private void persistRollup(String cuig, Date periodStart, String operationType, long operations) {
+        testEntityManager.persist(CemaBovineOperationRollup.builder()
+                .establishmentCuig(cuig)
+                .periodStart(periodStart)
+                .operationType(operationType)
+                .amount(100L)
+                .operations(operations)
+                .build());
+    }
+}
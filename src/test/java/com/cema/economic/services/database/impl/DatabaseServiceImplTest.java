@@ -0,0 +1,284 @@
+package com.cema.economic.services.database.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.HistoryBucket;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.domain.AvailableSupply;
+import com.cema.economic.domain.Supply;
+import com.cema.economic.domain.SupplyStockPoint;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.impl.SupplyMappingImpl;
+import com.cema.economic.mapping.impl.SupplyOperationMappingImpl;
+import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.repositories.SupplyBalanceCheckpointRepository;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyPriceRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.SupplyCheckpointService;
+import com.cema.economic.services.balance.SupplyHistoryService;
+import com.cema.economic.services.balance.impl.SupplyBalanceServiceImpl;
+import com.cema.economic.services.balance.impl.SupplyCheckpointServiceImpl;
+import com.cema.economic.services.balance.impl.SupplyHistoryServiceImpl;
+import com.cema.economic.services.cache.impl.StripedAvailabilityCache;
+import com.cema.economic.services.calculation.impl.CalculationServiceImpl;
+import com.cema.economic.services.database.DatabaseService;
+import com.cema.economic.services.price.impl.SupplyPriceServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, DatabaseServiceImpl.class, SupplyBalanceServiceImpl.class,
+        SupplyCheckpointServiceImpl.class, SupplyHistoryServiceImpl.class, CalculationServiceImpl.class, SupplyOperationMappingImpl.class,
+        SupplyMappingImpl.class, SupplyPriceServiceImpl.class, StripedAvailabilityCache.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DatabaseServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private DatabaseService databaseService;
+    @Autowired
+    private SupplyBalanceService supplyBalanceService;
+    @Autowired
+    private SupplyCheckpointService supplyCheckpointService;
+    @Autowired
+    private SupplyHistoryService supplyHistoryService;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private SupplyBalanceRepository supplyBalanceRepository;
+    @Autowired
+    private SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    @Autowired
+    private SupplyPriceRepository supplyPriceRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        categoryRepository.save(CemaCategory.builder().name("Alimento").description("alimento").build());
+        createSupply("Maiz");
+        createSupply("Heno");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        supplyOperationRepository.deleteAllInBatch();
+        supplyBalanceCheckpointRepository.deleteAllInBatch();
+        supplyPriceRepository.deleteAllInBatch();
+        supplyBalanceRepository.deleteAllInBatch();
+        supplyRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void concurrentConsumptionsShouldNeverDriveTheBalanceNegative() throws Exception {
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 100L), "Maiz");
+
+        int threads = 16;
+        int attempts = 50;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                try {
+                    databaseService.saveSupplyOperation(operation(OperationType.USE, 3L), "Maiz");
+                    accepted.incrementAndGet();
+                } catch (ValidationException validationException) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executorService.shutdown();
+
+        assertThat(accepted.get(), is(33));
+        assertThat(rejected.get(), is(17));
+        assertThat(databaseService.getAvailableSupplyByName("Maiz", cuig), is(1L));
+        long ledger = supplyOperationRepository.findAllByEstablishmentCuigAndCemaSupplyName(cuig, "Maiz").stream()
+                .mapToLong(operation -> OperationType.BUY.equals(operation.getOperationType()) ? operation.getAmount() : -operation.getAmount())
+                .sum();
+        assertThat(ledger, is(1L));
+    }
+
+    @Test
+    public void consumingASupplyShouldNotWaitForOtherSuppliesBeingConsumed() throws Exception {
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 10L), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 10L), "Heno");
+        CemaSupply maiz = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig);
+
+        CountDownLatch maizLocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> holder = executorService.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            supplyBalanceService.consume(maiz, 1L);
+            maizLocked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        maizLocked.await(30, TimeUnit.SECONDS);
+
+        databaseService.saveSupplyOperation(operation(OperationType.USE, 4L), "Heno");
+        assertThat(databaseService.getAvailableSupplyByName("Heno", cuig), is(6L));
+
+        release.countDown();
+        holder.get(30, TimeUnit.SECONDS);
+        executorService.shutdown();
+        assertThat(databaseService.getAvailableSupplyByName("Maiz", cuig), is(9L));
+    }
+
+    @Test
+    public void availabilityAsOfShouldIncludeBackDatedOperations() {
+        LocalDate january = LocalDate.now().withDayOfMonth(1).minusMonths(4);
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 90L, january.plusDays(9)), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.USE, 5L, january.plusMonths(2).plusDays(2)), "Maiz");
+        CemaSupply maiz = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig);
+
+        assertThat(supplyCheckpointService.getAvailableAsOf(maiz, january.plusDays(8)), is(0L));
+        assertThat(supplyCheckpointService.getAvailableAsOf(maiz, january.plusMonths(3).plusDays(14)), is(85L));
+        assertThat(supplyBalanceCheckpointRepository.count(), is(4L));
+
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 7L, january.plusMonths(1).plusDays(19)), "Maiz");
+
+        assertThat(supplyCheckpointService.getAvailableAsOf(maiz, january.plusMonths(1).plusDays(27)), is(97L));
+        assertThat(supplyCheckpointService.getAvailableAsOf(maiz, january.plusMonths(3).plusDays(14)), is(92L));
+        assertThat(supplyCheckpointService.getAvailableAsOf(maiz, LocalDate.now()), is(databaseService.getAvailableSupplyByName("Maiz", cuig)));
+    }
+
+    @Test
+    public void stockHistoryShouldRunTheBalanceFromTheOpeningOne() {
+        LocalDate january = LocalDate.now().withDayOfMonth(1).minusMonths(4);
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 90L, january.plusDays(9)), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.USE, 5L, january.plusMonths(2).plusDays(2)), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.LOSS, 1L, january.plusMonths(2).plusDays(20)), "Maiz");
+
+        CemaSupply maiz = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig);
+        List<SupplyStockPoint> history = supplyHistoryService.getStockHistory(maiz, january.plusMonths(1), january.plusMonths(3), HistoryBucket.MONTH);
+
+        assertThat(history.size(), is(3));
+        assertThat(history.get(0).getAvailable(), is(90L));
+        assertThat(history.get(1).getMovement(), is(-6L));
+        assertThat(history.get(1).getAvailable(), is(84L));
+        assertThat(history.get(2).getAvailable(), is(84L));
+    }
+
+    @Test
+    public void suppliesBelowMinimumShouldFollowEveryChangeInTheBalance() {
+        CemaSupply maiz = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig);
+        databaseService.updateCemaSupply(maiz, Supply.builder().minimumStock(20L).build());
+        assertThat(supplyBalanceService.getBelowMinimum(cuig).size(), is(1));
+
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 30L), "Maiz");
+        assertThat(supplyBalanceService.getBelowMinimum(cuig).size(), is(0));
+
+        databaseService.saveSupplyOperation(operation(OperationType.USE, 15L), "Maiz");
+        List<AvailableSupply> belowMinimum = supplyBalanceService.getBelowMinimum(cuig);
+        assertThat(belowMinimum.size(), is(1));
+        assertThat(belowMinimum.get(0).getSupplyName(), is("Maiz"));
+        assertThat(belowMinimum.get(0).getAvailable(), is(15L));
+        assertThat(belowMinimum.get(0).getMinimumStock(), is(20L));
+
+        databaseService.updateCemaSupply(maiz, Supply.builder().minimumStock(10L).build());
+        assertThat(supplyBalanceService.getBelowMinimum(cuig).size(), is(0));
+
+        supplyBalanceService.rebuildBalances(cuig);
+        assertThat(supplyBalanceService.getBelowMinimum(cuig).size(), is(0));
+    }
+
+    @Test
+    public void spendingShouldValueEveryPurchaseAtThePriceWhenItWasBought() {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 5L, lastYear), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.USE, 2L, lastYear), "Maiz");
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 2L, lastYear), "Heno");
+
+        CemaSupply maiz = supplyRepository.findCemaSupplyByNameAndEstablishmentCuigIgnoreCase("Maiz", cuig);
+        databaseService.updateCemaSupply(maiz, Supply.builder().price(20L).build());
+        databaseService.saveSupplyOperation(operation(OperationType.BUY, 3L), "Maiz");
+
+        Date from = toDate(lastYear.minusDays(1));
+        Date until = toDate(LocalDate.now().plusDays(1));
+        assertThat(supplyOperationRepository.getValuedSpending(cuig, from, until), is(5L * 10 + 2L * 10 + 3L * 20));
+        assertThat(supplyOperationRepository.getValuedSpending(cuig, from, toDate(lastYear.plusDays(1))), is(70L));
+        assertThat(supplyOperationRepository.getValuedSpending("999", from, until), is(0L));
+    }
+
+    private void createSupply(String name) {
+        CemaSupply cemaSupply = CemaSupply.builder()
+                .name(name)
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .build();
+        databaseService.saveCemaSupply(cemaSupply, "Alimento");
+    }
+
+    private CemaSupplyOperation operation(String type, long amount) {
+        return operation(type, amount, new Date());
+    }
+
+    private CemaSupplyOperation operation(String type, long amount, LocalDate transactionDate) {
+        return operation(type, amount, toDate(transactionDate));
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private CemaSupplyOperation operation(String type, long amount, Date transactionDate) {
+        return CemaSupplyOperation.builder()
+                .operationType(type)
+                .amount(amount)
+                .operatorName("merlinds")
+                .transactionDate(transactionDate)
+                .establishmentCuig(cuig)
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.cema.economic.services.export.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.ExportFormat;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.services.export.ExportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, ExportServiceImpl.class})
+@TestPropertySource(properties = "app.export.fetch-size=2")
+public class ExportServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @BeforeEach
+    public void setUp() {
+        CemaCategory cemaCategory = testEntityManager.persist(CemaCategory.builder().name("Alimento").description("alimento").build());
+        CemaSupply maiz = testEntityManager.persist(CemaSupply.builder()
+                .name("Maiz")
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+        for (int i = 1; i <= 5; i++) {
+            testEntityManager.persist(CemaSupplyOperation.builder()
+                    .cemaSupply(maiz)
+                    .operationType(OperationType.BUY)
+                    .amount((long) i)
+                    .operatorName("merlinds")
+                    .description(i == 1 ? "Pagado, en \"efectivo\"" : null)
+                    .transactionDate(toDate(LocalDate.of(2021, 1, i)))
+                    .establishmentCuig(cuig)
+                    .build());
+        }
+        testEntityManager.flush();
+    }
+
+    @Test
+    public void csvExportShouldStreamEveryOperationInTheRangeAcrossFetches() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportSupplyOperations(cuig, LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 4), ExportFormat.CSV)
+                .writeTo(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\r\n");
+        assertThat(lines.length, is(5));
+        assertThat(lines[0], is("id,supply_name,operation_type,amount,operator_name,description,transaction_date,establishment_cuig"));
+        assertThat(lines[1].contains(",Maiz,buy,1,merlinds,\"Pagado, en \"\"efectivo\"\"\","), is(true));
+        assertThat(lines[4].contains(",Maiz,buy,4,merlinds,,"), is(true));
+    }
+
+    @Test
+    public void ndjsonExportShouldWriteOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportSupplyOperations(cuig, null, null, ExportFormat.NDJSON).writeTo(outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines.length, is(5));
+        JsonNode last = new ObjectMapper().readTree(lines[4]);
+        assertThat(last.get("amount").asLong(), is(5L));
+        assertThat(last.get("supply_name").asText(), is("Maiz"));
+        assertThat(last.get("description").isNull(), is(true));
+    }
+
+    @Test
+    public void exportShouldRejectUnknownFormatsBeforeStreaming() {
+        assertThrows(ValidationException.class, () -> exportService.exportBovineOperations(cuig, null, null, "xml"));
+    }
+
+    private Date toDate(LocalDate localDate) {
+        return Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
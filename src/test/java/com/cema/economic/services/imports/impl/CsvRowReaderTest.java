@@ -0,0 +1,41 @@
+package com.cema.economic.services.imports.impl;
+
+import com.cema.economic.exceptions.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvRowReaderTest {
+
+    @Test
+    public void readRowShouldReadWhatTheExportWrites() throws Exception {
+        CsvRowReader csvRowReader = reader("id,supply_name,description\r\n" +
+                "1,Maiz,\"En efectivo, con \"\"descuento\"\"\"\r\n" +
+                "\r\n" +
+                "2,,\"Dos\nlineas\"\n" +
+                "3,Heno,");
+
+        assertThat(csvRowReader.readRow(), arrayContaining("id", "supply_name", "description"));
+        assertThat(csvRowReader.readRow(), arrayContaining("1", "Maiz", "En efectivo, con \"descuento\""));
+        assertThat(csvRowReader.readRow(), arrayContaining("2", null, "Dos\nlineas"));
+        assertThat(csvRowReader.readRow(), arrayContaining("3", "Heno", null));
+        assertThat(csvRowReader.readRow(), nullValue());
+    }
+
+    @Test
+    public void readRowShouldRejectAnUnclosedQuote() throws Exception {
+        CsvRowReader csvRowReader = reader("1,\"Maiz\r\n2,Heno\r\n");
+
+        assertThrows(ValidationException.class, csvRowReader::readRow);
+    }
+
+    private CsvRowReader reader(String content) {
+        return new CsvRowReader(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,224 @@
+package com.cema.economic.services.imports.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.ImportJobStatus;
+import com.cema.economic.constants.ImportType;
+import com.cema.economic.domain.ImportJob;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.impl.BovineOperationMappingImpl;
+import com.cema.economic.mapping.impl.ImportJobMappingImpl;
+import com.cema.economic.mapping.impl.SupplyOperationMappingImpl;
+import com.cema.economic.repositories.BovineOperationRepository;
+import com.cema.economic.repositories.BovineOperationRollupRepository;
+import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.repositories.ImportJobErrorRepository;
+import com.cema.economic.repositories.ImportJobRepository;
+import com.cema.economic.repositories.SupplyBalanceCheckpointRepository;
+import com.cema.economic.repositories.SupplyBalanceRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.authorization.AuthorizationService;
+import com.cema.economic.services.balance.SupplyBalanceService;
+import com.cema.economic.services.balance.impl.SupplyBalanceServiceImpl;
+import com.cema.economic.services.balance.impl.SupplyCheckpointServiceImpl;
+import com.cema.economic.services.batch.impl.OperationBatchServiceImpl;
+import com.cema.economic.services.bovine.impl.BovineOperationServiceImpl;
+import com.cema.economic.services.cache.impl.StripedAvailabilityCache;
+import com.cema.economic.services.calculation.impl.CalculationServiceImpl;
+import com.cema.economic.services.client.administration.AdministrationClientService;
+import com.cema.economic.services.client.bovine.BovineClientService;
+import com.cema.economic.services.client.users.UsersClientService;
+import com.cema.economic.services.imports.ImportJobService;
+import com.cema.economic.services.validation.impl.BovineOperationValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, ImportJobServiceImpl.class, ImportJobMappingImpl.class,
+        OperationBatchServiceImpl.class, SupplyBalanceServiceImpl.class, SupplyCheckpointServiceImpl.class,
+        CalculationServiceImpl.class, SupplyOperationMappingImpl.class, StripedAvailabilityCache.class,
+        SimpleMeterRegistry.class, LocalValidatorFactoryBean.class, BovineOperationServiceImpl.class,
+        BovineOperationMappingImpl.class, BovineOperationValidationService.class})
+@TestPropertySource(properties = {"app.imports.batch-size=100", "app.imports.max-errors=2"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ImportJobServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private ImportJobService importJobService;
+    @Autowired
+    private SupplyBalanceService supplyBalanceService;
+    @Autowired
+    private ImportJobRepository importJobRepository;
+    @Autowired
+    private ImportJobErrorRepository importJobErrorRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private SupplyBalanceRepository supplyBalanceRepository;
+    @Autowired
+    private SupplyBalanceCheckpointRepository supplyBalanceCheckpointRepository;
+    @Autowired
+    private BovineOperationRepository bovineOperationRepository;
+    @Autowired
+    private BovineOperationRollupRepository bovineOperationRollupRepository;
+    @MockBean
+    private AuthorizationService authorizationService;
+    @MockBean
+    private UsersClientService usersClientService;
+    @MockBean
+    private AdministrationClientService administrationClientService;
+    @MockBean
+    private BovineClientService bovineClientService;
+
+    @BeforeEach
+    public void setUp() {
+        when(authorizationService.isOnTheSameEstablishment(any())).thenReturn(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        importJobErrorRepository.deleteAllInBatch();
+        importJobRepository.deleteAllInBatch();
+        bovineOperationRollupRepository.deleteAllInBatch();
+        bovineOperationRepository.deleteAllInBatch();
+        supplyOperationRepository.deleteAllInBatch();
+        supplyBalanceCheckpointRepository.deleteAllInBatch();
+        supplyBalanceRepository.deleteAllInBatch();
+        supplyRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void supplyImportShouldStoreTheValidRowsAndReportTheOthers() {
+        CemaCategory cemaCategory = categoryRepository.save(CemaCategory.builder().name("Alimento").description("alimento").build());
+        CemaSupply maiz = supplyRepository.save(CemaSupply.builder()
+                .name("Maiz")
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+        supplyBalanceService.createBalance(maiz);
+        UUID id = importJobService.create(importJob(ImportType.SUPPLY_OPERATIONS)).getId();
+
+        ImportJob importJob = importJobService.importOperations(id, csv(
+                "id,supply_name,operation_type,amount,operator_name,description,transaction_date,establishment_cuig\r\n" +
+                        "b000bba4-229e-4b59-8548-1c26508e459c,Maiz,buy,10,merlinds,\"Compra, en efectivo\",2020-03-01T03:00:00Z,321\r\n" +
+                        ",maiz,use,4,merlinds,,2020-03-02,\r\n" +
+                        ",Maiz,use,20,merlinds,,2020-03-03,321\r\n" +
+                        ",Avena,buy,3,merlinds,,2020-03-03,321\r\n" +
+                        ",Maiz,buy,tres,merlinds,,2020-03-03,321\r\n" +
+                        ",Maiz,buy,3,merlinds,,2020-03-03,999\r\n"));
+
+        assertThat(importJob.getStatus(), is(ImportJobStatus.DONE));
+        assertThat(importJob.getRowsRead(), is(6L));
+        assertThat(importJob.getRowsImported(), is(2L));
+        assertThat(importJob.getRowsFailed(), is(4L));
+        assertThat(importJob.getErrors().size(), is(2));
+        assertThat(importJob.getErrors().get(0).getRow(), is(3L));
+        assertThat(importJob.getErrors().get(0).getMessage(), is("This operation amount 20 exceeds what is available 6 for the supply Maiz"));
+        assertThat(importJob.getErrors().get(1).getMessage(), is("The supply Avena does not exists"));
+        assertThat(supplyBalanceService.getAvailable(maiz), is(6L));
+        verify(usersClientService, times(1)).validateUser("merlinds");
+        verify(administrationClientService, times(1)).validateEstablishment(cuig);
+    }
+
+    @Test
+    public void bovineImportShouldStoreEveryBatchWhileTheFileIsRead() {
+        UUID id = importJobService.create(importJob(ImportType.BOVINE_OPERATIONS)).getId();
+        int rows = 1050;
+        AtomicLong importedWhileReading = new AtomicLong(-1);
+        Enumeration<InputStream> content = new Enumeration<InputStream>() {
+            private int row = -1;
+
+            @Override
+            public boolean hasMoreElements() {
+                return row < rows;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                row++;
+                if (row == 0) {
+                    return csv("bovine_tag,operation_type,amount,seller_name,buyer_name,operator_name,transaction_date\r\n");
+                }
+                if (row == 600) {
+                    importedWhileReading.set(importJobService.getJob(id).getRowsImported());
+                }
+                return csv(String.format("%d,buy,%d,Roberto,,merlinds,2020-%02d-01\r\n", row % 20, row, 1 + row % 12));
+            }
+        };
+
+        ImportJob importJob = importJobService.importOperations(id, new SequenceInputStream(content));
+
+        assertThat(importJob.getStatus(), is(ImportJobStatus.DONE));
+        assertThat(importJob.getRowsImported(), is((long) rows));
+        assertThat(importedWhileReading.get(), greaterThanOrEqualTo(300L));
+        assertThat(bovineOperationRepository.count(), is((long) rows));
+        assertThat(bovineOperationRollupRepository.sumOperations(cuig), is((long) rows));
+        verify(usersClientService, times(1)).validateUser("merlinds");
+        verify(bovineClientService, times(1)).validateBovine(eq("7"), eq(cuig));
+        verify(bovineClientService, times(20)).validateBovine(any(), eq(cuig));
+    }
+
+    @Test
+    public void importShouldOnlyReadOneFile() {
+        UUID id = importJobService.create(importJob(ImportType.BOVINE_OPERATIONS)).getId();
+
+        ImportJob importJob = importJobService.importOperations(id, csv("bovine_tag,operation_type\r\n1,buy\r\n"));
+
+        assertThat(importJob.getStatus(), is(ImportJobStatus.FAILED));
+        assertThat(importJob.getError(), is("The columns [amount, operator_name, transaction_date] are missing"));
+        assertThrows(ValidationException.class, () -> importJobService.importOperations(id, csv("")));
+        assertThrows(ValidationException.class, () -> importJobService.create(importJob("categories")));
+    }
+
+    private ImportJob importJob(String importType) {
+        return ImportJob.builder()
+                .importType(importType)
+                .establishmentCuig(cuig)
+                .build();
+    }
+
+    private InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,306 @@
+package com.cema.economic.services.job.impl;
+
+import com.cema.economic.config.EmbeddedPostgresConfig;
+import com.cema.economic.constants.OperationType;
+import com.cema.economic.constants.ReportJobStatus;
+import com.cema.economic.constants.ReportType;
+import com.cema.economic.domain.CategoryReport;
+import com.cema.economic.domain.ReportJob;
+import com.cema.economic.entities.CemaCategory;
+import com.cema.economic.entities.CemaReportJob;
+import com.cema.economic.entities.CemaSupply;
+import com.cema.economic.entities.CemaSupplyOperation;
+import com.cema.economic.exceptions.TooManyRequestsException;
+import com.cema.economic.exceptions.ValidationException;
+import com.cema.economic.mapping.impl.ReportJobMappingImpl;
+import com.cema.economic.repositories.CategoryRepository;
+import com.cema.economic.repositories.ReportJobRepository;
+import com.cema.economic.repositories.SupplyOperationRepository;
+import com.cema.economic.repositories.SupplyRepository;
+import com.cema.economic.services.export.impl.ExportServiceImpl;
+import com.cema.economic.services.job.ReportJobService;
+import com.cema.economic.services.report.ReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({EmbeddedPostgresConfig.class, ReportJobServiceImpl.class, ReportJobMappingImpl.class, ExportServiceImpl.class})
+@TestPropertySource(properties = {"app.jobs.max-per-establishment=1", "app.jobs.chunk-size=64"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReportJobServiceImplTest {
+
+    private final String cuig = "321";
+
+    @Autowired
+    private ReportJobService reportJobService;
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private SupplyRepository supplyRepository;
+    @Autowired
+    private SupplyOperationRepository supplyOperationRepository;
+    @Autowired
+    private DataSource dataSource;
+    @MockBean
+    private ReportService reportService;
+
+    @AfterEach
+    public void tearDown() {
+        reportJobRepository.deleteAllInBatch();
+        supplyOperationRepository.deleteAllInBatch();
+        supplyRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void exportJobShouldWriteTheResultAndFinish() throws Exception {
+        CemaCategory cemaCategory = categoryRepository.save(CemaCategory.builder().name("Alimento").description("alimento").build());
+        CemaSupply maiz = supplyRepository.save(CemaSupply.builder()
+                .name("Maiz")
+                .units("Kg")
+                .price(10L)
+                .establishmentCuig(cuig)
+                .category(cemaCategory)
+                .build());
+        supplyOperationRepository.save(CemaSupplyOperation.builder()
+                .cemaSupply(maiz)
+                .operationType(OperationType.BUY)
+                .amount(5L)
+                .operatorName("merlinds")
+                .transactionDate(new Date())
+                .establishmentCuig(cuig)
+                .build());
+
+        ReportJob reportJob = reportJobService.submit(ReportJob.builder()
+                .reportType(ReportType.SUPPLY_OPERATIONS)
+                .establishmentCuig(cuig)
+                .build());
+        assertThat(reportJob.getFormat(), is("csv"));
+
+        ReportJob finished = waitUntilFinished(reportJob.getId());
+        assertThat(finished.getStatus(), is(ReportJobStatus.DONE));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        reportJobService.getResult(reportJob.getId()).writeTo(outputStream);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8.name()).split("\r\n");
+        assertThat(lines.length, is(2));
+        assertThat(lines[1].contains(",Maiz,buy,5,merlinds,"), is(true));
+        assertThat(finished.getResultSize(), is((long) outputStream.size()));
+        assertThat(countChunks(reportJob.getId()) > 1, is(true));
+    }
+
+    @Test
+    public void establishmentShouldNotRunMoreJobsThanItsLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportService.getCategoryReport(eq(cuig), any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return Collections.singletonList(CategoryReport.builder().categoryName("Alimento").spending(50L).build());
+        });
+        ReportJob categories = ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .establishmentCuig(cuig)
+                .build();
+
+        ReportJob running = reportJobService.submit(categories);
+
+        assertThrows(TooManyRequestsException.class, () -> reportJobService.submit(categories));
+
+        release.countDown();
+        assertThat(waitUntilFinished(running.getId()).getStatus(), is(ReportJobStatus.DONE));
+        ReportJob next = reportJobService.submit(categories);
+        assertThat(waitUntilFinished(next.getId()).getStatus(), is(ReportJobStatus.DONE));
+    }
+
+    @Test
+    public void jobsInProgressOnAnotherInstanceShouldCountAgainstTheLimit() {
+        reportJobRepository.save(jobInProgress(Instant.now()));
+
+        assertThrows(TooManyRequestsException.class, () -> reportJobService.submit(ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .establishmentCuig(cuig)
+                .build()));
+    }
+
+    @Test
+    public void concurrentSubmitsShouldNotExceedTheLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportService.getCategoryReport(eq(cuig), any(), any())).thenAnswer(invocation -> {
+            release.await();
+            return Collections.emptyList();
+        });
+        ReportJob categories = ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .establishmentCuig(cuig)
+                .build();
+        int submits = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(submits);
+        List<Future<ReportJob>> futures = new ArrayList<>();
+        for (int i = 0; i < submits; i++) {
+            futures.add(executorService.submit((Callable<ReportJob>) () -> {
+                start.await();
+                return reportJobService.submit(categories);
+            }));
+        }
+        start.countDown();
+
+        List<ReportJob> accepted = new ArrayList<>();
+        for (Future<ReportJob> future : futures) {
+            try {
+                accepted.add(future.get(30, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertThat(e.getCause() instanceof TooManyRequestsException, is(true));
+            }
+        }
+        executorService.shutdown();
+        release.countDown();
+
+        assertThat(accepted.size(), is(1));
+        assertThat(waitUntilFinished(accepted.get(0).getId()).getStatus(), is(ReportJobStatus.DONE));
+    }
+
+    @Test
+    public void deleteExpiredJobsShouldFailTheJobsThatDidNotFinishInTime() {
+        CemaReportJob interrupted = reportJobRepository.save(jobInProgress(Instant.now().minus(Duration.ofHours(3))));
+        CemaReportJob running = reportJobRepository.save(jobInProgress(Instant.now()));
+        CemaReportJob queued = jobInProgress(Instant.now().minus(Duration.ofHours(3)));
+        queued.setStatus(ReportJobStatus.PENDING);
+        queued.setStartedAt(null);
+        queued = reportJobRepository.save(queued);
+
+        reportJobService.deleteExpiredJobs();
+
+        ReportJob failed = reportJobService.getJob(interrupted.getId());
+        assertThat(failed.getStatus(), is(ReportJobStatus.FAILED));
+        assertThat(failed.getError(), is("The report did not finish in time"));
+        assertThat(reportJobService.getJob(running.getId()).getStatus(), is(ReportJobStatus.RUNNING));
+        assertThat(reportJobService.getJob(queued.getId()).getStatus(), is(ReportJobStatus.PENDING));
+    }
+
+    @Test
+    public void aJobFailedByTheCleanupShouldStayFailedWhenItsWorkerFinishes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportService.getCategoryReport(eq(cuig), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Collections.singletonList(CategoryReport.builder().categoryName("Alimento").spending(50L).build());
+        });
+        ReportJob reportJob = reportJobService.submit(ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .establishmentCuig(cuig)
+                .build());
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+        CemaReportJob running = reportJobRepository.findCemaReportJobById(reportJob.getId());
+        assertThat(running.getStatus(), is(ReportJobStatus.RUNNING));
+        running.setStartedAt(Date.from(Instant.now().minus(Duration.ofHours(3))));
+        reportJobRepository.save(running);
+
+        reportJobService.deleteExpiredJobs();
+        release.countDown();
+
+        // Gives the worker time to try and record its result.
+        Thread.sleep(500);
+        ReportJob finished = reportJobService.getJob(reportJob.getId());
+        assertThat(finished.getStatus(), is(ReportJobStatus.FAILED));
+        assertThat(finished.getError(), is("The report did not finish in time"));
+        assertThrows(ValidationException.class, () -> reportJobService.getResult(reportJob.getId()));
+        assertThat(countChunks(reportJob.getId()), is(0));
+    }
+
+    @Test
+    public void deleteExpiredJobsShouldDeleteTheResultsWithTheJobs() throws Exception {
+        when(reportService.getCategoryReport(eq(cuig), any(), any()))
+                .thenReturn(Collections.singletonList(CategoryReport.builder().categoryName("Alimento").spending(50L).build()));
+        ReportJob reportJob = reportJobService.submit(ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .establishmentCuig(cuig)
+                .build());
+        assertThat(waitUntilFinished(reportJob.getId()).getStatus(), is(ReportJobStatus.DONE));
+        assertThat(countChunks(reportJob.getId()) > 0, is(true));
+        CemaReportJob done = reportJobRepository.findCemaReportJobById(reportJob.getId());
+        done.setExpiresAt(Date.from(Instant.now().minus(Duration.ofMinutes(1))));
+        reportJobRepository.save(done);
+
+        reportJobService.deleteExpiredJobs();
+
+        assertThat(reportJobRepository.findCemaReportJobById(reportJob.getId()) == null, is(true));
+        assertThat(countChunks(reportJob.getId()), is(0));
+    }
+
+    @Test
+    public void submitShouldRejectFormatsTheReportDoesNotSupport() {
+        ReportJob reportJob = ReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .format("csv")
+                .establishmentCuig(cuig)
+                .build();
+
+        assertThrows(ValidationException.class, () -> reportJobService.submit(reportJob));
+    }
+
+    private CemaReportJob jobInProgress(Instant startedAt) {
+        return CemaReportJob.builder()
+                .reportType(ReportType.CATEGORIES)
+                .format(ReportType.JSON_FORMAT)
+                .establishmentCuig(cuig)
+                .status(ReportJobStatus.RUNNING)
+                .createdAt(Date.from(startedAt))
+                .startedAt(Date.from(startedAt))
+                .expiresAt(Date.from(startedAt.plus(Duration.ofDays(1))))
+                .build();
+    }
+
+    private int countChunks(UUID id) {
+        return new JdbcTemplate(dataSource)
+                .queryForObject("select count(*) from report_job_chunk where job_id = ?", Integer.class, id);
+    }
+
+    private ReportJob waitUntilFinished(UUID id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ReportJob reportJob = reportJobService.getJob(id);
+            if (ReportJobStatus.DONE.equals(reportJob.getStatus()) || ReportJobStatus.FAILED.equals(reportJob.getStatus())) {
+                return reportJob;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError(String.format("The report %s did not finish", id));
+    }
+}